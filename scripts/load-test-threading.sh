@@ -0,0 +1,61 @@
+#!/bin/bash
+
+# Load test for comparing platform and virtual thread modes
+# Run once with the application started normally and once with -Pvirtual-threads;
+# results are appended per mode to a results file and compared once both exist.
+
+set -e
+
+APP_URL="${APP_URL:-http://localhost:9090}"
+REQUESTS="${REQUESTS:-5000}"
+CONCURRENCY="${CONCURRENCY:-200}"
+RESULTS_FILE="${RESULTS_FILE:-./threading-results.txt}"
+
+MODE=$(curl -s "$APP_URL/api/events/info" | grep -o '"virtualThreads":[a-z]*' | cut -d: -f2)
+if [ "$MODE" = "true" ]; then MODE="virtual"; else MODE="platform"; fi
+
+echo "🧵 Threading load test (mode: $MODE)"
+echo "====================================="
+echo "   Requests:    $REQUESTS"
+echo "   Concurrency: $CONCURRENCY"
+
+# Orders need an existing user
+USER_ID=$(curl -s -X POST "$APP_URL/api/data/users" -H "Content-Type: application/json" \
+    -d "{\"name\": \"Threading Test\", \"email\": \"threading-$(date +%s%N)@example.com\", \"age\": 30}" \
+    | grep -o '"userId":"[^"]*"' | cut -d'"' -f4)
+
+create_order() {
+    curl -s -o /dev/null -w "%{http_code} %{time_total}\n" -X POST "$APP_URL/api/data/orders" \
+        -H "Content-Type: application/json" \
+        -d "{\"userId\": \"$USER_ID\", \"items\": [\"Laptop\"], \"totalAmount\": 999.99}"
+}
+export -f create_order
+export APP_URL USER_ID
+
+START=$(date +%s.%N)
+RESULTS=$(seq 1 "$REQUESTS" | xargs -P "$CONCURRENCY" -I{} bash -c 'create_order')
+END=$(date +%s.%N)
+
+OK=$(echo "$RESULTS" | grep -c "^201 " || true)
+LATENCIES=$(echo "$RESULTS" | awk '{print $2}' | sort -n)
+P50=$(echo "$LATENCIES" | awk '{a[NR]=$1} END {printf "%.1f", a[int(NR*0.50)+0]*1000}')
+P99=$(echo "$LATENCIES" | awk '{a[NR]=$1} END {printf "%.1f", a[int(NR*0.99)+0]*1000}')
+RATE=$(awk "BEGIN {printf \"%.1f\", $REQUESTS / ($END - $START)}")
+
+echo ""
+echo "📊 Results ($MODE)"
+echo "   Succeeded:  $OK/$REQUESTS"
+echo "   Throughput: $RATE req/s"
+echo "   p50:        ${P50} ms"
+echo "   p99:        ${P99} ms"
+
+echo "$MODE $CONCURRENCY $RATE $P50 $P99" >> "$RESULTS_FILE"
+
+if grep -q "^platform " "$RESULTS_FILE" && grep -q "^virtual " "$RESULTS_FILE"; then
+    echo ""
+    echo "📈 Comparison (latest run per mode)"
+    printf "   %-10s %12s %12s %10s %10s\n" "mode" "concurrency" "req/s" "p50 ms" "p99 ms"
+    for m in platform virtual; do
+        grep "^$m " "$RESULTS_FILE" | tail -1 | awk '{printf "   %-10s %12s %12s %10s %10s\n", $1, $2, $3, $4, $5}'
+    done
+fi
@@ -0,0 +1,59 @@
+#!/bin/bash
+
+# Concurrent load test for user creation
+# Fires parallel POST /api/data/users requests where every email is sent twice,
+# then verifies that MongoDB holds no duplicate emails
+
+set -e
+
+APP_URL="${APP_URL:-http://localhost:9090}"
+REQUESTS="${REQUESTS:-2000}"
+CONCURRENCY="${CONCURRENCY:-50}"
+RUN_ID=$(date +%s)
+
+echo "🧪 User creation load test"
+echo "=========================="
+echo "   Requests:    $REQUESTS (each email sent twice)"
+echo "   Concurrency: $CONCURRENCY"
+
+create_user() {
+    local n=$(( $1 / 2 ))
+    curl -s -o /dev/null -w "%{http_code}\n" -X POST "$APP_URL/api/data/users" \
+        -H "Content-Type: application/json" \
+        -d "{\"name\": \"Load User $n\", \"email\": \"load-$RUN_ID-$n@example.com\", \"age\": 30}"
+}
+export -f create_user
+export APP_URL RUN_ID
+
+START=$(date +%s.%N)
+RESULTS=$(seq 0 $((REQUESTS - 1)) | xargs -P "$CONCURRENCY" -I{} bash -c 'create_user {}')
+END=$(date +%s.%N)
+
+CREATED=$(echo "$RESULTS" | grep -c "^201$" || true)
+REJECTED=$(echo "$RESULTS" | grep -c "^400$" || true)
+FAILED=$(echo "$RESULTS" | grep -vc "^20[01]$\|^400$" || true)
+ELAPSED=$(awk "BEGIN {printf \"%.2f\", $END - $START}")
+RATE=$(awk "BEGIN {printf \"%.1f\", $REQUESTS / ($END - $START)}")
+
+echo ""
+echo "📊 Results"
+echo "   Created:   $CREATED (expected $((REQUESTS / 2)))"
+echo "   Rejected:  $REJECTED"
+echo "   Failed:    $FAILED"
+echo "   Elapsed:   ${ELAPSED}s"
+echo "   Throughput: ${RATE} req/s"
+
+DUPLICATES=$(docker exec mongodb-replica mongosh poc --quiet --eval "
+    db.users.aggregate([
+        { \$match: { email: /^load-$RUN_ID-/ } },
+        { \$group: { _id: '\$email', n: { \$sum: 1 } } },
+        { \$match: { n: { \$gt: 1 } } }
+    ]).toArray().length
+")
+
+if [ "$DUPLICATES" = "0" ]; then
+    echo "✅ No duplicate emails created"
+else
+    echo "❌ Found $DUPLICATES duplicated emails"
+    exit 1
+fi
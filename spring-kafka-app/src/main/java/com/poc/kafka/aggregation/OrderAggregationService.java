@@ -0,0 +1,301 @@
+package com.poc.kafka.aggregation;
+
+import com.poc.kafka.consumer.RecordCompletion;
+import com.poc.kafka.model.ProcessedChangeEvent;
+import com.poc.kafka.service.ChangeEventProducer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Windowed per-user order aggregations published as a derived topic
+ * Every order INSERT is added to a tumbling and a sliding window keyed by user id. Windows close
+ * on an event-time watermark (with allowed lateness, and advanced by wall clock only once no order
+ * has arrived for idle-close-ms) and each user's count and total amount is published through
+ * ChangeEventProducer. A consumer catching up on a backlog therefore closes windows by the
+ * orders' own timestamps instead of dropping the backlog as late.
+ * Open window state is bounded and checkpointed to local disk, so a restart resumes the open windows.
+ * An order's record is acknowledged only once a checkpoint holds it: after a crash the committed
+ * offsets and the restored windows agree, so the orders consumed again are exactly those missing
+ * from the checkpoint.
+ */
+@Service
+public class OrderAggregationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderAggregationService.class);
+    
+    private static final String EVENT_TYPE = "AGGREGATE";
+    private static final int CHECKPOINT_MAGIC = 0x4f414731;
+    
+    private final ChangeEventProducer changeEventProducer;
+    private List<WindowedOrderAggregator> aggregators;
+    
+    private final LongAdder ordersAggregated = new LongAdder();
+    private final LongAdder ordersSkipped = new LongAdder();
+    private final LongAdder resultsPublished = new LongAdder();
+    private volatile Instant lastCheckpoint;
+    /** Wall-clock time the last order arrived, or the service started */
+    private volatile long lastArrivalMillis = System.currentTimeMillis();
+    /** Completes once a checkpoint has written every order added before it was replaced */
+    private volatile CompletableFuture<Void> nextCheckpoint = new CompletableFuture<>();
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    
+    @Value("${app.aggregation.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.kafka.topics.order-aggregates:order-aggregates}")
+    private String aggregatesTopic;
+    
+    @Value("${app.aggregation.tumbling.size-ms:60000}")
+    private long tumblingSizeMs;
+    
+    @Value("${app.aggregation.sliding.size-ms:300000}")
+    private long slidingSizeMs;
+    
+    @Value("${app.aggregation.sliding.advance-ms:60000}")
+    private long slidingAdvanceMs;
+    
+    @Value("${app.aggregation.allowed-lateness-ms:5000}")
+    private long allowedLatenessMs;
+    
+    @Value("${app.aggregation.idle-close-ms:10000}")
+    private long idleCloseMs;
+    
+    @Value("${app.aggregation.max-users-per-pane:100000}")
+    private int maxUsersPerPane;
+    
+    @Value("${app.aggregation.max-panes:64}")
+    private int maxPanes;
+    
+    @Value("${app.state.dir:./data/state}")
+    private String stateDir;
+    
+    public OrderAggregationService(ChangeEventProducer changeEventProducer) {
+        this.changeEventProducer = changeEventProducer;
+    }
+    
+    @PostConstruct
+    public void open() {
+        aggregators = List.of(
+                new WindowedOrderAggregator("tumbling", tumblingSizeMs, tumblingSizeMs, maxUsersPerPane, maxPanes),
+                new WindowedOrderAggregator("sliding", slidingSizeMs, slidingAdvanceMs, maxUsersPerPane, maxPanes)
+        );
+        for (WindowedOrderAggregator aggregator : aggregators) {
+            restore(aggregator);
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        if (enabled) {
+            checkpoint();
+        }
+    }
+    
+    /**
+     * Add an order event to every window
+     *
+     * @param completion the order's record, held open until a checkpoint covers the order
+     */
+    public void onOrder(ProcessedChangeEvent order, RecordCompletion completion) {
+        if (!enabled) {
+            return;
+        }
+        
+        Map<String, Object> data = order.getData();
+        Object userId = data != null ? data.get("userId") : null;
+        Long amountCents = data != null ? toCents(data.get("totalAmount")) : null;
+        if (userId == null || amountCents == null) {
+            ordersSkipped.increment();
+            return;
+        }
+        
+        Instant timestamp = order.getTimestamp() != null ? order.getTimestamp() : order.getProcessingTimestamp();
+        lastArrivalMillis = System.currentTimeMillis();
+        for (WindowedOrderAggregator aggregator : aggregators) {
+            aggregator.add(userId.toString(), timestamp.toEpochMilli(), amountCents);
+        }
+        ordersAggregated.increment();
+        // Read after the order is added: a checkpoint replaces the future before it writes the windows
+        completion.await(nextCheckpoint);
+    }
+    
+    /**
+     * Close windows behind the watermark and publish one result per user and window
+     */
+    @Scheduled(fixedDelayString = "${app.aggregation.emit-interval-ms:1000}")
+    public void emitClosedWindows() {
+        if (!enabled) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        long lastArrival = lastArrivalMillis;
+        for (WindowedOrderAggregator aggregator : aggregators) {
+            long maxEventTimestamp = aggregator.getMaxEventTimestamp();
+            if (maxEventTimestamp == Long.MIN_VALUE) {
+                continue;
+            }
+            long watermark = watermark(maxEventTimestamp, lastArrival, now, idleCloseMs, allowedLatenessMs);
+            for (WindowedOrderAggregator.WindowResult window : aggregator.advanceTo(watermark)) {
+                publish(window);
+            }
+        }
+    }
+    
+    /**
+     * Write the open window state of every aggregator to local disk, then let the covered orders be acknowledged
+     * Should run well within app.kafka.consumer.drain-timeout-ms, which revoked partitions wait for acks.
+     */
+    @Scheduled(fixedDelayString = "${app.aggregation.checkpoint-interval-ms:10000}")
+    public void checkpoint() {
+        if (!enabled) {
+            return;
+        }
+        
+        checkpointLock.lock();
+        try {
+            CompletableFuture<Void> covered = nextCheckpoint;
+            nextCheckpoint = new CompletableFuture<>();
+            boolean written = true;
+            for (WindowedOrderAggregator aggregator : aggregators) {
+                Path file = checkpointFile(aggregator);
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                try {
+                    Files.createDirectories(file.getParent());
+                    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                        out.writeInt(CHECKPOINT_MAGIC);
+                        aggregator.writeCheckpoint(out);
+                    }
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    written = false;
+                    logger.error("❌ Failed to checkpoint {} order aggregation: {}", aggregator.getName(), e.getMessage(), e);
+                }
+            }
+            if (written) {
+                covered.complete(null);
+                lastCheckpoint = Instant.now();
+            } else {
+                // The orders stay unacknowledged until a later checkpoint succeeds
+                nextCheckpoint.whenComplete((result, failure) -> covered.complete(null));
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+    
+    /**
+     * Event-time watermark, moved on by wall clock only while no order has arrived for idleCloseMs
+     */
+    static long watermark(long maxEventTimestamp, long lastArrivalMillis, long nowMillis,
+                          long idleCloseMs, long allowedLatenessMs) {
+        long eventTime = maxEventTimestamp;
+        if (nowMillis - lastArrivalMillis >= idleCloseMs) {
+            eventTime = Math.max(eventTime, nowMillis - idleCloseMs);
+        }
+        return eventTime - allowedLatenessMs;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("topic", aggregatesTopic);
+        stats.put("ordersAggregated", ordersAggregated.sum());
+        stats.put("ordersSkipped", ordersSkipped.sum());
+        stats.put("resultsPublished", resultsPublished.sum());
+        stats.put("lastCheckpoint", lastCheckpoint != null ? lastCheckpoint.toString() : null);
+        for (WindowedOrderAggregator aggregator : aggregators) {
+            stats.put(aggregator.getName(), aggregator.getStats());
+        }
+        return stats;
+    }
+    
+    private void publish(WindowedOrderAggregator.WindowResult window) {
+        Instant windowStart = Instant.ofEpochMilli(window.windowStart());
+        Instant windowEnd = Instant.ofEpochMilli(window.windowEnd());
+        window.users().forEach((userId, orderCount, amountCents) -> {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("userId", userId);
+            data.put("windowType", window.windowName());
+            data.put("windowStart", windowStart.toString());
+            data.put("windowEnd", windowEnd.toString());
+            data.put("orderCount", orderCount);
+            data.put("totalAmount", BigDecimal.valueOf(amountCents, 2));
+            
+            ProcessedChangeEvent result = new ProcessedChangeEvent(
+                    EVENT_TYPE,
+                    "orders",
+                    userId + "@" + window.windowName() + ":" + window.windowStart(),
+                    windowEnd,
+                    data,
+                    "order-aggregation"
+            );
+            changeEventProducer.publishChangeEvent(result, aggregatesTopic);
+            resultsPublished.increment();
+        });
+        logger.info("📊 Closed {} window {} - {} with {} users", 
+                   window.windowName(), windowStart, windowEnd, window.users().size());
+    }
+    
+    private void restore(WindowedOrderAggregator aggregator) {
+        Path file = checkpointFile(aggregator);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || !aggregator.readCheckpoint(in)) {
+                logger.warn("⚠️ Ignoring {} aggregation checkpoint written with a different format or window configuration",
+                           aggregator.getName());
+                return;
+            }
+            logger.info("♻️ Restored {} order aggregation from checkpoint", aggregator.getName());
+        } catch (IOException e) {
+            logger.error("❌ Failed to restore {} order aggregation checkpoint: {}", aggregator.getName(), e.getMessage(), e);
+        }
+    }
+    
+    private Path checkpointFile(WindowedOrderAggregator aggregator) {
+        return Path.of(stateDir, "aggregations", aggregator.getName() + ".ckpt");
+    }
+    
+    /**
+     * Convert an order amount from the change event to cents
+     * Debezium renders Decimal128 as {"$numberDecimal": "..."} in relaxed extended JSON.
+     */
+    private static Long toCents(Object amount) {
+        try {
+            if (amount instanceof Map<?, ?> map && map.get("$numberDecimal") != null) {
+                amount = map.get("$numberDecimal");
+            }
+            if (amount instanceof Number || amount instanceof String) {
+                return new BigDecimal(amount.toString()).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            }
+        } catch (ArithmeticException | NumberFormatException e) {
+            logger.debug("Unparseable order amount: {}", amount);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,132 @@
+package com.poc.kafka.aggregation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Per-user order count and amount sums for one window pane
+ * Open-addressing table with the counters in flat long arrays, so accumulating an order
+ * allocates nothing and a key costs one String reference plus two longs.
+ * Amounts are kept in cents. Not thread-safe - callers guard access.
+ */
+public class UserOrderAccumulator {
+    
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    private final int maxKeys;
+    private String[] keys;
+    private long[] counts;
+    private long[] amountCents;
+    private int size;
+    
+    public UserOrderAccumulator(int initialCapacity, int maxKeys) {
+        this.maxKeys = maxKeys;
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (initialCapacity / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.amountCents = new long[capacity];
+    }
+    
+    /**
+     * Add orders for a user
+     *
+     * @return false if the user is new and the accumulator is already at its key limit
+     */
+    public boolean add(String userId, long orderCount, long cents) {
+        int slot = findSlot(keys, userId);
+        if (keys[slot] == null) {
+            if (size >= maxKeys) {
+                return false;
+            }
+            if (size + 1 > keys.length * LOAD_FACTOR) {
+                resize();
+                slot = findSlot(keys, userId);
+            }
+            keys[slot] = userId;
+            size++;
+        }
+        counts[slot] += orderCount;
+        amountCents[slot] += cents;
+        return true;
+    }
+    
+    /**
+     * Add every user of another accumulator into this one
+     */
+    public void merge(UserOrderAccumulator other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != null) {
+                add(other.keys[i], other.counts[i], other.amountCents[i]);
+            }
+        }
+    }
+    
+    public void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                visitor.visit(keys[i], counts[i], amountCents[i]);
+            }
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                out.writeUTF(keys[i]);
+                out.writeLong(counts[i]);
+                out.writeLong(amountCents[i]);
+            }
+        }
+    }
+    
+    public static UserOrderAccumulator readFrom(DataInputStream in, int maxKeys) throws IOException {
+        int entries = in.readInt();
+        UserOrderAccumulator accumulator = new UserOrderAccumulator(entries, Math.max(maxKeys, entries));
+        for (int i = 0; i < entries; i++) {
+            accumulator.add(in.readUTF(), in.readLong(), in.readLong());
+        }
+        return accumulator;
+    }
+    
+    private static int findSlot(String[] keys, String key) {
+        int mask = keys.length - 1;
+        int h = key.hashCode() * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private void resize() {
+        String[] oldKeys = keys;
+        long[] oldCounts = counts;
+        long[] oldAmounts = amountCents;
+        
+        keys = new String[oldKeys.length << 1];
+        counts = new long[keys.length];
+        amountCents = new long[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = findSlot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                amountCents[slot] = oldAmounts[i];
+            }
+        }
+    }
+    
+    /**
+     * Callback for iterating accumulated users
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(String userId, long orderCount, long amountCents);
+    }
+}
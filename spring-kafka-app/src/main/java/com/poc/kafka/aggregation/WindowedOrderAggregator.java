@@ -0,0 +1,202 @@
+package com.poc.kafka.aggregation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Event-time windows of per-user order counts and amounts
+ * Orders are accumulated into panes of the window advance; a window of the configured size
+ * is the merge of its panes, so tumbling (advance == size) and sliding (advance < size)
+ * windows share one implementation. Windows are closed once the watermark passes their end,
+ * and panes are dropped as soon as no open window needs them.
+ */
+public class WindowedOrderAggregator {
+    
+    private final String name;
+    private final long sizeMs;
+    private final long advanceMs;
+    private final int maxKeysPerPane;
+    private final int maxPanes;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeMap<Long, UserOrderAccumulator> panes = new TreeMap<>();
+    private long maxEventTimestamp = Long.MIN_VALUE;
+    private long lastClosedWindowEnd = Long.MIN_VALUE;
+    private long lateEvents;
+    private long droppedEvents;
+    private long emittedWindows;
+    
+    public WindowedOrderAggregator(String name, long sizeMs, long advanceMs, int maxKeysPerPane, int maxPanes) {
+        if (advanceMs <= 0 || sizeMs % advanceMs != 0) {
+            throw new IllegalArgumentException("Window size must be a positive multiple of the advance for " + name);
+        }
+        this.name = name;
+        this.sizeMs = sizeMs;
+        this.advanceMs = advanceMs;
+        this.maxKeysPerPane = maxKeysPerPane;
+        this.maxPanes = maxPanes;
+    }
+    
+    /**
+     * Accumulate one order
+     */
+    public void add(String userId, long timestampMs, long amountCents) {
+        long paneStart = Math.floorDiv(timestampMs, advanceMs) * advanceMs;
+        
+        lock.lock();
+        try {
+            if (lastClosedWindowEnd != Long.MIN_VALUE && paneStart + sizeMs <= lastClosedWindowEnd) {
+                lateEvents++;
+                return;
+            }
+            UserOrderAccumulator pane = panes.get(paneStart);
+            if (pane == null) {
+                if (panes.size() >= maxPanes) {
+                    droppedEvents++;
+                    return;
+                }
+                pane = new UserOrderAccumulator(64, maxKeysPerPane);
+                panes.put(paneStart, pane);
+            }
+            if (!pane.add(userId, 1, amountCents)) {
+                droppedEvents++;
+                return;
+            }
+            maxEventTimestamp = Math.max(maxEventTimestamp, timestampMs);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Close every window whose end is at or before the watermark
+     *
+     * @return the closed, non-empty windows in end order
+     */
+    public List<WindowResult> advanceTo(long watermark) {
+        List<WindowResult> results = new ArrayList<>();
+        lock.lock();
+        try {
+            while (!panes.isEmpty()) {
+                long windowEnd = panes.firstKey() + advanceMs;
+                if (lastClosedWindowEnd != Long.MIN_VALUE) {
+                    windowEnd = Math.max(windowEnd, lastClosedWindowEnd + advanceMs);
+                }
+                if (windowEnd > watermark) {
+                    break;
+                }
+                
+                long windowStart = windowEnd - sizeMs;
+                UserOrderAccumulator window = new UserOrderAccumulator(64, Integer.MAX_VALUE);
+                for (UserOrderAccumulator pane : panes.subMap(windowStart, windowEnd).values()) {
+                    window.merge(pane);
+                }
+                if (window.size() > 0) {
+                    results.add(new WindowResult(name, windowStart, windowEnd, window));
+                    emittedWindows++;
+                }
+                
+                lastClosedWindowEnd = windowEnd;
+                panes.headMap(windowEnd + advanceMs - sizeMs).clear();
+            }
+            if (panes.isEmpty() && watermark != Long.MIN_VALUE) {
+                long alignedWatermark = Math.floorDiv(watermark, advanceMs) * advanceMs;
+                lastClosedWindowEnd = Math.max(lastClosedWindowEnd, alignedWatermark);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return results;
+    }
+    
+    public long getMaxEventTimestamp() {
+        lock.lock();
+        try {
+            return maxEventTimestamp;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            int keys = 0;
+            for (UserOrderAccumulator pane : panes.values()) {
+                keys += pane.size();
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("sizeMs", sizeMs);
+            stats.put("advanceMs", advanceMs);
+            stats.put("openPanes", panes.size());
+            stats.put("paneKeys", keys);
+            stats.put("emittedWindows", emittedWindows);
+            stats.put("lateEvents", lateEvents);
+            stats.put("droppedEvents", droppedEvents);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Write the open window state for a checkpoint
+     */
+    public void writeCheckpoint(DataOutputStream out) throws IOException {
+        lock.lock();
+        try {
+            out.writeLong(sizeMs);
+            out.writeLong(advanceMs);
+            out.writeLong(maxEventTimestamp);
+            out.writeLong(lastClosedWindowEnd);
+            out.writeInt(panes.size());
+            for (Map.Entry<Long, UserOrderAccumulator> pane : panes.entrySet()) {
+                out.writeLong(pane.getKey());
+                pane.getValue().writeTo(out);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Restore open window state from a checkpoint written with the same window configuration
+     *
+     * @return false if the checkpoint was written for a different window size or advance
+     */
+    public boolean readCheckpoint(DataInputStream in) throws IOException {
+        lock.lock();
+        try {
+            if (in.readLong() != sizeMs || in.readLong() != advanceMs) {
+                return false;
+            }
+            maxEventTimestamp = in.readLong();
+            lastClosedWindowEnd = in.readLong();
+            panes.clear();
+            int paneCount = in.readInt();
+            for (int i = 0; i < paneCount; i++) {
+                long paneStart = in.readLong();
+                panes.put(paneStart, UserOrderAccumulator.readFrom(in, maxKeysPerPane));
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * A closed window with its per-user results
+     */
+    public record WindowResult(String windowName, long windowStart, long windowEnd, UserOrderAccumulator users) {}
+}
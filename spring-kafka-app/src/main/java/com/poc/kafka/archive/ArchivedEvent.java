@@ -0,0 +1,13 @@
+package com.poc.kafka.archive;
+
+/**
+ * An event as it was published to Kafka, read back from the archive
+ *
+ * @param sequence position of the event in the archive, increasing by one per event
+ * @param timestampMs when the event was archived
+ * @param topic partition offset where the event was published
+ * @param key the Kafka record key
+ * @param value the Kafka record value (serialized ProcessedChangeEvent)
+ */
+public record ArchivedEvent(long sequence, long timestampMs, String topic, int partition, long offset,
+                            String key, String value) {}
@@ -0,0 +1,472 @@
+package com.poc.kafka.archive;
+
+import com.poc.kafka.state.MappedSegment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Append-only archive of published events in size-rolled, memory-mapped segments
+ * Every event gets the next sequence number and an archive timestamp that never goes backwards.
+ * Each segment keeps a sparse index (one entry per indexIntervalBytes) of sequence and timestamp
+ * to position, plus a sparse offset index per partition, so reads seek close to their start and
+ * scan forward. Retention deletes whole segments, oldest first. Segments are forced to disk outside
+ * the lock, so a slow fsync never holds up appends.
+ */
+public class EventArchive implements Closeable {
+    
+    private static final Pattern SEGMENT_FILE = Pattern.compile("archive-(\\d+)\\.log");
+    
+    private final Path directory;
+    private final int segmentSize;
+    private final int indexIntervalBytes;
+    private final TreeMap<Long, ArchiveSegment> segments = new TreeMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private ArchiveSegment active;
+    /** Segments rolled away from since the last flush, still to be forced */
+    private List<ArchiveSegment> sealed = new ArrayList<>();
+    private long nextSequence;
+    private long lastTimestampMs;
+    
+    private EventArchive(Path directory, int segmentSize, int indexIntervalBytes) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.indexIntervalBytes = indexIntervalBytes;
+    }
+    
+    /**
+     * Open the archive in a directory, rebuilding the sparse indexes from existing segments
+     */
+    public static EventArchive open(Path directory, int segmentSize, int indexIntervalBytes) throws IOException {
+        Files.createDirectories(directory);
+        EventArchive archive = new EventArchive(directory, segmentSize, indexIntervalBytes);
+        archive.recover();
+        return archive;
+    }
+    
+    /**
+     * Append an event
+     *
+     * @return the sequence number assigned to the event
+     */
+    public long append(String topic, int partition, long offset, String key, String value) throws IOException {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        byte[] keyBytes = key != null ? key.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        
+        lock.writeLock().lock();
+        try {
+            long sequence = nextSequence;
+            long timestampMs = Math.max(lastTimestampMs, System.currentTimeMillis());
+            byte[] payload = encode(sequence, timestampMs, topicBytes, partition, offset, keyBytes, valueBytes);
+            if (payload.length + MappedSegment.FRAME_HEADER_SIZE + Integer.BYTES > segmentSize) {
+                throw new IllegalArgumentException("Event of " + payload.length + " bytes exceeds segment size " + segmentSize);
+            }
+            
+            int position = active.file.append(payload);
+            if (position < 0) {
+                roll(sequence);
+                position = active.file.append(payload);
+            }
+            active.indexRecord(sequence, timestampMs, position, topic, partition, offset, indexIntervalBytes);
+            nextSequence = sequence + 1;
+            lastTimestampMs = timestampMs;
+            return sequence;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Visit events archived at or after a timestamp, in append order, until the visitor returns false
+     */
+    public void readFromTimestamp(long fromTimestampMs, EventVisitor visitor) {
+        boolean first = true;
+        for (ArchiveSegment segment : snapshot()) {
+            if (segment.lastTimestampMs < fromTimestampMs) {
+                continue;
+            }
+            int position = first ? segment.positionForTimestamp(fromTimestampMs) : 0;
+            first = false;
+            if (!scan(segment, position, event -> event.timestampMs() < fromTimestampMs || visitor.visit(event))) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Visit events starting at a sequence number, in append order, until the visitor returns false
+     */
+    public void readFromSequence(long fromSequence, EventVisitor visitor) {
+        for (ArchiveSegment segment : snapshot()) {
+            if (segment.nextSequence <= fromSequence) {
+                continue;
+            }
+            int position = segment.positionForSequence(fromSequence);
+            if (!scan(segment, position, event -> event.sequence() < fromSequence || visitor.visit(event))) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Visit the events published to a partition starting at a Kafka offset, until the visitor returns false
+     */
+    public void readFromOffset(String topic, int partition, long fromOffset, EventVisitor visitor) {
+        String partitionKey = topic + "-" + partition;
+        for (ArchiveSegment segment : snapshot()) {
+            PartitionIndex index = segment.partitions.get(partitionKey);
+            if (index == null || index.lastOffset < fromOffset) {
+                continue;
+            }
+            boolean more = scan(segment, index.positionForOffset(fromOffset), event -> {
+                if (!event.topic().equals(topic) || event.partition() != partition || event.offset() < fromOffset) {
+                    return true;
+                }
+                return visitor.visit(event);
+            });
+            if (!more) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Delete sealed segments older than the maximum age, then oldest segments while over the size limit
+     *
+     * @return number of segments deleted
+     */
+    public int enforceRetention(long maxAgeMs, long maxBytes) throws IOException {
+        long cutoff = System.currentTimeMillis() - maxAgeMs;
+        int deleted = 0;
+        lock.writeLock().lock();
+        try {
+            long totalBytes = 0;
+            for (ArchiveSegment segment : segments.values()) {
+                totalBytes += segment.file.getWritePosition();
+            }
+            while (segments.size() > 1) {
+                ArchiveSegment oldest = segments.firstEntry().getValue();
+                boolean expired = oldest.lastTimestampMs < cutoff;
+                if (!expired && totalBytes <= maxBytes) {
+                    break;
+                }
+                segments.pollFirstEntry();
+                sealed.remove(oldest);
+                totalBytes -= oldest.file.getWritePosition();
+                oldest.file.delete();
+                deleted++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return deleted;
+    }
+    
+    /**
+     * Flush the active segment, and segments sealed since the last flush, to disk
+     * Only picking the segments takes the lock; appends carry on while they are forced.
+     */
+    public void flush() {
+        List<ArchiveSegment> toForce;
+        lock.writeLock().lock();
+        try {
+            toForce = sealed;
+            sealed = new ArrayList<>();
+            toForce.add(active);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (ArchiveSegment segment : toForce) {
+            segment.file.force();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            int indexEntries = 0;
+            int offsetIndexEntries = 0;
+            for (ArchiveSegment segment : segments.values()) {
+                bytes += segment.file.getWritePosition();
+                indexEntries += segment.indexSize;
+                for (PartitionIndex index : segment.partitions.values()) {
+                    offsetIndexEntries += index.size;
+                }
+            }
+            ArchiveSegment oldest = segments.firstEntry().getValue();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("segments", segments.size());
+            stats.put("bytes", bytes);
+            stats.put("events", nextSequence - oldest.baseSequence);
+            stats.put("firstSequence", oldest.baseSequence);
+            stats.put("nextSequence", nextSequence);
+            stats.put("oldestTimestampMs", oldest.firstTimestampMs);
+            stats.put("indexEntries", indexEntries);
+            stats.put("offsetIndexEntries", offsetIndexEntries);
+            stats.put("directory", directory.toString());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (ArchiveSegment segment : segments.values()) {
+                segment.file.close();
+            }
+            segments.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private List<ArchiveSegment> snapshot() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(segments.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Scan a segment from a record position up to its current end
+     *
+     * @return false if the visitor stopped the scan
+     */
+    private static boolean scan(ArchiveSegment segment, int position, EventVisitor visitor) {
+        int end = segment.file.getWritePosition();
+        while (position < end) {
+            if (!visitor.visit(decode(segment.file.read(position)))) {
+                return false;
+            }
+            position += segment.file.frameSize(position);
+        }
+        return true;
+    }
+    
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> SEGMENT_FILE.matcher(path.getFileName().toString()).matches()).sorted().toList();
+        }
+        for (Path file : files) {
+            Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+            matcher.matches();
+            long baseSequence = Long.parseLong(matcher.group(1));
+            ArchiveSegment segment = new ArchiveSegment(MappedSegment.open(file, baseSequence, segmentSize), baseSequence);
+            segment.file.scan((position, payload) -> {
+                ArchivedEvent event = decode(payload);
+                segment.indexRecord(event.sequence(), event.timestampMs(), position,
+                                    event.topic(), event.partition(), event.offset(), indexIntervalBytes);
+            });
+            segments.put(baseSequence, segment);
+            nextSequence = Math.max(nextSequence, segment.nextSequence);
+            lastTimestampMs = Math.max(lastTimestampMs, segment.lastTimestampMs);
+        }
+        if (segments.isEmpty()) {
+            roll(0);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+    
+    /**
+     * Caller holds the write lock; the sealed segment is forced by the next flush
+     */
+    private void roll(long baseSequence) throws IOException {
+        if (active != null) {
+            sealed.add(active);
+        }
+        Path path = directory.resolve(String.format("archive-%020d.log", baseSequence));
+        active = new ArchiveSegment(MappedSegment.open(path, baseSequence, segmentSize), baseSequence);
+        segments.put(baseSequence, active);
+    }
+    
+    /**
+     * Payload layout: [long sequence][long timestamp][int partition][long offset]
+     * [short topicLength][topic][int keyLength][key][value]
+     */
+    private static byte[] encode(long sequence, long timestampMs, byte[] topic, int partition, long offset,
+                                 byte[] key, byte[] value) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 8 + 4 + 8 + 2 + topic.length + 4 + key.length + value.length);
+        buffer.putLong(sequence).putLong(timestampMs).putInt(partition).putLong(offset);
+        buffer.putShort((short) topic.length).put(topic);
+        buffer.putInt(key.length).put(key);
+        buffer.put(value);
+        return buffer.array();
+    }
+    
+    private static ArchivedEvent decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long sequence = buffer.getLong();
+        long timestampMs = buffer.getLong();
+        int partition = buffer.getInt();
+        long offset = buffer.getLong();
+        byte[] topic = new byte[buffer.getShort()];
+        buffer.get(topic);
+        byte[] key = new byte[buffer.getInt()];
+        buffer.get(key);
+        String value = new String(payload, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+        return new ArchivedEvent(sequence, timestampMs, new String(topic, StandardCharsets.UTF_8), partition, offset,
+                                 key.length > 0 ? new String(key, StandardCharsets.UTF_8) : null, value);
+    }
+    
+    /**
+     * Callback for reading archived events
+     */
+    @FunctionalInterface
+    public interface EventVisitor {
+        /**
+         * @return false to stop reading
+         */
+        boolean visit(ArchivedEvent event);
+    }
+    
+    /**
+     * A segment file with its sparse index
+     */
+    private static class ArchiveSegment {
+        
+        private final MappedSegment file;
+        private final long baseSequence;
+        private volatile long nextSequence;
+        private long firstTimestampMs = Long.MAX_VALUE;
+        private volatile long lastTimestampMs = Long.MIN_VALUE;
+        
+        private long[] indexSequences = new long[16];
+        private long[] indexTimestamps = new long[16];
+        private int[] indexPositions = new int[16];
+        private volatile int indexSize;
+        private int lastIndexedPosition = -1;
+        
+        /** Partition key to the sparse offset index of the partition's events in this segment */
+        private final Map<String, PartitionIndex> partitions = new ConcurrentHashMap<>();
+        
+        ArchiveSegment(MappedSegment file, long baseSequence) {
+            this.file = file;
+            this.baseSequence = baseSequence;
+            this.nextSequence = baseSequence;
+        }
+        
+        void indexRecord(long sequence, long timestampMs, int position, String topic, int partition, long offset,
+                         int indexIntervalBytes) {
+            if (lastIndexedPosition < 0 || position - lastIndexedPosition >= indexIntervalBytes) {
+                if (indexSize == indexPositions.length) {
+                    indexSequences = Arrays.copyOf(indexSequences, indexSize * 2);
+                    indexTimestamps = Arrays.copyOf(indexTimestamps, indexSize * 2);
+                    indexPositions = Arrays.copyOf(indexPositions, indexSize * 2);
+                }
+                indexSequences[indexSize] = sequence;
+                indexTimestamps[indexSize] = timestampMs;
+                indexPositions[indexSize] = position;
+                indexSize++;
+                lastIndexedPosition = position;
+            }
+            partitions.computeIfAbsent(topic + "-" + partition, key -> new PartitionIndex())
+                      .indexRecord(offset, position, indexIntervalBytes);
+            firstTimestampMs = Math.min(firstTimestampMs, timestampMs);
+            nextSequence = sequence + 1;
+            lastTimestampMs = timestampMs;
+        }
+        
+        /**
+         * Position of the last indexed record at or before the sequence
+         */
+        int positionForSequence(long sequence) {
+            int size = indexSize;
+            return indexPositions[floorIndex(indexSequences, size, sequence)];
+        }
+        
+        /**
+         * Position of the last indexed record with a timestamp before the given one
+         * Long.MIN_VALUE is not decremented, which would wrap to Long.MAX_VALUE and skip to the last index entry.
+         */
+        int positionForTimestamp(long timestampMs) {
+            int size = indexSize;
+            long before = timestampMs == Long.MIN_VALUE ? timestampMs : timestampMs - 1;
+            return indexPositions[floorIndex(indexTimestamps, size, before)];
+        }
+        
+        /**
+         * The size is read before the arrays, so a concurrent append can only hand us larger arrays
+         */
+        private static int floorIndex(long[] keys, int size, long key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return Math.max(0, index);
+        }
+    }
+    
+    /**
+     * Sparse index of one partition's events in a segment, one entry per indexIntervalBytes of them
+     * Publish callbacks can complete concurrently, so a partition's offsets are archived nearly but not
+     * strictly in order. Each entry therefore records the highest offset archived before its position,
+     * and a read seeks to the last entry below which every offset is smaller than the one asked for.
+     */
+    private static class PartitionIndex {
+        
+        private volatile long lastOffset = Long.MIN_VALUE;
+        private long[] maxOffsetsBefore = new long[8];
+        private int[] positions = new int[8];
+        private volatile int size;
+        private int lastIndexedPosition = -1;
+        
+        void indexRecord(long offset, int position, int indexIntervalBytes) {
+            if (lastIndexedPosition < 0 || position - lastIndexedPosition >= indexIntervalBytes) {
+                if (size == positions.length) {
+                    maxOffsetsBefore = Arrays.copyOf(maxOffsetsBefore, size * 2);
+                    positions = Arrays.copyOf(positions, size * 2);
+                }
+                maxOffsetsBefore[size] = lastOffset;
+                positions[size] = position;
+                size++;
+                lastIndexedPosition = position;
+            }
+            lastOffset = Math.max(lastOffset, offset);
+        }
+        
+        /**
+         * Position from which a scan sees every event of the partition at or after the offset
+         * The maxima never decrease, so the last entry whose maximum is below the offset is found by
+         * binary search; the first entry, with nothing before it, always qualifies.
+         */
+        int positionForOffset(long offset) {
+            int size = this.size;
+            long[] maxima = maxOffsetsBefore;
+            int low = 0;
+            int high = size - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (maxima[mid] < offset) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return positions[low];
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.poc.kafka.archive;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional local archive of every event published by ChangeEventProducer
+ * Keeps hours of processed events on local disk after Kafka retention has dropped them, so they
+ * can be re-sent to a downstream system that missed them. Retention and flushing run in the background.
+ */
+@Service
+public class EventArchiveService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EventArchiveService.class);
+    
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "event-archive-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder failed = new LongAdder();
+    private EventArchive archive;
+    
+    @Value("${app.archive.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${app.archive.dir:./data/archive}")
+    private String archiveDir;
+    
+    @Value("${app.archive.segment-size-bytes:67108864}")
+    private int segmentSize;
+    
+    @Value("${app.archive.index-interval-bytes:4096}")
+    private int indexIntervalBytes;
+    
+    @Value("${app.archive.retention.max-age-ms:86400000}")
+    private long maxAgeMs;
+    
+    @Value("${app.archive.retention.max-bytes:10737418240}")
+    private long maxBytes;
+    
+    @Value("${app.archive.retention.check-interval-ms:60000}")
+    private long retentionCheckIntervalMs;
+    
+    @Value("${app.archive.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+    
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        archive = EventArchive.open(Path.of(archiveDir), segmentSize, indexIntervalBytes);
+        logger.info("🗃️ Opened event archive: {}", archive.getStats());
+        
+        maintenance.scheduleWithFixedDelay(this::enforceRetention, retentionCheckIntervalMs, retentionCheckIntervalMs, TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(archive::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void close() throws IOException {
+        maintenance.shutdownNow();
+        if (archive != null) {
+            archive.close();
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Archive an event the producer has successfully published
+     */
+    public void append(RecordMetadata metadata, String key, String value) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archive.append(metadata.topic(), metadata.partition(), metadata.offset(), key, value);
+        } catch (Exception e) {
+            failed.increment();
+            logger.error("Failed to archive event {}: {}", key, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * The archive, or null when archiving is disabled
+     */
+    public EventArchive getArchive() {
+        return archive;
+    }
+    
+    public Map<String, Object> getStats() {
+        if (!enabled) {
+            return Map.of("enabled", false);
+        }
+        Map<String, Object> stats = archive.getStats();
+        stats.put("enabled", true);
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+    
+    private void enforceRetention() {
+        try {
+            int deleted = archive.enforceRetention(maxAgeMs, maxBytes);
+            if (deleted > 0) {
+                logger.info("🧹 Deleted {} archive segments past retention: {}", deleted, archive.getStats());
+            }
+        } catch (Exception e) {
+            logger.error("Event archive retention failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.poc.kafka.bulkhead;
+
+import com.poc.kafka.config.BulkheadProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-collection bulkheads for the business logic run on change events
+ * Each collection's handlers run on their own bounded lanes, so a slow collection cannot hold back
+ * the others on the shared listener threads. The listener reserves room before it does anything with
+ * an event; when a bulkhead is full or its circuit breaker is open the reservation fails and the
+ * listener backs that partition off until canAccept reports the bulkhead has recovered.
+ */
+@Component
+public class BulkheadRegistry {
+    
+    private final BulkheadProperties properties;
+    private final Map<String, CollectionBulkhead> bulkheads = new ConcurrentHashMap<>();
+    
+    public BulkheadRegistry(BulkheadProperties properties) {
+        this.properties = properties;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(CollectionBulkhead::shutdown);
+    }
+    
+    /**
+     * Reserve room for one event in the collection's bulkhead, without blocking
+     *
+     * @return the reservation, null if the bulkhead is full or its breaker is open
+     */
+    public Reservation tryReserve(String collection) {
+        if (!properties.isEnabled()) {
+            return new Reservation(collection, CircuitBreaker.Permit.CALL);
+        }
+        CircuitBreaker.Permit permit = bulkhead(collection).tryReserve();
+        return permit != null ? new Reservation(collection, permit) : null;
+    }
+    
+    /**
+     * Give back a reservation when the event will not be executed after all
+     */
+    public void cancelReservation(Reservation reservation) {
+        if (properties.isEnabled()) {
+            bulkhead(reservation.collection()).cancelReservation(reservation.permit());
+        }
+    }
+    
+    /**
+     * Run a handler in the collection's bulkhead, using a reservation made with tryReserve
+     * Handlers with the same key run one after the other in submission order.
+     *
+     * @return completes when the handler has run, exceptionally if it failed or exceeded its timeout
+     */
+    public CompletableFuture<Void> execute(Reservation reservation, String key, Runnable handler) {
+        if (properties.isEnabled()) {
+            return bulkhead(reservation.collection()).execute(key, reservation.permit(), handler);
+        }
+        try {
+            handler.run();
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Whether a partition backed off for this collection can resume
+     */
+    public boolean canAccept(String collection) {
+        return !properties.isEnabled() || bulkhead(collection).canResume();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        bulkheads.forEach((collection, bulkhead) -> stats.put(collection, bulkhead.getStats()));
+        return stats;
+    }
+    
+    private CollectionBulkhead bulkhead(String collection) {
+        return bulkheads.computeIfAbsent(collection, c -> new CollectionBulkhead(c, properties.forCollection(c)));
+    }
+    
+    /**
+     * Room for one event in a collection's bulkhead, and the circuit breaker permit it runs under
+     */
+    public record Reservation(String collection, CircuitBreaker.Permit permit) {}
+}
@@ -0,0 +1,144 @@
+package com.poc.kafka.bulkhead;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Consecutive-failure circuit breaker
+ * Opens after failureThreshold failures in a row. Once openDurationMs has passed a single trial
+ * call is allowed (half-open): success closes the breaker, failure opens it again. Calls permitted
+ * before the breaker opened may still finish meanwhile; only the trial's outcome moves it on.
+ */
+public class CircuitBreaker {
+    
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+    
+    /**
+     * What tryAcquire granted; handed back with the call's outcome or release
+     */
+    public enum Permit { CALL, TRIAL }
+    
+    private final int failureThreshold;
+    private final long openDurationMs;
+    private final ReentrantLock lock = new ReentrantLock();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMs;
+    private boolean trialInFlight;
+    private long timesOpened;
+    
+    public CircuitBreaker(int failureThreshold, long openDurationMs) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+    }
+    
+    /**
+     * Whether a call may go ahead; in half-open state only one trial call is let through
+     *
+     * @return the permit for the call, null if it may not go ahead
+     */
+    public Permit tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && System.currentTimeMillis() - openedAtMs >= openDurationMs) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            return switch (state) {
+                case CLOSED -> Permit.CALL;
+                case OPEN -> null;
+                case HALF_OPEN -> {
+                    if (trialInFlight) {
+                        yield null;
+                    }
+                    trialInFlight = true;
+                    yield Permit.TRIAL;
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Give back a permit that was acquired but not used; a released trial lets the next call try
+     */
+    public void release(Permit permit) {
+        if (permit != Permit.TRIAL) {
+            return;
+        }
+        lock.lock();
+        try {
+            trialInFlight = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void onSuccess(Permit permit) {
+        lock.lock();
+        try {
+            if (permit == Permit.TRIAL) {
+                trialInFlight = false;
+                state = State.CLOSED;
+            }
+            if (state == State.CLOSED) {
+                consecutiveFailures = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void onFailure(Permit permit) {
+        lock.lock();
+        try {
+            if (permit == Permit.TRIAL) {
+                trialInFlight = false;
+                open();
+            } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+                open();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Whether the breaker is open and not yet due for a trial call
+     */
+    public boolean isOpen() {
+        lock.lock();
+        try {
+            return state == State.OPEN && System.currentTimeMillis() - openedAtMs < openDurationMs;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getTimesOpened() {
+        lock.lock();
+        try {
+            return timesOpened;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Caller holds the lock
+     */
+    private void open() {
+        state = State.OPEN;
+        openedAtMs = System.currentTimeMillis();
+        timesOpened++;
+    }
+}
@@ -0,0 +1,251 @@
+package com.poc.kafka.bulkhead;
+
+import com.poc.kafka.config.BulkheadProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded lanes, handler deadlines and circuit breaker for one collection's handlers
+ * Each lane is a single thread, and events are assigned to lanes by key, so the events of one
+ * document run one after the other in arrival order. Room is reserved before an event is handed
+ * over, which lets the listener back off without having done anything for the event yet.
+ * A handler still running at its deadline is not interrupted - it may be halfway through a write -
+ * but its event fails with a TimeoutException and its lane is given up: the events queued behind it
+ * move, in order, to a fresh lane, and the stuck thread ends whenever the handler returns.
+ */
+class CollectionBulkhead {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CollectionBulkhead.class);
+    
+    private final String collection;
+    private final BulkheadProperties.Bulkhead settings;
+    /** Guards submitting to a lane against replacing it, so queued events keep their order */
+    private final ReentrantLock lanesLock = new ReentrantLock();
+    private final ThreadPoolExecutor[] lanes;
+    private final ScheduledThreadPoolExecutor watchdog;
+    /** Running plus queued events across all lanes; a stuck handler keeps its share until it returns */
+    private final Semaphore capacity;
+    private final CircuitBreaker circuitBreaker;
+    
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder lostLanes = new LongAdder();
+    
+    CollectionBulkhead(String collection, BulkheadProperties.Bulkhead settings) {
+        this.collection = collection;
+        this.settings = settings;
+        this.capacity = new Semaphore(settings.getQueueCapacity() + settings.getConcurrency());
+        this.circuitBreaker = new CircuitBreaker(settings.getFailureThreshold(), settings.getOpenDurationMs());
+        
+        this.lanes = new ThreadPoolExecutor[settings.getConcurrency()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = newLane(i);
+        }
+        this.watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "bulkhead-" + collection + "-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog.setRemoveOnCancelPolicy(true);
+    }
+    
+    /**
+     * Reserve room for one event if the breaker allows it and the lanes are not full
+     *
+     * @return the breaker permit the event runs under, null if the event cannot be taken now
+     */
+    CircuitBreaker.Permit tryReserve() {
+        if (!capacity.tryAcquire()) {
+            rejected.increment();
+            return null;
+        }
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            capacity.release();
+            rejected.increment();
+        }
+        return permit;
+    }
+    
+    /**
+     * Give back a reservation that will not be used
+     */
+    void cancelReservation(CircuitBreaker.Permit permit) {
+        circuitBreaker.release(permit);
+        capacity.release();
+    }
+    
+    /**
+     * Run a task on the lane of its key, using a reservation made with tryReserve
+     *
+     * @return completes when the task has run, exceptionally if it failed or missed its deadline
+     */
+    CompletableFuture<Void> execute(String key, CircuitBreaker.Permit permit, Runnable task) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        AtomicBoolean settled = new AtomicBoolean();
+        int lane = Math.floorMod(Objects.hashCode(key), lanes.length);
+        RejectedExecutionException refused = null;
+        lanesLock.lock();
+        try {
+            lanes[lane].execute(() -> run(lane, permit, task, result, settled));
+        } catch (RejectedExecutionException e) {
+            refused = e;
+        } finally {
+            lanesLock.unlock();
+        }
+        if (refused != null) {
+            cancelReservation(permit);
+            result.completeExceptionally(refused);
+        }
+        return result;
+    }
+    
+    /**
+     * Whether paused partitions can resume: breaker not open and the queue drained below the resume level
+     */
+    boolean canResume() {
+        return !circuitBreaker.isOpen() && queued() <= settings.getQueueCapacity() * settings.getResumeQueueRatio();
+    }
+    
+    void shutdown() {
+        watchdog.shutdownNow();
+        lanesLock.lock();
+        try {
+            for (ThreadPoolExecutor lane : lanes) {
+                lane.shutdown();
+            }
+        } finally {
+            lanesLock.unlock();
+        }
+    }
+    
+    Map<String, Object> getStats() {
+        int active = 0;
+        lanesLock.lock();
+        try {
+            for (ThreadPoolExecutor lane : lanes) {
+                active += lane.getActiveCount();
+            }
+        } finally {
+            lanesLock.unlock();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lanes", lanes.length);
+        stats.put("active", active);
+        stats.put("queued", queued());
+        stats.put("queueCapacity", settings.getQueueCapacity());
+        stats.put("circuitBreaker", circuitBreaker.getState().name());
+        stats.put("timesOpened", circuitBreaker.getTimesOpened());
+        stats.put("succeeded", succeeded.sum());
+        stats.put("failed", failed.sum());
+        stats.put("timedOut", timedOut.sum());
+        stats.put("lostLanes", lostLanes.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+    
+    private int queued() {
+        int queued = 0;
+        lanesLock.lock();
+        try {
+            for (ThreadPoolExecutor lane : lanes) {
+                queued += lane.getQueue().size();
+            }
+        } finally {
+            lanesLock.unlock();
+        }
+        return queued;
+    }
+    
+    private ThreadPoolExecutor newLane(int index) {
+        String threadName = "bulkhead-" + collection + "-" + (index + 1);
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    /**
+     * Whichever of the task and its deadline settles first decides the outcome
+     */
+    private void run(int lane, CircuitBreaker.Permit permit, Runnable task, CompletableFuture<Void> result,
+                     AtomicBoolean settled) {
+        ScheduledFuture<?> deadline = watchdog.schedule(() -> onTimeout(lane, permit, result, settled),
+                                                        settings.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        try {
+            task.run();
+            if (settled.compareAndSet(false, true)) {
+                succeeded.increment();
+                circuitBreaker.onSuccess(permit);
+                result.complete(null);
+            } else {
+                logger.warn("⏱️ {} handler on a given-up lane returned after all", collection);
+            }
+        } catch (RuntimeException e) {
+            if (settled.compareAndSet(false, true)) {
+                failed.increment();
+                circuitBreaker.onFailure(permit);
+                result.completeExceptionally(e);
+            } else {
+                logger.warn("⏱️ {} handler on a given-up lane failed after all: {}", collection, e.getMessage());
+            }
+        } finally {
+            deadline.cancel(false);
+            capacity.release();
+        }
+    }
+    
+    /**
+     * Fail the event and move the events queued behind it to a fresh lane
+     */
+    private void onTimeout(int lane, CircuitBreaker.Permit permit, CompletableFuture<Void> result, AtomicBoolean settled) {
+        if (!settled.compareAndSet(false, true)) {
+            return;
+        }
+        timedOut.increment();
+        circuitBreaker.onFailure(permit);
+        
+        int moved;
+        lanesLock.lock();
+        try {
+            ThreadPoolExecutor lost = lanes[lane];
+            ThreadPoolExecutor replacement = newLane(lane);
+            lost.shutdown();
+            List<Runnable> queued = new ArrayList<>();
+            lost.getQueue().drainTo(queued);
+            queued.forEach(replacement::execute);
+            lanes[lane] = replacement;
+            moved = queued.size();
+        } finally {
+            lanesLock.unlock();
+        }
+        lostLanes.increment();
+        logger.warn("⏱️ {} handler exceeded its {} ms budget; lane {} given up, {} queued events moved to a fresh lane",
+                   collection, settings.getTimeoutMs(), lane + 1, moved);
+        
+        result.completeExceptionally(new TimeoutException(
+                collection + " handler exceeded its " + settings.getTimeoutMs() + " ms budget"));
+    }
+}
@@ -0,0 +1,164 @@
+package com.poc.kafka.cache;
+
+import java.util.Arrays;
+
+/**
+ * Compact open-addressing hash set of MongoDB ObjectIds
+ * Each 12-byte id is stored as a long (first 8 bytes) plus an int (last 4 bytes) in flat arrays
+ * next to a used flag, so a slot costs 13 bytes instead of a String plus a HashMap node. The table
+ * is a power of two kept at most 60% full, which puts an entry at 22 to 43 bytes: 1M ids take
+ * 2M slots (27MB), 10M ids 16M slots (218MB), and a resize briefly holds both tables.
+ * Not thread-safe - callers guard access.
+ */
+public class ObjectIdHashSet {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /** Bytes per slot: the high long, the low int and the used flag */
+    private static final int SLOT_BYTES = Long.BYTES + Integer.BYTES + 1;
+
+    private final int maxEntries;
+    private long[] highs;
+    private int[] lows;
+    private boolean[] used;
+    private int size;
+
+    public ObjectIdHashSet(int initialCapacity, int maxEntries) {
+        this.maxEntries = maxEntries;
+        int capacity = tableSizeFor((int) Math.ceil(Math.max(16, initialCapacity) / LOAD_FACTOR));
+        this.highs = new long[capacity];
+        this.lows = new int[capacity];
+        this.used = new boolean[capacity];
+    }
+
+    /**
+     * Add a 24-character hex ObjectId
+     *
+     * @return true if the id was added, false if it was already present, invalid or the set is full
+     */
+    public boolean add(String hexId) {
+        if (!isObjectIdHex(hexId)) {
+            return false;
+        }
+        long high = Long.parseUnsignedLong(hexId, 0, 16, 16);
+        int low = Integer.parseUnsignedInt(hexId, 16, 24, 16);
+
+        int slot = findSlot(highs, lows, used, high, low);
+        if (used[slot]) {
+            return false;
+        }
+        if (size >= maxEntries) {
+            return false;
+        }
+        if (size + 1 > highs.length * LOAD_FACTOR) {
+            resize();
+            slot = findSlot(highs, lows, used, high, low);
+        }
+        highs[slot] = high;
+        lows[slot] = low;
+        used[slot] = true;
+        size++;
+        return true;
+    }
+
+    /**
+     * Check whether a 24-character hex ObjectId is present
+     */
+    public boolean contains(String hexId) {
+        if (!isObjectIdHex(hexId)) {
+            return false;
+        }
+        long high = Long.parseUnsignedLong(hexId, 0, 16, 16);
+        int low = Integer.parseUnsignedInt(hexId, 16, 24, 16);
+        return used[findSlot(highs, lows, used, high, low)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return highs.length;
+    }
+
+    /**
+     * Heap taken by the table arrays now
+     */
+    public long footprintBytes() {
+        return (long) highs.length * SLOT_BYTES;
+    }
+
+    /**
+     * Heap the table arrays grow to once the set holds maxEntries ids
+     */
+    public long maxFootprintBytes() {
+        return (long) Math.max(highs.length, tableSizeFor((int) Math.ceil(maxEntries / LOAD_FACTOR))) * SLOT_BYTES;
+    }
+
+    public boolean isFull() {
+        return size >= maxEntries;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Linear probing - returns the slot holding the id or the first free slot
+     */
+    private static int findSlot(long[] highs, int[] lows, boolean[] used, long high, int low) {
+        int mask = highs.length - 1;
+        int slot = hash(high, low) & mask;
+        while (used[slot] && (highs[slot] != high || lows[slot] != low)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldHighs = highs;
+        int[] oldLows = lows;
+        boolean[] oldUsed = used;
+
+        int capacity = oldHighs.length << 1;
+        highs = new long[capacity];
+        lows = new int[capacity];
+        used = new boolean[capacity];
+
+        for (int i = 0; i < oldHighs.length; i++) {
+            if (oldUsed[i]) {
+                int slot = findSlot(highs, lows, used, oldHighs[i], oldLows[i]);
+                highs[slot] = oldHighs[i];
+                lows[slot] = oldLows[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private static int hash(long high, int low) {
+        long h = high ^ (low * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        return n > 0 ? n : 1 << 30;
+    }
+
+    static boolean isObjectIdHex(String id) {
+        if (id == null || id.length() != 24) {
+            return false;
+        }
+        for (int i = 0; i < 24; i++) {
+            char c = id.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,305 @@
+package com.poc.kafka.cache;
+
+import com.poc.kafka.dto.CursorPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Size-bounded LRU cache of cursor pages served by the /api/data read endpoints
+ * Entries are invalidated from the change stream: an inserted document only evicts the pages whose
+ * _id range and filter it falls into. Since ObjectIds grow over time, inserts usually touch only the
+ * open last page of each query, and full pages stay cached. A time-to-live bounds staleness when the
+ * change stream is behind. Each entry carries an ETag for If-None-Match revalidation, derived from the
+ * ids and contents of the page's documents, so it is the same after a reload or a restart for as long
+ * as the page itself is.
+ */
+@Component
+public class PageResponseCache {
+    
+    private final int maxEntries;
+    private final long maxDocuments;
+    private final long ttlMs;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CollectionIndex> indexes = new HashMap<>();
+    private long documents;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    public PageResponseCache(@Value("${app.cache.responses.max-entries:10000}") int maxEntries,
+                             @Value("${app.cache.responses.max-documents:1000000}") long maxDocuments,
+                             @Value("${app.cache.responses.ttl-ms:60000}") long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.maxDocuments = maxDocuments;
+        this.ttlMs = ttlMs;
+    }
+    
+    /**
+     * Get a page from the cache or load it from MongoDB
+     *
+     * @param collection the collection the page is read from
+     * @param userId the userId filter, or null
+     * @param status the status filter, or null
+     * @param idOf extracts the _id of a page item
+     * @param versionOf hashes the fields of a page item that are returned to the client
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CachedPage<T> getOrLoad(String collection, String after, Integer limit, String userId, String status,
+                                       Supplier<CursorPage<T>> loader, Function<T, String> idOf,
+                                       ToIntFunction<T> versionOf) {
+        String key = collection + "|" + after + "|" + limit + "|" + userId + "|" + status;
+        long generation;
+        
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.createdAtMillis <= ttlMs) {
+                hits.increment();
+                return new CachedPage<>((CursorPage<T>) entry.page, entry.etag, true);
+            }
+            if (entry != null) {
+                remove(entry);
+            }
+            generation = index(collection).generation;
+        } finally {
+            lock.unlock();
+        }
+        
+        misses.increment();
+        CursorPage<T> page = loader.get();
+        List<T> items = page.getItems();
+        String lastId = items.isEmpty() ? null : idOf.apply(items.get(items.size() - 1));
+        String etag = etag(collection, page, idOf, versionOf);
+        
+        lock.lock();
+        try {
+            CollectionIndex index = index(collection);
+            // A change applied while loading may not be reflected in the page - serve it uncached
+            if (index.generation == generation && !entries.containsKey(key)) {
+                Entry entry = new Entry(key, collection, after, lastId, page.getNextCursor() != null,
+                                        userId, status, page, etag, items.size());
+                entries.put(key, entry);
+                index.add(entry);
+                documents += entry.documents;
+                evictOverflow();
+            }
+            return new CachedPage<>(page, etag, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Check an If-None-Match header against the ETag of a page
+     */
+    public boolean isNotModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || ("W/" + trimmed).equals(etag)) {
+                notModified.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Invalidate the pages an inserted or changed document belongs to
+     *
+     * @param userId the document's userId, for filtered order pages
+     * @param status the document's status, for filtered order pages
+     */
+    public void onDocumentChanged(String collection, String documentId, String userId, String status) {
+        if (documentId == null) {
+            return;
+        }
+        
+        lock.lock();
+        try {
+            CollectionIndex index = indexes.get(collection);
+            if (index == null) {
+                return;
+            }
+            index.generation++;
+            
+            List<Entry> affected = new ArrayList<>();
+            for (String key : index.openPages) {
+                Entry entry = entries.get(key);
+                if (entry != null && entry.covers(documentId, userId, status)) {
+                    affected.add(entry);
+                }
+            }
+            for (Set<String> keys : index.fullPagesByLastId.tailMap(documentId, false).values()) {
+                for (String key : keys) {
+                    Entry entry = entries.get(key);
+                    if (entry != null && entry.covers(documentId, userId, status)) {
+                        affected.add(entry);
+                    }
+                }
+            }
+            
+            for (Entry entry : affected) {
+                remove(entry);
+                invalidations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("entries", entries.size());
+            stats.put("maxEntries", maxEntries);
+            stats.put("documents", documents);
+            stats.put("maxDocuments", maxDocuments);
+            stats.put("hits", hits.sum());
+            stats.put("misses", misses.sum());
+            stats.put("notModified", notModified.sum());
+            stats.put("invalidations", invalidations.sum());
+            stats.put("evictions", evictions.sum());
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Weak ETag over the page's ids, document versions and next cursor
+     */
+    private static <T> String etag(String collection, CursorPage<T> page, Function<T, String> idOf,
+                                   ToIntFunction<T> versionOf) {
+        long hash = 1125899906842597L;
+        for (T item : page.getItems()) {
+            hash = 31 * hash + Objects.hashCode(idOf.apply(item));
+            hash = 31 * hash + versionOf.applyAsInt(item);
+        }
+        hash = 31 * hash + Objects.hashCode(page.getNextCursor());
+        return "W/\"" + collection + "-" + Long.toHexString(hash) + "\"";
+    }
+    
+    private CollectionIndex index(String collection) {
+        return indexes.computeIfAbsent(collection, c -> new CollectionIndex());
+    }
+    
+    private void evictOverflow() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || documents > maxDocuments) && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            indexes.get(entry.collection).remove(entry);
+            documents -= entry.documents;
+            evictions.increment();
+        }
+    }
+    
+    private void remove(Entry entry) {
+        if (entries.remove(entry.key) != null) {
+            indexes.get(entry.collection).remove(entry);
+            documents -= entry.documents;
+        }
+    }
+    
+    /**
+     * A page together with its ETag and whether it was served from the cache
+     */
+    public record CachedPage<T>(CursorPage<T> page, String etag, boolean cached) {}
+    
+    /**
+     * Cached pages of one collection, indexed by the _id range they cover
+     * Full pages cover (after, lastId]; open last pages cover everything after "after".
+     */
+    private static class CollectionIndex {
+        
+        private final Set<String> openPages = new HashSet<>();
+        private final TreeMap<String, Set<String>> fullPagesByLastId = new TreeMap<>();
+        private long generation;
+        
+        void add(Entry entry) {
+            if (entry.full) {
+                fullPagesByLastId.computeIfAbsent(entry.lastId, id -> new HashSet<>()).add(entry.key);
+            } else {
+                openPages.add(entry.key);
+            }
+        }
+        
+        void remove(Entry entry) {
+            if (entry.full) {
+                Set<String> keys = fullPagesByLastId.get(entry.lastId);
+                if (keys != null && keys.remove(entry.key) && keys.isEmpty()) {
+                    fullPagesByLastId.remove(entry.lastId);
+                }
+            } else {
+                openPages.remove(entry.key);
+            }
+        }
+    }
+    
+    private static class Entry {
+        
+        private final String key;
+        private final String collection;
+        private final String after;
+        private final String lastId;
+        private final boolean full;
+        private final String userId;
+        private final String status;
+        private final CursorPage<?> page;
+        private final String etag;
+        private final int documents;
+        private final long createdAtMillis = System.currentTimeMillis();
+        
+        Entry(String key, String collection, String after, String lastId, boolean full,
+              String userId, String status, CursorPage<?> page, String etag, int documents) {
+            this.key = key;
+            this.collection = collection;
+            this.after = after != null ? after.toLowerCase(Locale.ROOT) : null;
+            this.lastId = lastId;
+            this.full = full;
+            this.userId = userId;
+            this.status = status;
+            this.page = page;
+            this.etag = etag;
+            this.documents = documents;
+        }
+        
+        /**
+         * Whether a document with this _id and filter fields falls into the page's range
+         * Lower-case hex ObjectIds sort in the same order as the ObjectIds themselves.
+         */
+        boolean covers(String documentId, String documentUserId, String documentStatus) {
+            if (after != null && documentId.compareTo(after) <= 0) {
+                return false;
+            }
+            return (userId == null || Objects.equals(userId, documentUserId))
+                    && (status == null || Objects.equals(status, documentStatus));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.poc.kafka.cache;
+
+import com.poc.kafka.model.User;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Probabilistic set of known user emails, seeded from MongoDB and fed by the users CDC stream and API writes
+ * The filter is seeded from the users collection at startup, before the web server and listeners
+ * start, so an email it has not seen is not in MongoDB unless another writer stored it after the seed
+ * and its change event has not arrived yet. Such emails skip the existsByEmail pre-check; the unique
+ * index on users.email remains the authority for duplicates and rejects that rare case. Until the seed
+ * has succeeded every email counts as possibly known.
+ */
+@Component
+public class UserEmailFilter implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserEmailFilter.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final BloomFilter filter;
+    private volatile boolean seeded;
+
+    private final LongAdder notSeen = new LongAdder();
+    private final LongAdder possiblyKnown = new LongAdder();
+
+    public UserEmailFilter(MongoTemplate mongoTemplate,
+                           @Value("${app.cache.user-emails.expected-insertions:1000000}") long expectedInsertions,
+                           @Value("${app.cache.user-emails.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.mongoTemplate = mongoTemplate;
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    /**
+     * Seed the filter with every email in the users collection, reading only the email field
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long startedAtMs = System.currentTimeMillis();
+        LongAdder emails = new LongAdder();
+        Query query = new Query();
+        query.fields().include("email").exclude("_id");
+        try (Stream<Document> users = mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(User.class))) {
+            users.forEach(user -> {
+                recordEmail(user.getString("email"));
+                emails.increment();
+            });
+            seeded = true;
+            logger.info("📧 Seeded the user email filter with {} emails in {} ms",
+                       emails.sum(), System.currentTimeMillis() - startedAtMs);
+        } catch (RuntimeException e) {
+            logger.warn("⚠️ Could not seed the user email filter, every email is checked against MongoDB: {}",
+                       e.getMessage());
+        }
+    }
+
+    /**
+     * Record an email seen on the CDC stream or written by this application
+     */
+    public void recordEmail(String email) {
+        if (email != null) {
+            filter.put(email);
+        }
+    }
+
+    /**
+     * @return false if the email is in neither the seeded users nor any user recorded since, true if it possibly is
+     */
+    public boolean mightExist(String email) {
+        if (email == null) {
+            return false;
+        }
+        boolean result = !seeded || filter.mightContain(email);
+        (result ? possiblyKnown : notSeen).increment();
+        return result;
+    }
+
+    /**
+     * Filter statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "bits", filter.bitCount(),
+                "hashFunctions", filter.hashFunctions(),
+                "seeded", seeded,
+                "notSeen", notSeen.sum(),
+                "possiblyKnown", possiblyKnown.sum()
+        );
+    }
+}
@@ -0,0 +1,104 @@
+package com.poc.kafka.cache;
+
+import com.poc.kafka.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local index of known user ids, kept current from the users CDC stream
+ * Used on the order write path so most existence checks skip the MongoDB round trip.
+ * A miss is not authoritative - it falls back to MongoDB and records the id on a hit.
+ * The index takes 22 to 43 bytes of heap per id (see ObjectIdHashSet); max-entries bounds it and
+ * the bound's footprint is logged at startup.
+ */
+@Component
+public class UserExistenceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExistenceCache.class);
+
+    private final UserRepository userRepository;
+    private final ObjectIdHashSet userIds;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder fallbackHits = new LongAdder();
+
+    public UserExistenceCache(UserRepository userRepository,
+                              @Value("${app.cache.user-ids.initial-capacity:65536}") int initialCapacity,
+                              @Value("${app.cache.user-ids.max-entries:1000000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.userIds = new ObjectIdHashSet(initialCapacity, maxEntries);
+        logger.info("User id cache holds up to {} ids in at most {} MB of heap",
+                   maxEntries, userIds.maxFootprintBytes() >> 20);
+    }
+
+    /**
+     * Record a user id seen on the CDC stream or written by this application
+     */
+    public void recordUser(String userId) {
+        lock.writeLock().lock();
+        try {
+            if (!userIds.add(userId) && userIds.isFull()) {
+                logger.debug("User id cache is full, {} will be resolved from MongoDB", userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check whether a user exists, consulting the local index before MongoDB
+     */
+    public boolean exists(String userId) {
+        if (isKnown(userId)) {
+            hits.increment();
+            return true;
+        }
+
+        misses.increment();
+        boolean exists = userRepository.existsById(userId);
+        if (exists) {
+            fallbackHits.increment();
+            recordUser(userId);
+        }
+        return exists;
+    }
+
+    /**
+     * Check the local index only, without falling back to MongoDB
+     */
+    public boolean isKnown(String userId) {
+        lock.readLock().lock();
+        try {
+            return userIds.contains(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cache statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            return Map.of(
+                    "size", userIds.size(),
+                    "capacity", userIds.capacity(),
+                    "footprintBytes", userIds.footprintBytes(),
+                    "hits", hits.sum(),
+                    "misses", misses.sum(),
+                    "fallbackHits", fallbackHits.sum()
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
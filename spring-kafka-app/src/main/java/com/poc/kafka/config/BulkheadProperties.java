@@ -0,0 +1,112 @@
+package com.poc.kafka.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the per-collection bulkheads the business logic runs in
+ */
+@Component
+@ConfigurationProperties(prefix = "app.bulkhead")
+public class BulkheadProperties {
+    
+    private boolean enabled = true;
+    
+    /** Source collection name to its bulkhead settings; unlisted collections use the defaults */
+    private Map<String, Bulkhead> collections = new LinkedHashMap<>();
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public Map<String, Bulkhead> getCollections() {
+        return collections;
+    }
+    
+    public void setCollections(Map<String, Bulkhead> collections) {
+        this.collections = collections;
+    }
+    
+    public Bulkhead forCollection(String collection) {
+        return collections.getOrDefault(collection, new Bulkhead());
+    }
+    
+    /**
+     * Bulkhead settings for one source collection
+     */
+    public static class Bulkhead {
+        
+        /** Handler lanes, one thread each; events of the same document always use the same lane */
+        private int concurrency = 4;
+        
+        /** Events queued behind the running handlers, across all lanes */
+        private int queueCapacity = 1000;
+        
+        /** A handler running longer is counted as a failure (it is not interrupted) */
+        private long timeoutMs = 10000;
+        
+        /** Consecutive failures or timeouts that open the circuit breaker */
+        private int failureThreshold = 5;
+        
+        /** How long the breaker stays open before a trial event is let through */
+        private long openDurationMs = 10000;
+        
+        /** Paused partitions resume once the queue is at most this fraction full */
+        private double resumeQueueRatio = 0.5;
+        
+        public int getConcurrency() {
+            return concurrency;
+        }
+        
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+        
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+        
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+        
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+        
+        public void setTimeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+        
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+        
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+        
+        public long getOpenDurationMs() {
+            return openDurationMs;
+        }
+        
+        public void setOpenDurationMs(long openDurationMs) {
+            this.openDurationMs = openDurationMs;
+        }
+        
+        public double getResumeQueueRatio() {
+            return resumeQueueRatio;
+        }
+        
+        public void setResumeQueueRatio(double resumeQueueRatio) {
+            this.resumeQueueRatio = resumeQueueRatio;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.poc.kafka.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The MongoDB collections captured by Debezium; the CDC listener subscribes to one topic per collection
+ */
+@Component
+@ConfigurationProperties(prefix = "app.mongodb")
+public class MongoCollectionsProperties {
+    
+    /** Debezium topic prefix: topic.prefix + "." + database */
+    private String topicPrefix = "poc.poc";
+    
+    private List<String> collections = new ArrayList<>();
+    
+    public String getTopicPrefix() {
+        return topicPrefix;
+    }
+    
+    public void setTopicPrefix(String topicPrefix) {
+        this.topicPrefix = topicPrefix;
+    }
+    
+    public List<String> getCollections() {
+        return collections;
+    }
+    
+    public void setCollections(List<String> collections) {
+        this.collections = collections;
+    }
+    
+    public String topicOf(String collection) {
+        return topicPrefix + "." + collection;
+    }
+}
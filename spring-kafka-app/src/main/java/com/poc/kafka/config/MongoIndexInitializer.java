@@ -0,0 +1,50 @@
+package com.poc.kafka.config;
+
+import com.poc.kafka.model.Order;
+import com.poc.kafka.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the MongoDB indexes the write and read paths rely on at startup
+ * Runs once all singletons exist but before the listener containers and web server start, so no
+ * write reaches MongoDB without the unique email index. A failure aborts startup rather than leaving
+ * duplicate emails to be accepted.
+ */
+@Component
+public class MongoIndexInitializer implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Duplicate emails are rejected by MongoDB instead of an existsByEmail pre-check
+        ensureIndex(User.class, new Index().on("email", Sort.Direction.ASC).unique().named("email_unique"));
+        
+        // Filtered cursor pagination walks these in _id order without an in-memory sort
+        ensureIndex(Order.class, new Index().on("userId", Sort.Direction.ASC).on("_id", Sort.Direction.ASC).named("userId_id"));
+        ensureIndex(Order.class, new Index().on("status", Sort.Direction.ASC).on("_id", Sort.Direction.ASC).named("status_id"));
+    }
+
+    private void ensureIndex(Class<?> entityType, Index index) {
+        try {
+            String name = mongoTemplate.indexOps(entityType).ensureIndex(index);
+            logger.info("🗂️ Ensured index {} on {}", name, mongoTemplate.getCollectionName(entityType));
+        } catch (RuntimeException e) {
+            logger.error("❌ Failed to create index on {}: {}", mongoTemplate.getCollectionName(entityType), e.getMessage());
+            throw new IllegalStateException("Could not create index " + index.getIndexOptions().get("name")
+                    + " on " + mongoTemplate.getCollectionName(entityType), e);
+        }
+    }
+}
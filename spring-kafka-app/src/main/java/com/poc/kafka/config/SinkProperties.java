@@ -0,0 +1,121 @@
+package com.poc.kafka.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the MongoDB sink stage, per source collection
+ */
+@Component
+@ConfigurationProperties(prefix = "app.sink")
+public class SinkProperties {
+    
+    private boolean enabled = false;
+    
+    /** Source collection name to its sink settings */
+    private Map<String, CollectionSink> collections = new LinkedHashMap<>();
+    
+    private OffsetStore offsetStore = new OffsetStore();
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public Map<String, CollectionSink> getCollections() {
+        return collections;
+    }
+    
+    public void setCollections(Map<String, CollectionSink> collections) {
+        this.collections = collections;
+    }
+    
+    public OffsetStore getOffsetStore() {
+        return offsetStore;
+    }
+    
+    public void setOffsetStore(OffsetStore offsetStore) {
+        this.offsetStore = offsetStore;
+    }
+    
+    /**
+     * Kafka offsets kept in MongoDB, committed in the same transaction as the sink writes
+     */
+    public static class OffsetStore {
+        
+        private boolean enabled = false;
+        
+        /** Collection holding one document per topic partition */
+        private String collection = "sink_offsets";
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public String getCollection() {
+            return collection;
+        }
+        
+        public void setCollection(String collection) {
+            this.collection = collection;
+        }
+    }
+    
+    /**
+     * Sink settings for one source collection
+     */
+    public static class CollectionSink {
+        
+        /** Target MongoDB collection the processed events are upserted into */
+        private String target;
+        
+        private int batchSize = 500;
+        
+        private long flushIntervalMs = 200;
+        
+        /** Events buffered before the listener backs the partition off */
+        private int queueCapacity = 10000;
+        
+        public String getTarget() {
+            return target;
+        }
+        
+        public void setTarget(String target) {
+            this.target = target;
+        }
+        
+        public int getBatchSize() {
+            return batchSize;
+        }
+        
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+        
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+        
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+        
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+        
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.poc.kafka.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Thread configuration driven by spring.threads.virtual.enabled
+ * With virtual threads enabled, Spring Boot already runs Tomcat requests, MVC async (NDJSON streams)
+ * and the Kafka listener containers on virtual threads; this adds the producer completion callbacks.
+ * The app's code on these paths guards shared state with java.util.concurrent locks rather than
+ * synchronized, which would pin the carrier thread while blocked. Libraries may still pin: run with
+ * the virtual-threads profile, which sets -Djdk.tracePinnedThreads=short, to have every pinning logged.
+ */
+@Configuration
+public class ThreadingConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+    
+    public static final String PRODUCER_CALLBACK_EXECUTOR = "producerCallbackExecutor";
+    
+    /**
+     * Completion callbacks of kafkaTemplate.send run on virtual threads, off the producer I/O thread
+     */
+    @Bean(PRODUCER_CALLBACK_EXECUTOR)
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Executor virtualProducerCallbackExecutor() {
+        logger.info("🧵 Virtual thread mode enabled for HTTP, Kafka listeners and producer callbacks");
+        return new VirtualThreadTaskExecutor("producer-callback-");
+    }
+    
+    /**
+     * Completion callbacks run inline on the completing thread, as before
+     */
+    @Bean(PRODUCER_CALLBACK_EXECUTOR)
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Executor platformProducerCallbackExecutor() {
+        return Runnable::run;
+    }
+}
@@ -0,0 +1,66 @@
+package com.poc.kafka.consumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.kafka.state.ConnectorFreshnessMonitor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumes the Debezium heartbeat topics (heartbeat.topics.prefix + "." + topic.prefix)
+ * Runs in its own consumer group per instance, from the latest offset, so every instance sees
+ * every heartbeat and nothing is replayed on restart.
+ */
+@Component
+public class DebeziumHeartbeatConsumer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DebeziumHeartbeatConsumer.class);
+    
+    private final ObjectMapper objectMapper;
+    private final ConnectorFreshnessMonitor freshnessMonitor;
+    
+    public DebeziumHeartbeatConsumer(ObjectMapper objectMapper, ConnectorFreshnessMonitor freshnessMonitor) {
+        this.objectMapper = objectMapper;
+        this.freshnessMonitor = freshnessMonitor;
+    }
+    
+    @KafkaListener(
+            id = "heartbeat-listener",
+            topicPattern = "${app.heartbeat.topic-pattern:__debezium-heartbeat\\..*}",
+            groupId = "${app.heartbeat.group-id:${spring.kafka.consumer.group-id}-heartbeat-${random.uuid}}",
+            autoStartup = "${app.heartbeat.enabled:true}",
+            concurrency = "1",
+            properties = "auto.offset.reset=latest"
+    )
+    public void consumeHeartbeat(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        try {
+            JsonNode value = unwrap(record.value());
+            if (value != null && value.has("ts_ms")) {
+                JsonNode key = unwrap(record.key());
+                String connector = key != null && key.hasNonNull("serverName")
+                        ? key.get("serverName").asText()
+                        : record.topic().substring(record.topic().indexOf('.') + 1);
+                freshnessMonitor.recordHeartbeat(connector, value.get("ts_ms").asLong(), record.partition(), record.offset());
+                logger.debug("💓 Heartbeat from {}: ts_ms={}", connector, value.get("ts_ms").asLong());
+            }
+        } catch (Exception e) {
+            logger.warn("Ignoring unreadable heartbeat from {}: {}", record.topic(), e.getMessage());
+        }
+        acknowledgment.acknowledge();
+    }
+    
+    /**
+     * Parse a heartbeat key or value, unwrapping the schema envelope when schemas are enabled
+     */
+    private JsonNode unwrap(String json) throws Exception {
+        if (json == null) {
+            return null;
+        }
+        JsonNode node = objectMapper.readTree(json);
+        return node.has("schema") && node.has("payload") ? node.get("payload") : node;
+    }
+}
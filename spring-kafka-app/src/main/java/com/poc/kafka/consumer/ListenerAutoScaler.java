@@ -0,0 +1,366 @@
+package com.poc.kafka.consumer;
+
+import com.poc.kafka.service.ProducerFlowControl;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Grows and shrinks the CDC listener container with consumer lag
+ * Every evaluation interval the group's lag per topic is read from the broker. Sustained lag above
+ * scale-up-lag-per-consumer adds a consumer (up to the partition count of all its topics) and doubles
+ * max.poll.records; sustained lag below scale-down-lag-per-consumer does the reverse. Lag in between
+ * resets both streaks, and a cooldown follows every change, so the container does not flap.
+ * max.poll.records is also capped so a poll's worth of records at the measured per-record latency
+ * stays within max-batch-processing-ms. Changes take effect by restarting the container.
+ */
+@Component
+public class ListenerAutoScaler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ListenerAutoScaler.class);
+    
+    private static final int MAX_HISTORY = 50;
+    private static final long ADMIN_TIMEOUT_MS = 5000;
+    
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final KafkaAdmin kafkaAdmin;
+    private final PartitionBackpressure partitionBackpressure;
+    private final ProducerFlowControl producerFlowControl;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "listener-autoscaler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, TopicLatency> latencies = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Map<String, Object>> history = new ArrayDeque<>();
+    private AdminClient adminClient;
+    
+    // Guarded by lock
+    private int concurrency;
+    private int maxPollRecords;
+    private int highLagStreak;
+    private int lowLagStreak;
+    private long lastChangeAtMs;
+    private boolean restarting;
+    private Map<String, Object> lastEvaluation = Map.of();
+    
+    @Value("${app.kafka.scaling.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+    
+    @Value("${app.kafka.consumer.concurrency:2}")
+    private int initialConcurrency;
+    
+    @Value("${spring.kafka.consumer.properties.max.poll.records:500}")
+    private int initialMaxPollRecords;
+    
+    @Value("${app.kafka.scaling.evaluation-interval-ms:10000}")
+    private long evaluationIntervalMs;
+    
+    @Value("${app.kafka.scaling.min-concurrency:1}")
+    private int minConcurrency;
+    
+    @Value("${app.kafka.scaling.max-concurrency:8}")
+    private int maxConcurrency;
+    
+    @Value("${app.kafka.scaling.min-max-poll-records:10}")
+    private int minMaxPollRecords;
+    
+    @Value("${app.kafka.scaling.max-max-poll-records:500}")
+    private int maxMaxPollRecords;
+    
+    @Value("${app.kafka.scaling.scale-up-lag-per-consumer:1000}")
+    private long scaleUpLagPerConsumer;
+    
+    @Value("${app.kafka.scaling.scale-down-lag-per-consumer:100}")
+    private long scaleDownLagPerConsumer;
+    
+    @Value("${app.kafka.scaling.scale-up-evaluations:2}")
+    private int scaleUpEvaluations;
+    
+    @Value("${app.kafka.scaling.scale-down-evaluations:6}")
+    private int scaleDownEvaluations;
+    
+    @Value("${app.kafka.scaling.cooldown-ms:60000}")
+    private long cooldownMs;
+    
+    @Value("${app.kafka.scaling.max-batch-processing-ms:30000}")
+    private long maxBatchProcessingMs;
+    
+    public ListenerAutoScaler(KafkaListenerEndpointRegistry listenerRegistry, KafkaAdmin kafkaAdmin,
+                              PartitionBackpressure partitionBackpressure, ProducerFlowControl producerFlowControl) {
+        this.listenerRegistry = listenerRegistry;
+        this.kafkaAdmin = kafkaAdmin;
+        this.partitionBackpressure = partitionBackpressure;
+        this.producerFlowControl = producerFlowControl;
+    }
+    
+    @PostConstruct
+    public void start() {
+        concurrency = initialConcurrency;
+        maxPollRecords = initialMaxPollRecords;
+        if (!enabled) {
+            return;
+        }
+        adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        scheduler.scheduleWithFixedDelay(this::evaluate, evaluationIntervalMs, evaluationIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("📈 Listener autoscaling enabled: concurrency {}..{}, max.poll.records {}..{}",
+                   minConcurrency, maxConcurrency, minMaxPollRecords, maxMaxPollRecords);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        if (adminClient != null) {
+            adminClient.close();
+        }
+    }
+    
+    /**
+     * Record how long the listener took for one record of a topic
+     */
+    public void recordProcessed(String topic, long nanos) {
+        TopicLatency latency = latencies.computeIfAbsent(topic, t -> new TopicLatency());
+        latency.count.increment();
+        latency.totalNanos.add(nanos);
+    }
+    
+    /**
+     * Measure lag and latency, and resize the container when a streak completes
+     */
+    void evaluate() {
+        try {
+            Map<String, TopicLag> lagByTopic = readLag();
+            Map<String, Double> latencyMsByTopic = drainLatencies();
+            long totalLag = lagByTopic.values().stream().mapToLong(TopicLag::lag).sum();
+            // One container consumes every subscribed topic, so its partitions are shared out across all of them
+            int partitionLimit = lagByTopic.isEmpty()
+                    ? maxConcurrency
+                    : lagByTopic.values().stream().mapToInt(TopicLag::partitions).sum();
+            double slowestLatencyMs = latencyMsByTopic.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+            
+            lock.lock();
+            try {
+                long lagPerConsumer = totalLag / Math.max(1, concurrency);
+                if (lagPerConsumer > scaleUpLagPerConsumer) {
+                    highLagStreak++;
+                    lowLagStreak = 0;
+                } else if (lagPerConsumer < scaleDownLagPerConsumer) {
+                    lowLagStreak++;
+                    highLagStreak = 0;
+                } else {
+                    highLagStreak = 0;
+                    lowLagStreak = 0;
+                }
+                
+                lastEvaluation = evaluationMap(lagByTopic, latencyMsByTopic, totalLag, lagPerConsumer);
+                
+                if (restarting || System.currentTimeMillis() - lastChangeAtMs < cooldownMs
+                        || partitionBackpressure.hasPausedPartitions() || producerFlowControl.isPaused()) {
+                    // Adding consumers doesn't help while the handlers or the producer are the bottleneck
+                    return;
+                }
+                
+                int upperConcurrency = Math.max(minConcurrency, Math.min(maxConcurrency, partitionLimit));
+                int targetConcurrency = concurrency;
+                int targetMaxPollRecords = maxPollRecords;
+                String reason = null;
+                if (highLagStreak >= scaleUpEvaluations) {
+                    targetConcurrency = Math.min(upperConcurrency, concurrency + 1);
+                    targetMaxPollRecords = Math.min(maxMaxPollRecords, maxPollRecords * 2);
+                    reason = "lag " + lagPerConsumer + " per consumer above " + scaleUpLagPerConsumer;
+                } else if (lowLagStreak >= scaleDownEvaluations) {
+                    targetConcurrency = Math.max(minConcurrency, concurrency - 1);
+                    targetMaxPollRecords = Math.max(minMaxPollRecords, maxPollRecords / 2);
+                    reason = "lag " + lagPerConsumer + " per consumer below " + scaleDownLagPerConsumer;
+                }
+                
+                // Keep one poll's worth of records within the batch processing budget
+                if (slowestLatencyMs > 0) {
+                    int latencyCap = (int) Math.max(minMaxPollRecords, maxBatchProcessingMs / slowestLatencyMs);
+                    if (targetMaxPollRecords > latencyCap) {
+                        targetMaxPollRecords = latencyCap;
+                        reason = reason != null ? reason : String.format("record latency %.1f ms", slowestLatencyMs);
+                    }
+                }
+                
+                if (targetConcurrency != concurrency || targetMaxPollRecords != maxPollRecords) {
+                    apply(targetConcurrency, targetMaxPollRecords, totalLag, reason);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Listener autoscaling evaluation failed: {}", e.getMessage());
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", enabled);
+            stats.put("concurrency", concurrency);
+            stats.put("maxPollRecords", maxPollRecords);
+            stats.put("highLagStreak", highLagStreak);
+            stats.put("lowLagStreak", lowLagStreak);
+            stats.put("restarting", restarting);
+            stats.put("lastChangeAt", lastChangeAtMs > 0 ? Instant.ofEpochMilli(lastChangeAtMs).toString() : null);
+            stats.put("lastEvaluation", lastEvaluation);
+            stats.put("changes", new ArrayList<>(history));
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Restart the container with the new settings; called with the lock held
+     */
+    private void apply(int targetConcurrency, int targetMaxPollRecords, long totalLag, String reason) {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(MongoDbChangeEventConsumer.LISTENER_ID);
+        if (!(container instanceof ConcurrentMessageListenerContainer<?, ?> concurrentContainer)) {
+            return;
+        }
+        
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("at", Instant.now().toString());
+        change.put("concurrency", Map.of("from", concurrency, "to", targetConcurrency));
+        change.put("maxPollRecords", Map.of("from", maxPollRecords, "to", targetMaxPollRecords));
+        change.put("totalLag", totalLag);
+        change.put("reason", reason);
+        history.addLast(change);
+        if (history.size() > MAX_HISTORY) {
+            history.removeFirst();
+        }
+        logger.info("📈 Resizing listener: concurrency {} -> {}, max.poll.records {} -> {} ({})",
+                   concurrency, targetConcurrency, maxPollRecords, targetMaxPollRecords, reason);
+        
+        concurrency = targetConcurrency;
+        maxPollRecords = targetMaxPollRecords;
+        highLagStreak = 0;
+        lowLagStreak = 0;
+        lastChangeAtMs = System.currentTimeMillis();
+        restarting = true;
+        
+        // Asynchronous stop, so the listener threads can finish their current records
+        concurrentContainer.stop(() -> {
+            concurrentContainer.setConcurrency(targetConcurrency);
+            concurrentContainer.getContainerProperties().getKafkaConsumerProperties()
+                    .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(targetMaxPollRecords));
+            concurrentContainer.start();
+            lock.lock();
+            try {
+                restarting = false;
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+    
+    /**
+     * Committed-offset lag of the consumer group and partition count, per topic
+     */
+    private Map<String, TopicLag> readLag() throws Exception {
+        Map<TopicPartition, OffsetAndMetadata> committed = adminClient.listConsumerGroupOffsets(groupId)
+                .partitionsToOffsetAndMetadata().get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (committed.isEmpty()) {
+            return Map.of();
+        }
+        
+        Map<TopicPartition, OffsetSpec> latestSpec = committed.keySet().stream()
+                .collect(Collectors.toMap(Function.identity(), partition -> OffsetSpec.latest()));
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> latest = adminClient.listOffsets(latestSpec)
+                .all().get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        Map<String, Integer> partitionCounts = new HashMap<>();
+        adminClient.describeTopics(committed.keySet().stream().map(TopicPartition::topic).distinct().toList())
+                .allTopicNames().get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .forEach((topic, description) -> partitionCounts.put(topic, description.partitions().size()));
+        
+        Map<String, Long> lagByTopic = new HashMap<>();
+        committed.forEach((partition, offset) -> {
+            ListOffsetsResult.ListOffsetsResultInfo end = latest.get(partition);
+            if (offset != null && end != null) {
+                lagByTopic.merge(partition.topic(), Math.max(0, end.offset() - offset.offset()), Long::sum);
+            }
+        });
+        
+        Map<String, TopicLag> result = new TreeMap<>();
+        lagByTopic.forEach((topic, lag) -> result.put(topic, new TopicLag(lag, partitionCounts.getOrDefault(topic, 1))));
+        return result;
+    }
+    
+    /**
+     * Average per-record latency since the last evaluation, per topic
+     */
+    private Map<String, Double> drainLatencies() {
+        Map<String, Double> result = new TreeMap<>();
+        latencies.forEach((topic, latency) -> {
+            long count = latency.count.sumThenReset();
+            long totalNanos = latency.totalNanos.sumThenReset();
+            if (count > 0) {
+                result.put(topic, totalNanos / (double) count / 1_000_000.0);
+            }
+        });
+        return result;
+    }
+    
+    private static Map<String, Object> evaluationMap(Map<String, TopicLag> lagByTopic, Map<String, Double> latencyMsByTopic,
+                                                     long totalLag, long lagPerConsumer) {
+        Map<String, Object> topics = new TreeMap<>();
+        lagByTopic.forEach((topic, lag) -> topics.put(topic, new LinkedHashMap<>(Map.of(
+                "lag", lag.lag(), "partitions", lag.partitions()))));
+        latencyMsByTopic.forEach((topic, latencyMs) -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> topicStats = (Map<String, Object>) topics.computeIfAbsent(topic, t -> new LinkedHashMap<>());
+            topicStats.put("avgLatencyMs", Math.round(latencyMs * 100) / 100.0);
+        });
+        
+        Map<String, Object> evaluation = new LinkedHashMap<>();
+        evaluation.put("at", Instant.now().toString());
+        evaluation.put("totalLag", totalLag);
+        evaluation.put("lagPerConsumer", lagPerConsumer);
+        evaluation.put("topics", topics);
+        return evaluation;
+    }
+    
+    private record TopicLag(long lag, int partitions) {}
+    
+    private static class TopicLatency {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+    }
+}
@@ -1,42 +1,107 @@
 package com.poc.kafka.consumer;
 
+import com.poc.kafka.bulkhead.BulkheadRegistry;
+import com.poc.kafka.handler.CollectionHandlerRegistry;
 import com.poc.kafka.model.ProcessedChangeEvent;
 import com.poc.kafka.service.ChangeEventProcessor;
 import com.poc.kafka.service.ChangeEventProducer;
+import com.poc.kafka.sink.MongoSinkService;
+import com.poc.kafka.sink.SinkOffsetStore;
+import com.poc.kafka.state.ConnectorFreshnessMonitor;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Kafka consumer for MongoDB change events from Debezium
  */
 @Component
-public class MongoDbChangeEventConsumer {
+public class MongoDbChangeEventConsumer implements ConsumerSeekAware {
     
     private static final Logger logger = LoggerFactory.getLogger(MongoDbChangeEventConsumer.class);
     
+    /** Listener container id, used to pause and resume its partitions */
+    public static final String LISTENER_ID = "cdc-listener";
+    
     private final ChangeEventProcessor changeEventProcessor;
     private final ChangeEventProducer changeEventProducer;
+    private final CollectionHandlerRegistry collectionHandlerRegistry;
+    private final MongoSinkService mongoSinkService;
+    private final SinkOffsetStore sinkOffsetStore;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final ListenerAutoScaler listenerAutoScaler;
+    private final ConnectorFreshnessMonitor connectorFreshnessMonitor;
+    private final RecordCompletionTracker recordCompletionTracker;
+    private final PartitionBackpressure partitionBackpressure;
+    private final RetryTopicRouter retryTopicRouter;
     
     public MongoDbChangeEventConsumer(ChangeEventProcessor changeEventProcessor, 
-                                    ChangeEventProducer changeEventProducer) {
+                                    ChangeEventProducer changeEventProducer,
+                                    CollectionHandlerRegistry collectionHandlerRegistry,
+                                    MongoSinkService mongoSinkService,
+                                    SinkOffsetStore sinkOffsetStore,
+                                    BulkheadRegistry bulkheadRegistry,
+                                    ListenerAutoScaler listenerAutoScaler,
+                                    ConnectorFreshnessMonitor connectorFreshnessMonitor,
+                                    RecordCompletionTracker recordCompletionTracker,
+                                    PartitionBackpressure partitionBackpressure,
+                                    RetryTopicRouter retryTopicRouter) {
         this.changeEventProcessor = changeEventProcessor;
         this.changeEventProducer = changeEventProducer;
+        this.collectionHandlerRegistry = collectionHandlerRegistry;
+        this.mongoSinkService = mongoSinkService;
+        this.sinkOffsetStore = sinkOffsetStore;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.listenerAutoScaler = listenerAutoScaler;
+        this.connectorFreshnessMonitor = connectorFreshnessMonitor;
+        this.recordCompletionTracker = recordCompletionTracker;
+        this.partitionBackpressure = partitionBackpressure;
+        this.retryTopicRouter = retryTopicRouter;
     }
     
     /**
-     * Listen to MongoDB change events from multiple topics using topic pattern
+     * Listen to MongoDB change events from the CDC topics, one per collection in app.mongodb.collections
+     * A record that fails to decode, or whose handler fails, is routed to tiered retry topics (one per
+     * delay) consumed by their own containers, so the main partitions keep flowing; after the last
+     * attempt it goes to the dead-letter topic with the original record and the error in its headers.
+     * A record is acknowledged only after its handler has run, in offset order per partition; when
+     * the collection's bulkhead is saturated the partition is paused and rewound to the record instead
+     * of blocking this thread.
      */
+    @RetryableTopic(
+            attempts = "${app.kafka.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${app.kafka.retry.initial-delay-ms:1000}",
+                    multiplierExpression = "${app.kafka.retry.multiplier:4}",
+                    maxDelayExpression = "${app.kafka.retry.max-delay-ms:60000}"),
+            numPartitions = "${app.kafka.retry.partitions:1}",
+            kafkaTemplate = "kafkaTemplate",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            retryTopicSuffix = "-retry",
+            dltTopicSuffix = "-dlt"
+    )
     @KafkaListener(
-            topicPattern = "poc\\.poc\\.(users|orders)",
+            id = LISTENER_ID,
+            topics = "#{@collectionHandlerRegistry.topics()}",
             groupId = "${spring.kafka.consumer.group-id}",
             concurrency = "${app.kafka.consumer.concurrency:2}"
     )
@@ -46,30 +111,77 @@ public class MongoDbChangeEventConsumer {
             @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
             @Header(KafkaHeaders.OFFSET) long offset,
             ConsumerRecord<String, String> record,
-            Acknowledgment acknowledgment) {
+            Acknowledgment acknowledgment,
+            Consumer<?, ?> consumer) {
         
+        // Fetched in the same poll as a record this partition was rewound to
+        if (partitionBackpressure.skip(record)) {
+            return;
+        }
+        
+        long startNanos = System.nanoTime();
+        // Records on a retry topic are processed as if read from the CDC topic they came from
+        String sourceTopic = Objects.requireNonNullElse(headerValue(record, KafkaHeaders.ORIGINAL_TOPIC), topic);
+        BulkheadRegistry.Reservation reservation = null;
+        RecordCompletion completion = null;
         try {
             // Get key and value from ConsumerRecord
             String key = record.key();
             String value = record.value();
             
-            logger.info("🔔 Received message: Topic={}, Partition={}, Offset={}, Key={}", 
-                       topic, partition, offset, key);
-            logger.info("📄 Message payload: {}", message);
-            logger.info("📄 Record value: {}", value);
+            // Guarded: the varargs array and boxed offsets are allocated even when INFO is off
+            if (logger.isInfoEnabled()) {
+                logger.info("🔔 Received message: Topic={}, Partition={}, Offset={}, Key={}", 
+                           topic, partition, offset, key);
+                logger.info("📄 Message payload: {}", message);
+                logger.info("📄 Record value: {}", value);
+            }
             
             // Use the record value instead of the @Payload parameter
             String actualMessage = value != null ? value : message;
             
-            // Process the change event
-            ProcessedChangeEvent processedEvent = changeEventProcessor.processChangeEvent(actualMessage, topic);
+            // Process the change event; a record that cannot be decoded throws and is routed below
+            ProcessedChangeEvent processedEvent = changeEventProcessor.processChangeEvent(actualMessage, sourceTopic);
+            
+            // Reserve room for the handler before anything is published or written, so a saturated
+            // bulkhead backs the partition off with nothing to undo or repeat
+            String collection = processedEvent != null ? processedEvent.getCollection() : null;
+            if (collection != null) {
+                reservation = bulkheadRegistry.tryReserve(collection);
+                if (reservation == null) {
+                    partitionBackpressure.rewind(record, consumer, () -> bulkheadRegistry.canAccept(collection),
+                                                 collection + " bulkhead is saturated");
+                    return;
+                }
+            }
+            completion = recordCompletionTracker.begin(record, acknowledgment);
             
             if (processedEvent != null) {
-                // Log detailed information about the processed event
-                changeEventProcessor.logChangeEventDetails(processedEvent);
-                
-                // Publish the processed event to downstream topic
-                changeEventProducer.publishChangeEvent(processedEvent);
+                // A retry of a failed sink write: the event was already published and handled
+                boolean sinkRetry = RetryTopicRouter.isSinkRetry(record);
+                // A retry of a failed handler: the event was already published and sunk
+                if (!RetryTopicRouter.isHandlerRetry(record)) {
+                    // Queue the event for the collection's MongoDB sink first: the upsert is idempotent, and a
+                    // full queue backs the partition off before anything is published. The record is
+                    // acknowledged only once the event is in MongoDB.
+                    if (mongoSinkService.hasSink(collection) && !mongoSinkService.write(record, processedEvent, completion)) {
+                        completion.cancel();
+                        completion = null;
+                        bulkheadRegistry.cancelReservation(reservation);
+                        reservation = null;
+                        partitionBackpressure.rewind(record, consumer, () -> mongoSinkService.canAccept(collection),
+                                                     collection + " MongoDB sink is saturated");
+                        return;
+                    }
+                    
+                    if (!sinkRetry) {
+                        // Log detailed information about the processed event
+                        changeEventProcessor.logChangeEventDetails(processedEvent);
+                        
+                        // Publish the processed event to downstream topic
+                        changeEventProducer.publishChangeEvent(processedEvent);
+                    }
+                }
                 
                 // Here you can add additional processing logic:
                 // - Send to external APIs
@@ -78,113 +190,126 @@ public class MongoDbChangeEventConsumer {
                 // - Send notifications
                 // - etc.
                 
-                handleBusinessLogic(processedEvent);
+                if (sinkRetry) {
+                    bulkheadRegistry.cancelReservation(reservation);
+                } else {
+                    // Run the handlers in the collection's bulkhead so a slow collection doesn't hold
+                    // back the others on this listener thread; events of one document stay in order.
+                    // A handler that fails or misses its deadline sends the record to the retry topics.
+                    int handlerSlot = collectionHandlerRegistry.slotForTopic(sourceTopic);
+                    RecordCompletion handled = completion;
+                    completion.await(bulkheadRegistry.execute(reservation, processedEvent.getDocumentId(),
+                            () -> handleBusinessLogic(handlerSlot, processedEvent, handled))
+                            .whenComplete((result, failure) -> {
+                                if (failure != null) {
+                                    retryTopicRouter.routeHandlerFailure(record, failure);
+                                }
+                            }));
+                }
+                reservation = null;
+                
+                connectorFreshnessMonitor.recordDataEvent(sourceTopic, processedEvent.getTimestamp());
                 
                 logger.info("✅ Successfully processed change event from {}", topic);
             } else {
                 logger.debug("⏭️ Skipped processing for message from topic: {}", topic);
             }
             
-            // Manually acknowledge the message after successful processing
-            acknowledgment.acknowledge();
+            // Acknowledged once the sink write and the handler have finished too
+            completion.release();
+            listenerAutoScaler.recordProcessed(topic, System.nanoTime() - startNanos);
             
         } catch (Exception e) {
+            if (reservation != null) {
+                bulkheadRegistry.cancelReservation(reservation);
+            }
             logger.error("❌ Error processing message from topic {}: {}", topic, e.getMessage(), e);
-            // For now, we'll acknowledge to avoid reprocessing the same message
-            acknowledgment.acknowledge();
+            routeFailure(record, consumer, acknowledgment, completion, e);
         }
     }
     
     /**
-     * Handle business-specific logic for processed change events
-     * This is where you would implement your specific business requirements
+     * Send a record that failed on this thread to the next retry topic or the DLT
+     * The record stays tracked until it is published there, so its offset is never committed past
+     * earlier records still in flight. If the retry topic cannot be reached the partition is rewound
+     * to the record and it is tried again.
      */
-    private void handleBusinessLogic(ProcessedChangeEvent event) {
+    private void routeFailure(ConsumerRecord<String, String> record, Consumer<?, ?> consumer,
+                              Acknowledgment acknowledgment, RecordCompletion completion, Exception failure) {
+        RecordCompletion tracked = completion != null ? completion : recordCompletionTracker.begin(record, acknowledgment);
         try {
-            switch (event.getCollection()) {
-                case "users":
-                    handleUserEvent(event);
-                    break;
-                case "orders":
-                    handleOrderEvent(event);
-                    break;
-                default:
-                    logger.info("📝 Processed generic event for collection: {}", event.getCollection());
-            }
-        } catch (Exception e) {
-            logger.error("Error in business logic for event {}: {}", event.getDocumentId(), e.getMessage(), e);
+            retryTopicRouter.route(record, failure);
+            tracked.release();
+        } catch (RuntimeException e) {
+            tracked.cancel();
+            partitionBackpressure.rewind(record, consumer, () -> true, "retry topic unavailable: " + e.getMessage());
         }
     }
     
     /**
-     * Handle user-specific events
+     * Records that failed every retry; the DLT keeps the original record and error headers for inspection
      */
-    private void handleUserEvent(ProcessedChangeEvent event) {
-        logger.info("👤 Processing user event: ID={}, Type={}", 
-                   event.getDocumentId(), event.getEventType());
-        
-        // Example business logic for user events:
-        // - Send welcome email for new users
-        // - Update user analytics
-        // - Sync with external CRM systems
-        // - etc.
-        
-        if ("INSERT".equals(event.getEventType())) {
-            // Log user details
-            if (event.getData() != null) {
-                String name = (String) event.getData().get("name");
-                String email = (String) event.getData().get("email");
-                Object age = event.getData().get("age");
-                
-                logger.info("🆕 New user created: ID={}, Name='{}', Email='{}', Age={}", 
-                           event.getDocumentId(), name, email, age);
-                logger.info("📋 Full user data: {}", formatUserData(event.getData()));
-            } else {
-                logger.info("🆕 New user created: {}", event.getDocumentId());
-            }
-            // Add your new user logic here
-        }
+    @DltHandler
+    public void handleDeadLetter(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        logger.error("☠️ Dead-lettered record: Topic={}, OriginalTopic={}, OriginalOffset={}, Key={}, Error={}",
+                    record.topic(),
+                    headerValue(record, KafkaHeaders.ORIGINAL_TOPIC),
+                    headerValue(record, KafkaHeaders.ORIGINAL_OFFSET),
+                    record.key(),
+                    headerValue(record, KafkaHeaders.EXCEPTION_MESSAGE));
+        acknowledgment.acknowledge();
     }
     
     /**
-     * Handle order-specific events
+     * Resume from the offsets committed with the MongoDB sink writes, when they are stored there
      */
-    private void handleOrderEvent(ProcessedChangeEvent event) {
-        logger.info("🛒 Processing order event: ID={}, Type={}", 
-                   event.getDocumentId(), event.getEventType());
-        
-        // Example business logic for order events:
-        // - Update inventory
-        // - Send order confirmation
-        // - Trigger fulfillment workflow
-        // - Update analytics
-        // - etc.
-        
-        if ("INSERT".equals(event.getEventType())) {
-            logger.info("🆕 New order created: {}", event.getDocumentId());
-            // Add your new order logic here
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        if (!sinkOffsetStore.isEnabled()) {
+            return;
         }
+        sinkOffsetStore.findOffsets(assignments.keySet()).forEach((partition, offset) -> {
+            logger.info("⏩ Seeking {} to offset {} stored with the MongoDB sink", partition, offset);
+            callback.seek(partition.topic(), partition.partition(), offset);
+        });
     }
     
     /**
-     * Format user data for logging (hide sensitive info if needed)
+     * Drop the backpressure state of partitions moving to another consumer
+     * Their in-flight records, including queued sink writes, are awaited by the RecordCompletionTracker.
      */
-    private String formatUserData(Map<String, Object> userData) {
-        if (userData == null) {
-            return "null";
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        partitionBackpressure.forget(partitions);
+    }
+    
+    /**
+     * Last value of a header as a string, null if absent
+     * Offset headers are 8-byte longs, everything else used here is UTF-8 text
+     */
+    private static String headerValue(ConsumerRecord<String, String> record, String name) {
+        org.apache.kafka.common.header.Header header = record.headers().lastHeader(name);
+        if (header == null) {
+            return null;
         }
-        
-        // Create a copy to avoid modifying original data
-        Map<String, Object> logData = new java.util.HashMap<>(userData);
-        
-        // Remove or mask sensitive fields if needed
-        // logData.put("password", "***");
-        // logData.remove("ssn");
-        
+        if (KafkaHeaders.ORIGINAL_OFFSET.equals(name) && header.value().length == Long.BYTES) {
+            return String.valueOf(ByteBuffer.wrap(header.value()).getLong());
+        }
+        return new String(header.value(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Handle business-specific logic for processed change events
+     * Implement it as a CollectionChangeHandler bean for the collection. Runs in the collection's
+     * bulkhead; a failure is rethrown so the bulkhead's circuit breaker counts it, and the record is
+     * then routed to the retry topics.
+     */
+    private void handleBusinessLogic(int handlerSlot, ProcessedChangeEvent event, RecordCompletion completion) {
         try {
-            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(logData);
-        } catch (Exception e) {
-            return userData.toString();
+            collectionHandlerRegistry.handle(handlerSlot, event, completion);
+        } catch (RuntimeException e) {
+            logger.error("Error in business logic for event {}: {}", event.getDocumentId(), e.getMessage(), e);
+            throw e;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+package com.poc.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Backs a partition off when the record at hand cannot be taken yet
+ * Instead of blocking the listener thread, the partition is paused and its consumer is positioned back
+ * on the record, which is consumed again once the stage that refused it can take more. Records of the
+ * partition already fetched in the same poll are skipped until the record comes round again.
+ */
+@Component
+public class PartitionBackpressure {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PartitionBackpressure.class);
+    
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    /** Partition to the offset it was positioned back on */
+    private final Map<TopicPartition, Long> rewound = new ConcurrentHashMap<>();
+    /** Paused partition to the check that lets it resume */
+    private final Map<TopicPartition, BooleanSupplier> paused = new ConcurrentHashMap<>();
+    
+    public PartitionBackpressure(KafkaListenerEndpointRegistry listenerRegistry) {
+        this.listenerRegistry = listenerRegistry;
+    }
+    
+    /**
+     * Whether the record is one of those fetched after a record its partition was positioned back on
+     * Called on the listener thread before anything else is done with the record.
+     */
+    public boolean skip(ConsumerRecord<?, ?> record) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        Long offset = rewound.get(partition);
+        if (offset == null) {
+            return false;
+        }
+        if (record.offset() > offset) {
+            return true;
+        }
+        rewound.remove(partition);
+        return false;
+    }
+    
+    /**
+     * Pause the record's partition and position its consumer back on the record
+     * Called on the listener thread, which owns the consumer.
+     *
+     * @param canResume checked every resume-check interval; the partition resumes once it returns true
+     */
+    public void rewind(ConsumerRecord<?, ?> record, Consumer<?, ?> consumer, BooleanSupplier canResume, String reason) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        rewound.put(partition, record.offset());
+        consumer.seek(partition, record.offset());
+        if (paused.put(partition, canResume) == null) {
+            containersOf(partition).forEach(container -> container.pausePartition(partition));
+            logger.warn("⏸️ Paused {} at offset {}: {}", partition, record.offset(), reason);
+        }
+    }
+    
+    /**
+     * Resume the partitions whose refusing stage has recovered
+     */
+    @Scheduled(fixedDelayString = "${app.kafka.consumer.resume-check-interval-ms:500}")
+    public void resumeRecovered() {
+        paused.forEach((partition, canResume) -> {
+            if (canResume.getAsBoolean() && paused.remove(partition, canResume)) {
+                containersOf(partition).forEach(container -> container.resumePartition(partition));
+                logger.info("▶️ Resumed {}", partition);
+            }
+        });
+    }
+    
+    /**
+     * Whether any partition is currently paused by backpressure
+     */
+    public boolean hasPausedPartitions() {
+        return !paused.isEmpty();
+    }
+    
+    /**
+     * Drop the state of partitions that moved to another consumer
+     * Their pause is lifted too, so they are not left paused if they come back to this one.
+     */
+    public void forget(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            rewound.remove(partition);
+            if (paused.remove(partition) != null) {
+                allContainers().forEach(container -> container.resumePartition(partition));
+            }
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        paused.keySet().forEach(partition -> stats.put(partition.toString(), rewound.getOrDefault(partition, -1L)));
+        return stats;
+    }
+    
+    private List<MessageListenerContainer> containersOf(TopicPartition partition) {
+        return allContainers().stream()
+                .filter(container -> {
+                    Collection<TopicPartition> assigned = container.getAssignedPartitions();
+                    return assigned != null && assigned.contains(partition);
+                })
+                .toList();
+    }
+    
+    /**
+     * Single-consumer containers; a concurrent container's children each own some of its partitions
+     */
+    private List<MessageListenerContainer> allContainers() {
+        List<MessageListenerContainer> containers = new ArrayList<>();
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            if (container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent) {
+                containers.addAll(concurrent.getContainers());
+            } else {
+                containers.add(container);
+            }
+        }
+        return containers;
+    }
+}
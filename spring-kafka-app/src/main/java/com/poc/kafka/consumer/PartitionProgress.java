@@ -0,0 +1,156 @@
+package com.poc.kafka.consumer;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-flight records of one partition in offset order
+ * Only the end of the leading run of complete records is acknowledged, so the committed offset never
+ * passes a record whose work is still running or was lost.
+ */
+final class PartitionProgress {
+    
+    private final TopicPartition partition;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    
+    // Guarded by lock
+    private final Deque<RecordCompletion> inFlight = new ArrayDeque<>();
+    private boolean abandoned;
+    
+    PartitionProgress(TopicPartition partition) {
+        this.partition = partition;
+    }
+    
+    TopicPartition getPartition() {
+        return partition;
+    }
+    
+    RecordCompletion begin(long offset, Acknowledgment acknowledgment) {
+        RecordCompletion completion = new RecordCompletion(this, offset, acknowledgment);
+        lock.lock();
+        try {
+            if (!abandoned) {
+                inFlight.addLast(completion);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return completion;
+    }
+    
+    void remove(RecordCompletion completion) {
+        lock.lock();
+        try {
+            if (inFlight.remove(completion)) {
+                acknowledgeCompleted();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    void advance() {
+        lock.lock();
+        try {
+            acknowledgeCompleted();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Offset to resume from once the given sink writes are persisted
+     * Walks the in-flight records in offset order and stops at the first one that is neither complete
+     * nor waiting only for one of those writes, so the offset never passes unfinished work.
+     *
+     * @return the offset of the first record still outstanding after the writes, -1 if the partition was revoked
+     */
+    long resumeOffset(Set<RecordCompletion> sinking) {
+        lock.lock();
+        try {
+            if (abandoned) {
+                return -1;
+            }
+            long next = -1;
+            for (RecordCompletion completion : inFlight) {
+                boolean persisted = completion.isComplete()
+                        || (sinking.contains(completion) && completion.pendingParts() == 1);
+                if (!persisted) {
+                    return completion.getOffset();
+                }
+                next = completion.getOffset() + 1;
+            }
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Wait until nothing is in flight
+     *
+     * @return false if records were still in flight at the deadline
+     */
+    boolean awaitDrained(long timeoutMs) throws InterruptedException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (!inFlight.isEmpty()) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = drained.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Stop acknowledging: the partition has moved to another consumer, which will consume the rest again
+     */
+    void abandon() {
+        lock.lock();
+        try {
+            abandoned = true;
+            inFlight.clear();
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    int size() {
+        lock.lock();
+        try {
+            return inFlight.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Acknowledging the last record of the complete run commits the offsets of all of them
+     */
+    private void acknowledgeCompleted() {
+        RecordCompletion last = null;
+        while (!inFlight.isEmpty() && inFlight.peekFirst().isComplete()) {
+            last = inFlight.pollFirst();
+        }
+        if (last != null) {
+            last.getAcknowledgment().acknowledge();
+        }
+        if (inFlight.isEmpty()) {
+            drained.signalAll();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.poc.kafka.consumer;
+
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outstanding work for one consumed record
+ * The listener holds one part until it returns and adds a part for each asynchronous step it hands
+ * the record to. When the last part finishes the record is complete, and its partition's offset is
+ * acknowledged once every earlier record of the partition is complete too.
+ */
+public final class RecordCompletion {
+    
+    private final PartitionProgress progress;
+    private final long offset;
+    private final Acknowledgment acknowledgment;
+    /** The listener's own part is counted from the start */
+    private final AtomicInteger pendingParts = new AtomicInteger(1);
+    private volatile boolean complete;
+    
+    RecordCompletion(PartitionProgress progress, long offset, Acknowledgment acknowledgment) {
+        this.progress = progress;
+        this.offset = offset;
+        this.acknowledgment = acknowledgment;
+    }
+    
+    public long getOffset() {
+        return offset;
+    }
+    
+    /**
+     * Keep the record outstanding until the step completes, successfully or not
+     * Must be called while the record is still outstanding: before release, or from a step it awaits.
+     */
+    public void await(CompletableFuture<?> step) {
+        pendingParts.incrementAndGet();
+        step.whenComplete((result, failure) -> partDone());
+    }
+    
+    /**
+     * The listener is done with the record; it completes once the awaited steps have
+     */
+    public void release() {
+        partDone();
+    }
+    
+    /**
+     * Forget the record without acknowledging it, because it will be consumed again
+     */
+    public void cancel() {
+        progress.remove(this);
+    }
+    
+    PartitionProgress getProgress() {
+        return progress;
+    }
+    
+    int pendingParts() {
+        return pendingParts.get();
+    }
+    
+    Acknowledgment getAcknowledgment() {
+        return acknowledgment;
+    }
+    
+    boolean isComplete() {
+        return complete;
+    }
+    
+    private void partDone() {
+        if (pendingParts.decrementAndGet() == 0) {
+            complete = true;
+            progress.advance();
+        }
+    }
+}
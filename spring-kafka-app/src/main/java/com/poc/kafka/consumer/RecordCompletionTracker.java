@@ -0,0 +1,113 @@
+package com.poc.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acknowledges consumed records only once the work they were handed to has finished
+ * Records of a partition are acknowledged in offset order, so a record whose handler is still queued
+ * or running is consumed again after a crash or rebalance instead of being lost. Registered with the
+ * listener containers as their rebalance listener: before revoked partitions are committed, their
+ * in-flight records get up to drain-timeout-ms to finish.
+ */
+@Component
+public class RecordCompletionTracker implements ConsumerAwareRebalanceListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RecordCompletionTracker.class);
+    
+    private final Map<TopicPartition, PartitionProgress> partitions = new ConcurrentHashMap<>();
+    
+    @Value("${app.kafka.consumer.drain-timeout-ms:30000}")
+    private long drainTimeoutMs;
+    
+    /**
+     * Start tracking a record; the listener must release or cancel the returned completion
+     */
+    public RecordCompletion begin(ConsumerRecord<?, ?> record, Acknowledgment acknowledgment) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        return partitions.computeIfAbsent(partition, PartitionProgress::new)
+                .begin(record.offset(), acknowledgment);
+    }
+    
+    /**
+     * Per partition, the offset to resume from once the given records' sink writes are persisted
+     * Only a contiguous run of finished records is covered, so a record that was refused, is still
+     * being handled or was never written is consumed again rather than skipped. Partitions no longer
+     * assigned here are left out.
+     */
+    public Map<TopicPartition, Long> resumeOffsets(Collection<RecordCompletion> sinking) {
+        Set<RecordCompletion> sinkingSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        sinkingSet.addAll(sinking);
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        Set<PartitionProgress> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (RecordCompletion completion : sinking) {
+            PartitionProgress progress = completion.getProgress();
+            if (visited.add(progress)) {
+                long offset = progress.resumeOffset(sinkingSet);
+                if (offset >= 0) {
+                    offsets.put(progress.getPartition(), offset);
+                }
+            }
+        }
+        return offsets;
+    }
+    
+    /**
+     * Let in-flight records of the revoked partitions finish, so their acknowledgments go into the final commit
+     */
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        try {
+            for (TopicPartition partition : revoked) {
+                PartitionProgress progress = partitions.get(partition);
+                if (progress != null && !progress.awaitDrained(Math.max(0, deadline - System.currentTimeMillis()))) {
+                    logger.warn("⚠️ {} records of {} still in flight after {} ms, they will be consumed again",
+                               progress.size(), partition, drainTimeoutMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        forget(revoked);
+    }
+    
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        forget(lost);
+    }
+    
+    /**
+     * In-flight records per partition
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        partitions.forEach((partition, progress) -> stats.put(partition.toString(), progress.size()));
+        return stats;
+    }
+    
+    private void forget(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            PartitionProgress progress = partitions.remove(partition);
+            if (progress != null) {
+                progress.abandon();
+            }
+        }
+    }
+}
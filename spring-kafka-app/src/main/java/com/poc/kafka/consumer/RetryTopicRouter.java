@@ -0,0 +1,162 @@
+package com.poc.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.retrytopic.DeadLetterPublishingRecovererFactory;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
+import org.springframework.kafka.retrytopic.RetryTopicBeanNames;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends a failed CDC record on to its next retry topic, or the DLT after the last attempt
+ * Uses the same destination resolution as the @RetryableTopic error handling, but is called by the
+ * listener itself, so a failure is routed while the record is still tracked and its offset is only
+ * acknowledged once the record is on the retry topic. Records whose business logic failed are marked
+ * with a header, so their retries run only the handlers and do not publish or sink the event again;
+ * records MongoDB refused are marked likewise, and their retries only write the event to the sink.
+ */
+@Component
+public class RetryTopicRouter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RetryTopicRouter.class);
+    
+    /** Present on records routed because their handler failed */
+    public static final String HANDLER_RETRY_HEADER = "cdc_handler-retry";
+    
+    /** Present on records routed because the MongoDB sink refused their event */
+    public static final String SINK_RETRY_HEADER = "cdc_sink-retry";
+    
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+    
+    private final BeanFactory beanFactory;
+    private final ReentrantLock recovererLock = new ReentrantLock();
+    private volatile DeadLetterPublishingRecoverer recoverer;
+    
+    public RetryTopicRouter(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+    
+    /**
+     * Publish the record to its next destination, waiting for the broker to acknowledge it
+     *
+     * @throws RuntimeException if the record could not be published
+     */
+    public void route(ConsumerRecord<?, ?> record, Exception failure) {
+        recoverer().accept(record, null, failure);
+    }
+    
+    /**
+     * Route a record whose handler failed or missed its deadline, retrying the publish until it succeeds
+     * Runs on the bulkhead lane, whose next events of the same documents wait meanwhile, or on the
+     * bulkhead's watchdog for a handler that timed out.
+     */
+    public void routeHandlerFailure(ConsumerRecord<?, ?> record, Throwable failure) {
+        routeUntilPublished(record, new HandlerFailure(failure));
+    }
+    
+    /**
+     * Route a record whose event the MongoDB sink refused for good, retrying the publish until it succeeds
+     * Runs on the sink's writer thread, whose queue fills meanwhile and backs the listener off.
+     */
+    public void routeSinkFailure(ConsumerRecord<?, ?> record, Throwable failure) {
+        routeUntilPublished(record, new SinkFailure(failure));
+    }
+    
+    /**
+     * Whether the record was routed because its handler failed, after the event was published and sunk
+     */
+    public static boolean isHandlerRetry(ConsumerRecord<?, ?> record) {
+        return record.headers().lastHeader(HANDLER_RETRY_HEADER) != null;
+    }
+    
+    /**
+     * Whether the record was routed because the sink refused its event, after it was published and handled
+     */
+    public static boolean isSinkRetry(ConsumerRecord<?, ?> record) {
+        return record.headers().lastHeader(SINK_RETRY_HEADER) != null;
+    }
+    
+    private void routeUntilPublished(ConsumerRecord<?, ?> record, RuntimeException failure) {
+        long backoffMs = 100;
+        while (true) {
+            try {
+                route(record, failure);
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Routing failed record {}-{}@{} to its retry topic failed, retrying in {} ms: {}",
+                           record.topic(), record.partition(), record.offset(), backoffMs, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+    }
+    
+    /**
+     * The resolver is registered by the @RetryableTopic infrastructure, so it is looked up on first use
+     * Guarded by a lock rather than synchronized, since the first routing may run on a virtual thread.
+     */
+    private DeadLetterPublishingRecoverer recoverer() {
+        DeadLetterPublishingRecoverer current = recoverer;
+        if (current == null) {
+            recovererLock.lock();
+            try {
+                current = recoverer;
+                if (current == null) {
+                    DeadLetterPublishingRecovererFactory factory = new DeadLetterPublishingRecovererFactory(
+                            beanFactory.getBean(RetryTopicBeanNames.DESTINATION_TOPIC_RESOLVER_BEAN_NAME,
+                                                DestinationTopicResolver.class));
+                    factory.setHeadersFunction((failed, exception) -> {
+                        if (exception instanceof HandlerFailure) {
+                            return new RecordHeaders().add(HANDLER_RETRY_HEADER, "true".getBytes(StandardCharsets.UTF_8));
+                        }
+                        if (exception instanceof SinkFailure) {
+                            return new RecordHeaders().add(SINK_RETRY_HEADER, "true".getBytes(StandardCharsets.UTF_8));
+                        }
+                        return null;
+                    });
+                    current = factory.create(MongoDbChangeEventConsumer.LISTENER_ID);
+                    recoverer = current;
+                }
+            } finally {
+                recovererLock.unlock();
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Marks a failure of the business logic, as opposed to decoding, publishing or sinking
+     */
+    private static final class HandlerFailure extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        HandlerFailure(Throwable cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+    
+    /**
+     * Marks a sink write MongoDB refused for good, as opposed to a transient failure retried in place
+     */
+    private static final class SinkFailure extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        SinkFailure(Throwable cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
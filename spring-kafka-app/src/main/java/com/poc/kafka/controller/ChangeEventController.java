@@ -1,11 +1,36 @@
 package com.poc.kafka.controller;
 
+import com.poc.kafka.aggregation.OrderAggregationService;
+import com.poc.kafka.archive.EventArchiveService;
+import com.poc.kafka.bulkhead.BulkheadRegistry;
+import com.poc.kafka.cache.PageResponseCache;
+import com.poc.kafka.cache.UserEmailFilter;
+import com.poc.kafka.cache.UserExistenceCache;
+import com.poc.kafka.consumer.ListenerAutoScaler;
+import com.poc.kafka.consumer.PartitionBackpressure;
+import com.poc.kafka.consumer.RecordCompletionTracker;
+import com.poc.kafka.decoder.ChangeEventDecoderRegistry;
+import com.poc.kafka.dto.ReplayRequest;
+import com.poc.kafka.perf.AllocationBenchmark;
 import com.poc.kafka.service.ChangeEventProducer;
+import com.poc.kafka.service.ChangeEventSchemaCache;
+import com.poc.kafka.service.DocumentDictionaryRegistry;
+import com.poc.kafka.service.EventReplayService;
+import com.poc.kafka.service.OrderEnrichmentService;
+import com.poc.kafka.service.ProducerFlowControl;
+import com.poc.kafka.sink.MongoSinkService;
+import com.poc.kafka.state.ConnectorFreshnessMonitor;
+import com.poc.kafka.state.OrderStateIndex;
+import com.poc.kafka.state.UserStateStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -18,9 +43,66 @@ public class ChangeEventController {
     private static final Logger logger = LoggerFactory.getLogger(ChangeEventController.class);
     
     private final ChangeEventProducer changeEventProducer;
+    private final UserExistenceCache userExistenceCache;
+    private final UserEmailFilter userEmailFilter;
+    private final UserStateStore userStateStore;
+    private final OrderEnrichmentService orderEnrichmentService;
+    private final OrderAggregationService orderAggregationService;
+    private final OrderStateIndex orderStateIndex;
+    private final PageResponseCache pageResponseCache;
+    private final MongoSinkService mongoSinkService;
+    private final EventArchiveService eventArchiveService;
+    private final EventReplayService eventReplayService;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final ListenerAutoScaler listenerAutoScaler;
+    private final ProducerFlowControl producerFlowControl;
+    private final ChangeEventSchemaCache changeEventSchemaCache;
+    private final ChangeEventDecoderRegistry changeEventDecoderRegistry;
+    private final ConnectorFreshnessMonitor connectorFreshnessMonitor;
+    private final AllocationBenchmark allocationBenchmark;
+    private final DocumentDictionaryRegistry documentDictionaryRegistry;
+    private final RecordCompletionTracker recordCompletionTracker;
+    private final PartitionBackpressure partitionBackpressure;
     
-    public ChangeEventController(ChangeEventProducer changeEventProducer) {
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    
+    public ChangeEventController(ChangeEventProducer changeEventProducer, UserExistenceCache userExistenceCache,
+                                 UserEmailFilter userEmailFilter, UserStateStore userStateStore,
+                                 OrderEnrichmentService orderEnrichmentService,
+                                 OrderAggregationService orderAggregationService,
+                                 OrderStateIndex orderStateIndex, PageResponseCache pageResponseCache,
+                                 MongoSinkService mongoSinkService, EventArchiveService eventArchiveService,
+                                 EventReplayService eventReplayService, BulkheadRegistry bulkheadRegistry,
+                                 ListenerAutoScaler listenerAutoScaler, ProducerFlowControl producerFlowControl,
+                                 ChangeEventSchemaCache changeEventSchemaCache,
+                                 ChangeEventDecoderRegistry changeEventDecoderRegistry,
+                                 ConnectorFreshnessMonitor connectorFreshnessMonitor,
+                                 AllocationBenchmark allocationBenchmark,
+                                 DocumentDictionaryRegistry documentDictionaryRegistry,
+                                 RecordCompletionTracker recordCompletionTracker,
+                                 PartitionBackpressure partitionBackpressure) {
         this.changeEventProducer = changeEventProducer;
+        this.userExistenceCache = userExistenceCache;
+        this.userEmailFilter = userEmailFilter;
+        this.userStateStore = userStateStore;
+        this.orderEnrichmentService = orderEnrichmentService;
+        this.orderAggregationService = orderAggregationService;
+        this.orderStateIndex = orderStateIndex;
+        this.pageResponseCache = pageResponseCache;
+        this.mongoSinkService = mongoSinkService;
+        this.eventArchiveService = eventArchiveService;
+        this.eventReplayService = eventReplayService;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.listenerAutoScaler = listenerAutoScaler;
+        this.producerFlowControl = producerFlowControl;
+        this.changeEventSchemaCache = changeEventSchemaCache;
+        this.changeEventDecoderRegistry = changeEventDecoderRegistry;
+        this.connectorFreshnessMonitor = connectorFreshnessMonitor;
+        this.allocationBenchmark = allocationBenchmark;
+        this.documentDictionaryRegistry = documentDictionaryRegistry;
+        this.recordCompletionTracker = recordCompletionTracker;
+        this.partitionBackpressure = partitionBackpressure;
     }
     
     /**
@@ -60,6 +142,135 @@ public class ChangeEventController {
         }
     }
     
+    /**
+     * Get statistics of the in-process caches fed by the change stream
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("userExistenceCache", userExistenceCache.getStats());
+        stats.put("userEmailFilter", userEmailFilter.getStats());
+        stats.put("userStateStore", userStateStore.getStats());
+        stats.put("orderEnrichment", orderEnrichmentService.getStats());
+        stats.put("orderAggregation", orderAggregationService.getStats());
+        stats.put("orderState", orderStateIndex.getStats());
+        stats.put("pageResponseCache", pageResponseCache.getStats());
+        stats.put("mongoSink", mongoSinkService.getStats());
+        stats.put("eventArchive", eventArchiveService.getStats());
+        stats.put("bulkheads", bulkheadRegistry.getStats());
+        stats.put("inFlightRecords", recordCompletionTracker.getStats());
+        stats.put("pausedPartitions", partitionBackpressure.getStats());
+        stats.put("listenerScaling", listenerAutoScaler.getStats());
+        stats.put("producerFlowControl", producerFlowControl.getStats());
+        stats.put("schemaCache", changeEventSchemaCache.getStats());
+        stats.put("decoders", changeEventDecoderRegistry.getStats());
+        stats.put("documentDictionaries", documentDictionaryRegistry.getStats());
+        stats.put("timestamp", java.time.Instant.now().toString());
+        return ResponseEntity.ok(stats);
+    }
+    
+    /**
+     * End-to-end freshness per Debezium connector, from heartbeats and consumer progress
+     */
+    @GetMapping("/freshness")
+    public ResponseEntity<Map<String, Object>> getFreshness() {
+        return ResponseEntity.ok(Map.of(
+                "connectors", connectorFreshnessMonitor.getFreshness(),
+                "timestamp", java.time.Instant.now().toString()
+        ));
+    }
+    
+    /**
+     * Measure heap allocation per event on the processing path (no Kafka send)
+     * Compare runs with app.processing.low-allocation.enabled off and on.
+     */
+    @PostMapping("/benchmark/allocation")
+    public ResponseEntity<Map<String, Object>> runAllocationBenchmark(
+            @RequestParam(defaultValue = "100000") int events,
+            @RequestParam(defaultValue = "20000") int warmupEvents) {
+        if (events <= 0 || events > 10_000_000 || warmupEvents < 0 || warmupEvents > 10_000_000) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "status", "error",
+                    "message", "events must be 1-10000000 and warmupEvents 0-10000000",
+                    "timestamp", java.time.Instant.now().toString()
+            ));
+        }
+        try {
+            Map<String, Object> result = new LinkedHashMap<>(allocationBenchmark.run(warmupEvents, events));
+            result.put("timestamp", java.time.Instant.now().toString());
+            return ResponseEntity.ok(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "status", "error",
+                    "message", "Benchmark interrupted",
+                    "timestamp", java.time.Instant.now().toString()
+            ));
+        } catch (IllegalStateException e) {
+            logger.error("Allocation benchmark failed: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "status", "error",
+                    "message", e.getMessage(),
+                    "timestamp", java.time.Instant.now().toString()
+            ));
+        }
+    }
+    
+    /**
+     * Re-publish events from the local archive or a replay file in the background
+     * Does not touch the consumer group - events go straight to the producer.
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Object>> startReplay(@Valid @RequestBody ReplayRequest request) {
+        try {
+            return eventReplayService.startReplay(request)
+                    .map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                            "status", "error",
+                            "message", "Maximum number of active replays reached",
+                            "timestamp", java.time.Instant.now().toString()
+                    )));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "status", "error",
+                    "message", e.getMessage(),
+                    "timestamp", java.time.Instant.now().toString()
+            ));
+        }
+    }
+    
+    /**
+     * List replays with their progress
+     */
+    @GetMapping("/replay")
+    public ResponseEntity<Map<String, Object>> getReplays() {
+        return ResponseEntity.ok(Map.of(
+                "status", "success",
+                "jobs", eventReplayService.getJobs(),
+                "timestamp", java.time.Instant.now().toString()
+        ));
+    }
+    
+    /**
+     * Get the progress of a replay
+     */
+    @GetMapping("/replay/{jobId}")
+    public ResponseEntity<Map<String, Object>> getReplay(@PathVariable String jobId) {
+        return eventReplayService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Stop a running replay
+     */
+    @DeleteMapping("/replay/{jobId}")
+    public ResponseEntity<Map<String, Object>> stopReplay(@PathVariable String jobId) {
+        return eventReplayService.stopJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
     /**
      * Get application information
      */
@@ -76,6 +287,7 @@ public class ChangeEventController {
                         "Spring Boot integration",
                         "MongoDB data insertion endpoints"
                 ),
+                "virtualThreads", virtualThreads,
                 "timestamp", java.time.Instant.now().toString()
         ));
     }
@@ -1,22 +1,37 @@
 package com.poc.kafka.controller;
 
+import com.poc.kafka.cache.PageResponseCache;
+import com.poc.kafka.cache.UserEmailFilter;
+import com.poc.kafka.cache.UserExistenceCache;
 import com.poc.kafka.dto.CreateOrderRequest;
 import com.poc.kafka.dto.CreateUserRequest;
+import com.poc.kafka.dto.CursorPage;
+import com.poc.kafka.dto.LoadTestRequest;
 import com.poc.kafka.model.Order;
 import com.poc.kafka.model.User;
 import com.poc.kafka.repository.OrderRepository;
 import com.poc.kafka.repository.UserRepository;
+import com.poc.kafka.service.BulkIngestService;
+import com.poc.kafka.service.DocumentQueryService;
+import com.poc.kafka.service.LoadGeneratorService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -29,12 +44,29 @@ public class DataController {
     
     private static final Logger logger = LoggerFactory.getLogger(DataController.class);
     
+    private static final String NDJSON = "application/x-ndjson";
+    
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
+    private final BulkIngestService bulkIngestService;
+    private final UserExistenceCache userExistenceCache;
+    private final UserEmailFilter userEmailFilter;
+    private final DocumentQueryService documentQueryService;
+    private final LoadGeneratorService loadGeneratorService;
+    private final PageResponseCache pageResponseCache;
     
-    public DataController(UserRepository userRepository, OrderRepository orderRepository) {
+    public DataController(UserRepository userRepository, OrderRepository orderRepository,
+                          BulkIngestService bulkIngestService, UserExistenceCache userExistenceCache,
+                          UserEmailFilter userEmailFilter, DocumentQueryService documentQueryService,
+                          LoadGeneratorService loadGeneratorService, PageResponseCache pageResponseCache) {
         this.userRepository = userRepository;
         this.orderRepository = orderRepository;
+        this.bulkIngestService = bulkIngestService;
+        this.userExistenceCache = userExistenceCache;
+        this.userEmailFilter = userEmailFilter;
+        this.documentQueryService = documentQueryService;
+        this.loadGeneratorService = loadGeneratorService;
+        this.pageResponseCache = pageResponseCache;
     }
     
     /**
@@ -45,18 +77,24 @@ public class DataController {
         try {
             logger.info("Creating new user: {}", request);
             
-            // Check if user already exists
-            if (userRepository.existsByEmail(request.getEmail())) {
-                return ResponseEntity.badRequest().body(Map.of(
-                        "status", "error",
-                        "message", "User with email " + request.getEmail() + " already exists",
-                        "timestamp", Instant.now().toString()
-                ));
+            // Emails the filter has not seen (seeded from MongoDB at startup, then fed by CDC and writes)
+            // skip the pre-check; the unique index on email rejects any duplicate that slips through
+            if (userEmailFilter.mightExist(request.getEmail()) && userRepository.existsByEmail(request.getEmail())) {
+                return duplicateEmailResponse(request.getEmail());
             }
             
             // Create new user
             User user = new User(request.getName(), request.getEmail(), request.getAge());
-            User savedUser = userRepository.save(user);
+            User savedUser;
+            try {
+                savedUser = userRepository.save(user);
+            } catch (DuplicateKeyException e) {
+                userEmailFilter.recordEmail(request.getEmail());
+                return duplicateEmailResponse(request.getEmail());
+            }
+            userExistenceCache.recordUser(savedUser.getId());
+            userEmailFilter.recordEmail(savedUser.getEmail());
+            pageResponseCache.onDocumentChanged("users", savedUser.getId(), null, null);
             
             logger.info("✅ User created successfully: ID={}, Email={}", savedUser.getId(), savedUser.getEmail());
             
@@ -85,6 +123,14 @@ public class DataController {
         }
     }
     
+    private ResponseEntity<Map<String, Object>> duplicateEmailResponse(String email) {
+        return ResponseEntity.badRequest().body(Map.of(
+                "status", "error",
+                "message", "User with email " + email + " already exists",
+                "timestamp", Instant.now().toString()
+        ));
+    }
+    
     /**
      * Create a new order - this will trigger Debezium CDC
      */
@@ -93,9 +139,8 @@ public class DataController {
         try {
             logger.info("Creating new order: {}", request);
             
-            // Verify user exists
-            Optional<User> userOpt = userRepository.findById(request.getUserId());
-            if (userOpt.isEmpty()) {
+            // Verify user exists (served from the CDC-fed user id cache, MongoDB on miss)
+            if (!userExistenceCache.exists(request.getUserId())) {
                 return ResponseEntity.badRequest().body(Map.of(
                         "status", "error",
                         "message", "User with ID " + request.getUserId() + " not found",
@@ -106,6 +151,7 @@ public class DataController {
             // Create new order
             Order order = new Order(request.getUserId(), request.getItems(), request.getTotalAmount());
             Order savedOrder = orderRepository.save(order);
+            pageResponseCache.onDocumentChanged("orders", savedOrder.getId(), savedOrder.getUserId(), savedOrder.getStatus());
             
             logger.info("✅ Order created successfully: ID={}, UserID={}, Amount={}", 
                        savedOrder.getId(), savedOrder.getUserId(), savedOrder.getTotalAmount());
@@ -136,6 +182,48 @@ public class DataController {
         }
     }
     
+    /**
+     * Bulk create users from an NDJSON body (one CreateUserRequest per line)
+     * The body is streamed and inserted in unordered chunks - this will trigger Debezium CDC
+     */
+    @PostMapping("/users/bulk")
+    public ResponseEntity<Map<String, Object>> bulkCreateUsers(InputStream body) {
+        try {
+            logger.info("Starting bulk user ingest...");
+            return ResponseEntity.ok(bulkIngestService.ingestUsers(body));
+            
+        } catch (Exception e) {
+            logger.error("❌ Error during bulk user ingest: {}", e.getMessage(), e);
+            
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "status", "error",
+                    "message", "Failed to ingest users: " + e.getMessage(),
+                    "timestamp", Instant.now().toString()
+            ));
+        }
+    }
+    
+    /**
+     * Bulk create orders from an NDJSON body (one CreateOrderRequest per line)
+     * The body is streamed and inserted in unordered chunks - this will trigger Debezium CDC
+     */
+    @PostMapping("/orders/bulk")
+    public ResponseEntity<Map<String, Object>> bulkCreateOrders(InputStream body) {
+        try {
+            logger.info("Starting bulk order ingest...");
+            return ResponseEntity.ok(bulkIngestService.ingestOrders(body));
+            
+        } catch (Exception e) {
+            logger.error("❌ Error during bulk order ingest: {}", e.getMessage(), e);
+            
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "status", "error",
+                    "message", "Failed to ingest orders: " + e.getMessage(),
+                    "timestamp", Instant.now().toString()
+            ));
+        }
+    }
+    
     /**
      * Create multiple sample users for testing
      */
@@ -149,6 +237,10 @@ public class DataController {
             );
             
             List<User> savedUsers = userRepository.saveAll(sampleUsers);
+            savedUsers.forEach(savedUser -> {
+                userExistenceCache.recordUser(savedUser.getId());
+                userEmailFilter.recordEmail(savedUser.getEmail());
+            });
             
             logger.info("✅ Created {} sample users", savedUsers.size());
             
@@ -172,14 +264,19 @@ public class DataController {
     
     /**
      * Create multiple sample orders for testing
+     * Without a userId, orders are created for one page of users; pass the returned nextCursor as
+     * "after" to cover the following page.
      */
     @PostMapping("/orders/sample")
-    public ResponseEntity<Map<String, Object>> createSampleOrders(@RequestParam(required = false) String userId) {
+    public ResponseEntity<Map<String, Object>> createSampleOrders(@RequestParam(required = false) String userId,
+                                                                  @RequestParam(required = false) String after,
+                                                                  @RequestParam(required = false) Integer limit) {
         try {
             logger.info("Creating sample orders for userId: {}", userId);
             
-            // If no userId provided, find all users and create orders for them
+            // If no userId provided, create orders for a page of users rather than loading them all
             List<User> users;
+            String nextCursor = null;
             if (userId != null && !userId.isEmpty()) {
                 Optional<User> userOpt = userRepository.findById(userId);
                 if (userOpt.isEmpty()) {
@@ -191,7 +288,12 @@ public class DataController {
                 }
                 users = List.of(userOpt.get());
             } else {
-                users = userRepository.findAll();
+                if (!documentQueryService.isValidCursor(after)) {
+                    return invalidCursorResponse(after);
+                }
+                CursorPage<User> page = documentQueryService.pageUsers(after, limit);
+                users = page.getItems();
+                nextCursor = page.getNextCursor();
                 if (users.isEmpty()) {
                     return ResponseEntity.badRequest().body(Map.of(
                             "status", "error",
@@ -213,12 +315,13 @@ public class DataController {
             
             logger.info("✅ Created {} sample orders", savedOrders.size());
             
-            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of(
-                    "status", "success",
-                    "message", "Created " + savedOrders.size() + " sample orders",
-                    "orderIds", savedOrders.stream().map(Order::getId).toList(),
-                    "timestamp", Instant.now().toString()
-            ));
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", "success");
+            body.put("message", "Created " + savedOrders.size() + " sample orders");
+            body.put("orderIds", savedOrders.stream().map(Order::getId).toList());
+            body.put("nextCursor", nextCursor);
+            body.put("timestamp", Instant.now().toString());
+            return ResponseEntity.status(HttpStatus.CREATED).body(body);
             
         } catch (Exception e) {
             logger.error("❌ Error creating sample orders: {}", e.getMessage(), e);
@@ -232,19 +335,80 @@ public class DataController {
     }
     
     /**
-     * Get all users
+     * Start a background job generating users and orders at a target rate - this drives CDC load
+     */
+    @PostMapping("/load")
+    public ResponseEntity<Map<String, Object>> startLoad(@Valid @RequestBody LoadTestRequest request) {
+        return loadGeneratorService.startJob(request)
+                .map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                        "status", "error",
+                        "message", "Maximum number of active load jobs reached",
+                        "timestamp", Instant.now().toString()
+                )));
+    }
+    
+    /**
+     * List load jobs with their achieved write throughput
+     */
+    @GetMapping("/load")
+    public ResponseEntity<Map<String, Object>> getLoadJobs() {
+        return ResponseEntity.ok(Map.of(
+                "status", "success",
+                "jobs", loadGeneratorService.getJobs(),
+                "timestamp", Instant.now().toString()
+        ));
+    }
+    
+    /**
+     * Get the progress and achieved write throughput of a load job
+     */
+    @GetMapping("/load/{jobId}")
+    public ResponseEntity<Map<String, Object>> getLoadJob(@PathVariable String jobId) {
+        return loadGeneratorService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Stop a running load job
+     */
+    @DeleteMapping("/load/{jobId}")
+    public ResponseEntity<Map<String, Object>> stopLoadJob(@PathVariable String jobId) {
+        return loadGeneratorService.stopJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Get users one page at a time, keyed on _id
+     * Pass the returned nextCursor as "after" to fetch the following page.
+     * Pages are cached until the change stream shows an insert into their range.
      */
     @GetMapping("/users")
-    public ResponseEntity<Map<String, Object>> getAllUsers() {
+    public ResponseEntity<Map<String, Object>> getAllUsers(@RequestParam(required = false) String after,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<User> users = userRepository.findAll();
+            if (!documentQueryService.isValidCursor(after)) {
+                return invalidCursorResponse(after);
+            }
             
-            return ResponseEntity.ok(Map.of(
-                    "status", "success",
-                    "count", users.size(),
-                    "users", users,
-                    "timestamp", Instant.now().toString()
-            ));
+            PageResponseCache.CachedPage<User> cached = pageResponseCache.getOrLoad("users", after, limit, null, null,
+                    () -> documentQueryService.pageUsers(after, limit), User::getId, DataController::userVersion);
+            if (pageResponseCache.isNotModified(ifNoneMatch, cached.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cached.etag()).build();
+            }
+            CursorPage<User> page = cached.page();
+            
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", "success");
+            body.put("count", page.getItems().size());
+            body.put("users", page.getItems());
+            body.put("nextCursor", page.getNextCursor());
+            body.put("cached", cached.cached());
+            body.put("timestamp", Instant.now().toString());
+            return ResponseEntity.ok().eTag(cached.etag()).body(body);
             
         } catch (Exception e) {
             logger.error("❌ Error fetching users: {}", e.getMessage(), e);
@@ -258,19 +422,47 @@ public class DataController {
     }
     
     /**
-     * Get all orders
+     * Stream all users as NDJSON while the MongoDB cursor yields them
+     */
+    @GetMapping(value = "/users/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(documentQueryService::streamUsers);
+    }
+    
+    /**
+     * Get orders one page at a time, keyed on _id, optionally filtered by userId and/or status
+     * Pass the returned nextCursor as "after" to fetch the following page.
+     * Pages are cached until the change stream shows a matching insert into their range.
      */
     @GetMapping("/orders")
-    public ResponseEntity<Map<String, Object>> getAllOrders() {
+    public ResponseEntity<Map<String, Object>> getAllOrders(@RequestParam(required = false) String userId,
+                                                            @RequestParam(required = false) String status,
+                                                            @RequestParam(required = false) String after,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<Order> orders = orderRepository.findAll();
+            if (!documentQueryService.isValidCursor(after)) {
+                return invalidCursorResponse(after);
+            }
             
-            return ResponseEntity.ok(Map.of(
-                    "status", "success",
-                    "count", orders.size(),
-                    "orders", orders,
-                    "timestamp", Instant.now().toString()
-            ));
+            PageResponseCache.CachedPage<Order> cached = pageResponseCache.getOrLoad("orders", after, limit, userId, status,
+                    () -> documentQueryService.pageOrders(userId, status, after, limit), Order::getId,
+                    DataController::orderVersion);
+            if (pageResponseCache.isNotModified(ifNoneMatch, cached.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cached.etag()).build();
+            }
+            CursorPage<Order> page = cached.page();
+            
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", "success");
+            body.put("count", page.getItems().size());
+            body.put("orders", page.getItems());
+            body.put("nextCursor", page.getNextCursor());
+            body.put("cached", cached.cached());
+            body.put("timestamp", Instant.now().toString());
+            return ResponseEntity.ok().eTag(cached.etag()).body(body);
             
         } catch (Exception e) {
             logger.error("❌ Error fetching orders: {}", e.getMessage(), e);
@@ -282,4 +474,38 @@ public class DataController {
             ));
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Stream orders as NDJSON while the MongoDB cursor yields them, optionally filtered by userId and/or status
+     */
+    @GetMapping(value = "/orders/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamOrders(@RequestParam(required = false) String userId,
+                                                              @RequestParam(required = false) String status) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(out -> documentQueryService.streamOrders(userId, status, out));
+    }
+    
+    /**
+     * Hash of the user fields returned to the client, for the page ETag
+     */
+    private static int userVersion(User user) {
+        return Objects.hash(user.getName(), user.getEmail(), user.getAge(), user.getCreatedAt());
+    }
+    
+    /**
+     * Hash of the order fields returned to the client, for the page ETag
+     */
+    private static int orderVersion(Order order) {
+        return Objects.hash(order.getUserId(), order.getItems(), order.getTotalAmount(), order.getStatus(),
+                            order.getCreatedAt());
+    }
+    
+    private ResponseEntity<Map<String, Object>> invalidCursorResponse(String after) {
+        return ResponseEntity.badRequest().body(Map.of(
+                "status", "error",
+                "message", "Invalid cursor: " + after,
+                "timestamp", Instant.now().toString()
+        ));
+    }
+}
@@ -0,0 +1,122 @@
+package com.poc.kafka.controller;
+
+import com.poc.kafka.state.OrderStateIndex;
+import com.poc.kafka.state.StateFreshness;
+import com.poc.kafka.state.UserStateStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller for interactive queries answered from in-process CDC state
+ * Reads never touch MongoDB; every response carries the freshness of the state it was served from,
+ * so callers can fall back to /api/data when the state is too far behind. Orders evicted from the
+ * bounded state answer 404 here and are likewise looked up through /api/data.
+ */
+@RestController
+@RequestMapping("/api/state")
+public class StateQueryController {
+    
+    private final OrderStateIndex orderStateIndex;
+    private final UserStateStore userStateStore;
+    
+    @Value("${app.state.query.default-limit:20}")
+    private int defaultLimit;
+    
+    @Value("${app.state.query.max-limit:1000}")
+    private int maxLimit;
+    
+    public StateQueryController(OrderStateIndex orderStateIndex, UserStateStore userStateStore) {
+        this.orderStateIndex = orderStateIndex;
+        this.userStateStore = userStateStore;
+    }
+    
+    /**
+     * Get the current state of an order
+     */
+    @GetMapping("/orders/{orderId}")
+    public ResponseEntity<Map<String, Object>> getOrder(@PathVariable String orderId) {
+        Map<String, Object> order = orderStateIndex.get(orderId);
+        if (order == null) {
+            return notFoundResponse("Order " + orderId + " not found in state", orderStateIndex.getFreshness());
+        }
+        
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", "success");
+        body.put("order", order);
+        body.put("freshness", orderStateIndex.getFreshness().toMap());
+        body.put("timestamp", Instant.now().toString());
+        return ResponseEntity.ok(body);
+    }
+    
+    /**
+     * Get the latest orders in a status, newest first
+     */
+    @GetMapping("/orders")
+    public ResponseEntity<Map<String, Object>> getOrdersByStatus(@RequestParam String status,
+                                                                 @RequestParam(required = false) Integer limit) {
+        return ordersResponse(orderStateIndex.findByStatus(status, clampLimit(limit)));
+    }
+    
+    /**
+     * Get the latest known document of a user
+     */
+    @GetMapping("/users/{userId}")
+    public ResponseEntity<Map<String, Object>> getUser(@PathVariable String userId) {
+        return userStateStore.get(userId)
+                .map(user -> {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("status", "success");
+                    body.put("user", user);
+                    body.put("freshness", userStateStore.getFreshness().toMap());
+                    body.put("timestamp", Instant.now().toString());
+                    return ResponseEntity.ok(body);
+                })
+                .orElseGet(() -> notFoundResponse("User " + userId + " not found in state", userStateStore.getFreshness()));
+    }
+    
+    /**
+     * Get the latest orders of a user, newest first
+     */
+    @GetMapping("/users/{userId}/orders")
+    public ResponseEntity<Map<String, Object>> getOrdersByUser(@PathVariable String userId,
+                                                               @RequestParam(required = false) Integer limit) {
+        return ordersResponse(orderStateIndex.findByUser(userId, clampLimit(limit)));
+    }
+    
+    private ResponseEntity<Map<String, Object>> ordersResponse(List<Map<String, Object>> orders) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", "success");
+        body.put("count", orders.size());
+        body.put("orders", orders);
+        body.put("freshness", orderStateIndex.getFreshness().toMap());
+        body.put("timestamp", Instant.now().toString());
+        return ResponseEntity.ok(body);
+    }
+    
+    private ResponseEntity<Map<String, Object>> notFoundResponse(String message, StateFreshness freshness) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                "status", "error",
+                "message", message,
+                "freshness", freshness.toMap(),
+                "timestamp", Instant.now().toString()
+        ));
+    }
+    
+    private int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultLimit;
+        }
+        return Math.min(limit, maxLimit);
+    }
+}
@@ -0,0 +1,19 @@
+package com.poc.kafka.decoder;
+
+import java.io.IOException;
+
+/**
+ * Decodes the raw value of a CDC record in one Debezium record format
+ */
+public interface ChangeEventDecoder {
+    
+    /**
+     * @return the decoded change, or null if the record is not in this decoder's format
+     */
+    DecodedChange decode(String message) throws IOException;
+    
+    /**
+     * Format name reported in stats
+     */
+    String format();
+}
@@ -0,0 +1,88 @@
+package com.poc.kafka.decoder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Picks the decoder for each topic from its first record and caches it
+ * Later records of the topic go straight to the cached decoder without a format check. A decoder that
+ * does not recognize a record (the connector was reconfigured) triggers detection again for that topic.
+ */
+@Component
+public class ChangeEventDecoderRegistry {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChangeEventDecoderRegistry.class);
+    
+    private final ObjectMapper objectMapper;
+    private final DebeziumEnvelopeDecoder envelopeDecoder;
+    private final FlattenedDocumentDecoder flattenedDecoder;
+    private final Map<String, ChangeEventDecoder> decodersByTopic = new ConcurrentHashMap<>();
+    private final LongAdder redetections = new LongAdder();
+    
+    public ChangeEventDecoderRegistry(ObjectMapper objectMapper, DebeziumEnvelopeDecoder envelopeDecoder,
+                                      FlattenedDocumentDecoder flattenedDecoder) {
+        this.objectMapper = objectMapper;
+        this.envelopeDecoder = envelopeDecoder;
+        this.flattenedDecoder = flattenedDecoder;
+    }
+    
+    /**
+     * A registry with no topics detected yet, sharing this one's decoders
+     */
+    public ChangeEventDecoderRegistry detachedCopy() {
+        return new ChangeEventDecoderRegistry(objectMapper, envelopeDecoder, flattenedDecoder);
+    }
+    
+    /**
+     * Decode a record with its topic's decoder
+     *
+     * @return the decoded change, null if no decoder recognizes the record
+     */
+    public DecodedChange decode(String topic, String message) throws IOException {
+        ChangeEventDecoder decoder = decodersByTopic.get(topic);
+        if (decoder != null) {
+            DecodedChange change = decoder.decode(message);
+            if (change != null) {
+                return change;
+            }
+            redetections.increment();
+        }
+        
+        decoder = detect(message);
+        ChangeEventDecoder previous = decodersByTopic.put(topic, decoder);
+        if (previous != decoder) {
+            logger.info("🔍 Topic {} carries {} records", topic, decoder.format());
+        }
+        return decoder.decode(message);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> formats = new TreeMap<>();
+        decodersByTopic.forEach((topic, decoder) -> formats.put(topic, decoder.format()));
+        return Map.of(
+                "topics", formats,
+                "redetections", redetections.sum()
+        );
+    }
+    
+    /**
+     * A record is a full envelope if its payload has op and after/before; anything else is a flattened document
+     */
+    private ChangeEventDecoder detect(String message) throws IOException {
+        JsonNode root = objectMapper.readTree(message);
+        if (root.has("schema") && root.has("payload")) {
+            root = root.get("payload");
+        }
+        boolean envelope = root.has("op") && (root.has("after") || root.has("before"));
+        return envelope ? envelopeDecoder : flattenedDecoder;
+    }
+}
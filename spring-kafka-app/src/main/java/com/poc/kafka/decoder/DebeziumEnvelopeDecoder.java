@@ -0,0 +1,130 @@
+package com.poc.kafka.decoder;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.poc.kafka.model.ChangeEvent;
+import com.poc.kafka.service.ChangeEventSchemaCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Decoder for full Debezium change event envelopes (op, before, after, source, ts_ms)
+ * The MongoDB connector carries the document in "after" as a JSON string.
+ */
+@Component
+public class DebeziumEnvelopeDecoder implements ChangeEventDecoder {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DebeziumEnvelopeDecoder.class);
+    
+    private final ObjectReader payloadReader;
+    private final ObjectReader documentReader;
+    private final SchemaEnvelopeReader envelopeReader;
+    private final ThreadLocal<ReusablePayload> reusablePayloads;
+    
+    @Value("${app.processing.low-allocation.enabled:false}")
+    private boolean lowAllocation;
+    
+    public DebeziumEnvelopeDecoder(ObjectMapper objectMapper, ChangeEventSchemaCache schemaCache) {
+        this.payloadReader = objectMapper.readerFor(ChangeEvent.Payload.class);
+        this.documentReader = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {});
+        this.envelopeReader = new SchemaEnvelopeReader(objectMapper, schemaCache);
+        ObjectReader insertPayloadReader = objectMapper.readerFor(InsertPayload.class);
+        this.reusablePayloads = ThreadLocal.withInitial(() -> new ReusablePayload(insertPayloadReader));
+    }
+    
+    @Override
+    public DecodedChange decode(String message) throws IOException {
+        if (lowAllocation) {
+            return decodeReusing(message);
+        }
+        
+        ChangeEvent.Payload payload = envelopeReader.read(message, payloadReader);
+        if (payload == null || payload.getOperation() == null) {
+            // No operation: not an envelope (e.g. the connector switched to flattened records)
+            return null;
+        }
+        return new DecodedChange(payload.getOperation(), payload.getTimestamp(), parseAfterData(payload.getAfter()));
+    }
+    
+    /**
+     * Low-allocation variant: binds into this thread's reusable holder, which only maps op, after and
+     * ts_ms, so source and before are skipped by the parser instead of materialized
+     */
+    private DecodedChange decodeReusing(String message) throws IOException {
+        ReusablePayload reusable = reusablePayloads.get();
+        reusable.payload.reset();
+        InsertPayload payload = envelopeReader.read(message, reusable.reader);
+        if (payload == null || payload.operation == null) {
+            return null;
+        }
+        Instant timestamp = payload.timestampMs >= 0 ? Instant.ofEpochMilli(payload.timestampMs) : null;
+        return new DecodedChange(payload.operation, timestamp, parseAfterData(payload.after));
+    }
+    
+    @Override
+    public String format() {
+        return "envelope";
+    }
+    
+    /**
+     * Parse the 'after' field, a JSON string in the MongoDB connector's format or a struct otherwise
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parseAfterData(Object afterField) throws IOException {
+        if (afterField == null) {
+            return null;
+        }
+        if (afterField instanceof String afterJson) {
+            return documentReader.readValue(afterJson);
+        }
+        if (afterField instanceof Map) {
+            return (Map<String, Object>) afterField;
+        }
+        logger.warn("Unexpected type for 'after' field: {}", afterField.getClass());
+        return null;
+    }
+    
+    /**
+     * The payload fields the processor uses; everything else is skipped while parsing
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class InsertPayload {
+        
+        @JsonProperty("op")
+        private String operation;
+        
+        @JsonProperty("after")
+        private Object after;
+        
+        @JsonProperty("ts_ms")
+        private long timestampMs = -1;
+        
+        void reset() {
+            operation = null;
+            after = null;
+            timestampMs = -1;
+        }
+    }
+    
+    /**
+     * A thread's payload holder and the reader that binds into it
+     */
+    private static class ReusablePayload {
+        
+        private final InsertPayload payload = new InsertPayload();
+        private final ObjectReader reader;
+        
+        ReusablePayload(ObjectReader insertPayloadReader) {
+            this.reader = insertPayloadReader.withValueToUpdate(payload);
+        }
+    }
+}
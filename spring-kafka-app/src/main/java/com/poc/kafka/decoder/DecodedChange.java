@@ -0,0 +1,13 @@
+package com.poc.kafka.decoder;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A change record decoded from either Debezium record format
+ *
+ * @param operation Debezium operation code ("c", "u", "d", "r")
+ * @param timestamp source timestamp of the change
+ * @param document the document after the change, null if the record carries none
+ */
+public record DecodedChange(String operation, Instant timestamp, Map<String, Object> document) {}
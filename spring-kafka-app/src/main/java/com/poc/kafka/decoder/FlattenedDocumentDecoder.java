@@ -0,0 +1,77 @@
+package com.poc.kafka.decoder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.poc.kafka.service.ChangeEventSchemaCache;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Decoder for records flattened by Debezium's ExtractNewDocumentState SMT
+ * The record value is the document itself. Metadata requested with add.fields arrives as "__"-prefixed
+ * fields (__op, __source_ts_ms / __ts_ms) and rewritten deletes carry __deleted; these are removed from
+ * the document. Without __op the record is taken as an insert, matching the insert-only connector setup.
+ */
+@Component
+public class FlattenedDocumentDecoder implements ChangeEventDecoder {
+    
+    private static final String METADATA_PREFIX = "__";
+    
+    private final ObjectReader documentReader;
+    private final SchemaEnvelopeReader envelopeReader;
+    
+    public FlattenedDocumentDecoder(ObjectMapper objectMapper, ChangeEventSchemaCache schemaCache) {
+        this.documentReader = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {});
+        this.envelopeReader = new SchemaEnvelopeReader(objectMapper, schemaCache);
+    }
+    
+    @Override
+    public DecodedChange decode(String message) throws IOException {
+        Map<String, Object> document = envelopeReader.read(message, documentReader);
+        if (document == null || (document.containsKey("op") && (document.containsKey("after") || document.containsKey("before")))) {
+            // A full envelope: the connector switched back from flattened records
+            return null;
+        }
+        
+        String operation = "c";
+        Instant timestamp = null;
+        Iterator<Map.Entry<String, Object>> fields = document.entrySet().iterator();
+        while (fields.hasNext()) {
+            Map.Entry<String, Object> field = fields.next();
+            String name = field.getKey();
+            if (!name.startsWith(METADATA_PREFIX)) {
+                continue;
+            }
+            Object value = field.getValue();
+            switch (name) {
+                case "__op" -> operation = String.valueOf(value);
+                case "__deleted" -> {
+                    if ("true".equals(String.valueOf(value))) {
+                        operation = "d";
+                    }
+                }
+                case "__source_ts_ms" -> timestamp = toInstant(value);
+                case "__ts_ms" -> timestamp = timestamp != null ? timestamp : toInstant(value);
+                default -> { }
+            }
+            fields.remove();
+        }
+        
+        // No source timestamp unless add.fields includes it; fall back to the processing time
+        return new DecodedChange(operation, timestamp != null ? timestamp : Instant.now(), document);
+    }
+    
+    @Override
+    public String format() {
+        return "flattened";
+    }
+    
+    private static Instant toInstant(Object epochMillis) {
+        return epochMillis instanceof Number number ? Instant.ofEpochMilli(number.longValue()) : null;
+    }
+}
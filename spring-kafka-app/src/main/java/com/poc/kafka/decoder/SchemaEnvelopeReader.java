@@ -0,0 +1,129 @@
+package com.poc.kafka.decoder;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.poc.kafka.service.ChangeEventSchemaCache;
+import com.poc.kafka.service.ChangeEventSchemaCache.CompiledSchema;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Reads the payload of a record that may be wrapped in a {"schema", "payload"} envelope
+ * A record without the envelope (schemas disabled) is bound directly. When the envelope's schema is one
+ * the schema cache already holds, it is matched as text and the payload is bound by a parser that starts
+ * behind it, so the schema is never tokenized. Otherwise the envelope is tokenized field by field and
+ * the schema handed to the cache, which parses it once per fingerprint.
+ */
+class SchemaEnvelopeReader {
+    
+    private final ObjectMapper objectMapper;
+    private final ChangeEventSchemaCache schemaCache;
+    
+    SchemaEnvelopeReader(ObjectMapper objectMapper, ChangeEventSchemaCache schemaCache) {
+        this.objectMapper = objectMapper;
+        this.schemaCache = schemaCache;
+    }
+    
+    /**
+     * @return the bound payload, null if an envelope has none
+     */
+    <T> T read(String message, ObjectReader payloadReader) throws IOException {
+        // Checked on the text: probing with a parser that is still open while the payload is bound
+        // by a second one makes the second allocate its own buffers instead of the recycled ones
+        if (!startsWithEnvelopeField(message)) {
+            return payloadReader.readValue(message);
+        }
+        
+        int schemaStart = schemaStart(message);
+        CompiledSchema schema = schemaStart >= 0 ? schemaCache.match(message, schemaStart) : null;
+        int payloadStart = schema != null ? payloadStart(message, schemaStart + schema.length()) : -1;
+        if (payloadStart >= 0) {
+            StringReader remainder = new StringReader(message);
+            remainder.skip(payloadStart);
+            try (JsonParser parser = objectMapper.createParser(remainder)) {
+                return parser.nextToken() == JsonToken.START_OBJECT ? payloadReader.readValue(parser) : null;
+            }
+        }
+        
+        try (JsonParser parser = objectMapper.createParser(message)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT || parser.nextToken() != JsonToken.FIELD_NAME) {
+                throw new IOException("Expected a JSON object with a schema or payload field");
+            }
+            
+            T payload = null;
+            do {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("schema".equals(field) && value == JsonToken.START_OBJECT) {
+                    int start = (int) parser.currentTokenLocation().getCharOffset();
+                    parser.skipChildren();
+                    int end = (int) parser.currentLocation().getCharOffset();
+                    schemaCache.resolve(message, start, end);
+                } else if ("payload".equals(field) && value == JsonToken.START_OBJECT) {
+                    payload = payloadReader.readValue(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            } while (parser.nextToken() == JsonToken.FIELD_NAME);
+            return payload;
+        }
+    }
+    
+    /**
+     * Whether the record's first field is "schema" or "payload", as JsonConverter writes them
+     */
+    static boolean startsWithEnvelopeField(String message) {
+        int i = skipWhitespace(message, 0);
+        if (i >= message.length() || message.charAt(i) != '{') {
+            return false;
+        }
+        i = skipWhitespace(message, i + 1);
+        return message.startsWith("\"schema\"", i) || message.startsWith("\"payload\"", i);
+    }
+    
+    /**
+     * Position of the schema object when it is the record's first field, -1 otherwise
+     */
+    private static int schemaStart(String message) {
+        int i = skipWhitespace(message, skipWhitespace(message, 0) + 1);
+        if (!message.startsWith("\"schema\"", i)) {
+            return -1;
+        }
+        i = skipWhitespace(message, i + "\"schema\"".length());
+        if (i >= message.length() || message.charAt(i) != ':') {
+            return -1;
+        }
+        i = skipWhitespace(message, i + 1);
+        return i < message.length() && message.charAt(i) == '{' ? i : -1;
+    }
+    
+    /**
+     * Position of the payload value when it is the field right after the schema ending at from, -1 otherwise
+     */
+    private static int payloadStart(String message, int from) {
+        int i = skipWhitespace(message, from);
+        if (i >= message.length() || message.charAt(i) != ',') {
+            return -1;
+        }
+        i = skipWhitespace(message, i + 1);
+        if (!message.startsWith("\"payload\"", i)) {
+            return -1;
+        }
+        i = skipWhitespace(message, i + "\"payload\"".length());
+        if (i >= message.length() || message.charAt(i) != ':') {
+            return -1;
+        }
+        return skipWhitespace(message, i + 1);
+    }
+    
+    private static int skipWhitespace(String message, int from) {
+        int i = from;
+        while (i < message.length() && Character.isWhitespace(message.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
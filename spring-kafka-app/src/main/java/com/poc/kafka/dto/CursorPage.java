@@ -0,0 +1,43 @@
+package com.poc.kafka.dto;
+
+import java.util.List;
+
+/**
+ * Response DTO for one page of a cursor-paginated query keyed on _id
+ */
+public class CursorPage<T> {
+    
+    private final List<T> items;
+    private final String nextCursor;
+    private final int limit;
+    
+    public CursorPage(List<T> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    /**
+     * The _id to pass as "after" for the next page, or null when this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    @Override
+    public String toString() {
+        return "CursorPage{" +
+                "items=" + items.size() +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", limit=" + limit +
+                '}';
+    }
+}
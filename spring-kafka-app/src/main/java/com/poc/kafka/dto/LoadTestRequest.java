@@ -0,0 +1,87 @@
+package com.poc.kafka.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Request DTO for starting a write load generation job
+ */
+public class LoadTestRequest {
+    
+    @NotNull(message = "Target rate is required")
+    @Positive(message = "Target rate must be positive")
+    private Integer targetWritesPerSecond;
+    
+    @Min(value = 1, message = "Concurrency must be at least 1")
+    @Max(value = 64, message = "Concurrency must be at most 64")
+    private int concurrency = 4;
+    
+    @Min(value = 1, message = "Duration must be at least 1 second")
+    @Max(value = 3600, message = "Duration must be at most 3600 seconds")
+    private int durationSeconds = 60;
+    
+    @Min(value = 1, message = "Batch size must be at least 1")
+    @Max(value = 1000, message = "Batch size must be at most 1000")
+    private int batchSize = 50;
+    
+    @Min(value = 0, message = "Orders per user cannot be negative")
+    @Max(value = 20, message = "Orders per user must be at most 20")
+    private int ordersPerUser = 3;
+    
+    // Constructors
+    public LoadTestRequest() {}
+    
+    // Getters and Setters
+    public Integer getTargetWritesPerSecond() {
+        return targetWritesPerSecond;
+    }
+    
+    public void setTargetWritesPerSecond(Integer targetWritesPerSecond) {
+        this.targetWritesPerSecond = targetWritesPerSecond;
+    }
+    
+    public int getConcurrency() {
+        return concurrency;
+    }
+    
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+    
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+    
+    public void setDurationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+    
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    public int getOrdersPerUser() {
+        return ordersPerUser;
+    }
+    
+    public void setOrdersPerUser(int ordersPerUser) {
+        this.ordersPerUser = ordersPerUser;
+    }
+    
+    @Override
+    public String toString() {
+        return "LoadTestRequest{" +
+                "targetWritesPerSecond=" + targetWritesPerSecond +
+                ", concurrency=" + concurrency +
+                ", durationSeconds=" + durationSeconds +
+                ", batchSize=" + batchSize +
+                ", ordersPerUser=" + ordersPerUser +
+                '}';
+    }
+}
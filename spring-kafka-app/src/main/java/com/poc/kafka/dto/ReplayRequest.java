@@ -0,0 +1,182 @@
+package com.poc.kafka.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+import java.time.Instant;
+
+/**
+ * Request DTO for replaying events from the local archive or a replay file
+ * Start with one of fromTimestamp, fromSequence, topic/partition/fromOffset (archive) or fromLine (file);
+ * without a start the whole source is replayed.
+ */
+public class ReplayRequest {
+    
+    @Pattern(regexp = "ARCHIVE|FILE", message = "Source must be ARCHIVE or FILE")
+    private String source = "ARCHIVE";
+    
+    /** NDJSON file of ProcessedChangeEvents, relative to the replay directory */
+    private String file;
+    
+    private Instant fromTimestamp;
+    
+    private Instant toTimestamp;
+    
+    @Min(value = 0, message = "Sequence cannot be negative")
+    private Long fromSequence;
+    
+    /** Topic and partition the events were originally published to, for fromOffset */
+    private String topic;
+    
+    @Min(value = 0, message = "Partition cannot be negative")
+    private Integer partition;
+    
+    @Min(value = 0, message = "Offset cannot be negative")
+    private Long fromOffset;
+    
+    @Min(value = 1, message = "Line numbers start at 1")
+    private Long fromLine;
+    
+    /** Defaults to the original topic for the archive and the output topic for files */
+    private String targetTopic;
+    
+    @Positive(message = "Maximum events must be positive")
+    private Long maxEvents;
+    
+    @Min(value = 1, message = "Rate must be at least 1 event per second")
+    @Max(value = 1000000, message = "Rate must be at most 1000000 events per second")
+    private int eventsPerSecond = 1000;
+    
+    @Min(value = 1, message = "Batch size must be at least 1")
+    @Max(value = 10000, message = "Batch size must be at most 10000")
+    private int batchSize = 500;
+    
+    // Constructors
+    public ReplayRequest() {}
+    
+    // Getters and Setters
+    public String getSource() {
+        return source;
+    }
+    
+    public void setSource(String source) {
+        this.source = source;
+    }
+    
+    public String getFile() {
+        return file;
+    }
+    
+    public void setFile(String file) {
+        this.file = file;
+    }
+    
+    public Instant getFromTimestamp() {
+        return fromTimestamp;
+    }
+    
+    public void setFromTimestamp(Instant fromTimestamp) {
+        this.fromTimestamp = fromTimestamp;
+    }
+    
+    public Instant getToTimestamp() {
+        return toTimestamp;
+    }
+    
+    public void setToTimestamp(Instant toTimestamp) {
+        this.toTimestamp = toTimestamp;
+    }
+    
+    public Long getFromSequence() {
+        return fromSequence;
+    }
+    
+    public void setFromSequence(Long fromSequence) {
+        this.fromSequence = fromSequence;
+    }
+    
+    public String getTopic() {
+        return topic;
+    }
+    
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+    
+    public Integer getPartition() {
+        return partition;
+    }
+    
+    public void setPartition(Integer partition) {
+        this.partition = partition;
+    }
+    
+    public Long getFromOffset() {
+        return fromOffset;
+    }
+    
+    public void setFromOffset(Long fromOffset) {
+        this.fromOffset = fromOffset;
+    }
+    
+    public Long getFromLine() {
+        return fromLine;
+    }
+    
+    public void setFromLine(Long fromLine) {
+        this.fromLine = fromLine;
+    }
+    
+    public String getTargetTopic() {
+        return targetTopic;
+    }
+    
+    public void setTargetTopic(String targetTopic) {
+        this.targetTopic = targetTopic;
+    }
+    
+    public Long getMaxEvents() {
+        return maxEvents;
+    }
+    
+    public void setMaxEvents(Long maxEvents) {
+        this.maxEvents = maxEvents;
+    }
+    
+    public int getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+    
+    public void setEventsPerSecond(int eventsPerSecond) {
+        this.eventsPerSecond = eventsPerSecond;
+    }
+    
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    @Override
+    public String toString() {
+        return "ReplayRequest{" +
+                "source='" + source + '\'' +
+                ", file='" + file + '\'' +
+                ", fromTimestamp=" + fromTimestamp +
+                ", toTimestamp=" + toTimestamp +
+                ", fromSequence=" + fromSequence +
+                ", topic='" + topic + '\'' +
+                ", partition=" + partition +
+                ", fromOffset=" + fromOffset +
+                ", fromLine=" + fromLine +
+                ", targetTopic='" + targetTopic + '\'' +
+                ", maxEvents=" + maxEvents +
+                ", eventsPerSecond=" + eventsPerSecond +
+                ", batchSize=" + batchSize +
+                '}';
+    }
+}
@@ -0,0 +1,25 @@
+package com.poc.kafka.handler;
+
+import com.poc.kafka.consumer.RecordCompletion;
+import com.poc.kafka.model.ProcessedChangeEvent;
+
+/**
+ * Business logic for the change events of one MongoDB collection
+ * Implementations are Spring beans; the registry picks them up by collection name, so onboarding a
+ * collection means adding it to app.mongodb.collections and, if it needs logic, one handler bean.
+ */
+public interface CollectionChangeHandler {
+    
+    /**
+     * Name of the collection this handler is for
+     */
+    String collection();
+    
+    /**
+     * Handle a processed change event; runs in the collection's bulkhead
+     *
+     * @param completion the consumed record; work that finishes after handle returns is awaited on it,
+     *                   so the record is acknowledged only once that work is done
+     */
+    void handle(ProcessedChangeEvent event, RecordCompletion completion);
+}
@@ -0,0 +1,95 @@
+package com.poc.kafka.handler;
+
+import com.poc.kafka.config.MongoCollectionsProperties;
+import com.poc.kafka.consumer.RecordCompletion;
+import com.poc.kafka.model.ProcessedChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dispatch table from the configured collections to their handlers
+ * Resolved once at startup: each collection in app.mongodb.collections gets a slot in an array,
+ * holding its handler bean or a logging default. The CDC listener's topics are derived from the
+ * same list, so a new collection needs no listener change. The listener resolves a record's slot from
+ * its topic and hands the handler lane only the index.
+ */
+@Component("collectionHandlerRegistry")
+public class CollectionHandlerRegistry {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CollectionHandlerRegistry.class);
+    
+    /** Slot of a topic whose collection is not configured */
+    public static final int NO_HANDLER = -1;
+    
+    private final MongoCollectionsProperties properties;
+    /** Filled in the constructor and only read afterwards */
+    private final Map<String, Integer> slotsByTopic = new HashMap<>();
+    private final CollectionChangeHandler[] handlers;
+    
+    public CollectionHandlerRegistry(MongoCollectionsProperties properties, List<CollectionChangeHandler> handlerBeans) {
+        this.properties = properties;
+        
+        Map<String, CollectionChangeHandler> byCollection = new HashMap<>();
+        for (CollectionChangeHandler handler : handlerBeans) {
+            if (byCollection.put(handler.collection(), handler) != null) {
+                throw new IllegalStateException("More than one handler for collection " + handler.collection());
+            }
+        }
+        
+        List<String> collections = properties.getCollections();
+        this.handlers = new CollectionChangeHandler[collections.size()];
+        for (int i = 0; i < collections.size(); i++) {
+            String collection = collections.get(i);
+            slotsByTopic.put(properties.topicOf(collection), i);
+            handlers[i] = byCollection.containsKey(collection) ? byCollection.remove(collection) : new LoggingHandler(collection);
+        }
+        byCollection.keySet().forEach(collection ->
+                logger.warn("⚠️ Handler for {} is not used: the collection is not in app.mongodb.collections", collection));
+        logger.info("🗂️ Dispatching {} collections: {}", collections.size(), collections);
+    }
+    
+    /**
+     * CDC topics to subscribe to, one per configured collection
+     */
+    public String[] topics() {
+        return properties.getCollections().stream().map(properties::topicOf).toArray(String[]::new);
+    }
+    
+    /**
+     * Dispatch slot of the CDC topic an event was read from
+     *
+     * @return the slot to pass to handle, or NO_HANDLER if the topic's collection is not configured
+     */
+    public int slotForTopic(String topic) {
+        return slotsByTopic.getOrDefault(topic, NO_HANDLER);
+    }
+    
+    /**
+     * Run the handler in the given slot
+     *
+     * @param slot resolved with slotForTopic
+     */
+    public void handle(int slot, ProcessedChangeEvent event, RecordCompletion completion) {
+        if (slot == NO_HANDLER) {
+            logger.info("📝 Processed generic event for collection: {}", event.getCollection());
+            return;
+        }
+        handlers[slot].handle(event, completion);
+    }
+    
+    /**
+     * Default for configured collections without a handler bean
+     */
+    private record LoggingHandler(String collection) implements CollectionChangeHandler {
+        
+        @Override
+        public void handle(ProcessedChangeEvent event, RecordCompletion completion) {
+            logger.info("📝 Processed generic event for collection: {}", event.getCollection());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.poc.kafka.handler;
+
+import com.poc.kafka.aggregation.OrderAggregationService;
+import com.poc.kafka.cache.PageResponseCache;
+import com.poc.kafka.consumer.RecordCompletion;
+import com.poc.kafka.model.ProcessedChangeEvent;
+import com.poc.kafka.service.OrderEnrichmentService;
+import com.poc.kafka.state.OrderStateIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Handle order-specific events
+ */
+@Component
+public class OrderChangeHandler implements CollectionChangeHandler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderChangeHandler.class);
+    
+    private final OrderEnrichmentService orderEnrichmentService;
+    private final OrderAggregationService orderAggregationService;
+    private final OrderStateIndex orderStateIndex;
+    private final PageResponseCache pageResponseCache;
+    
+    public OrderChangeHandler(OrderEnrichmentService orderEnrichmentService,
+                              OrderAggregationService orderAggregationService,
+                              OrderStateIndex orderStateIndex,
+                              PageResponseCache pageResponseCache) {
+        this.orderEnrichmentService = orderEnrichmentService;
+        this.orderAggregationService = orderAggregationService;
+        this.orderStateIndex = orderStateIndex;
+        this.pageResponseCache = pageResponseCache;
+    }
+    
+    @Override
+    public String collection() {
+        return "orders";
+    }
+    
+    @Override
+    public void handle(ProcessedChangeEvent event, RecordCompletion completion) {
+        logger.info("🛒 Processing order event: ID={}, Type={}", 
+                   event.getDocumentId(), event.getEventType());
+        
+        // Example business logic for order events:
+        // - Update inventory
+        // - Send order confirmation
+        // - Trigger fulfillment workflow
+        // - Update analytics
+        // - etc.
+        
+        if ("INSERT".equals(event.getEventType())) {
+            logger.info("🆕 New order created: {}", event.getDocumentId());
+            
+            // Serve interactive order queries from in-process state
+            orderStateIndex.put(event.getDocumentId(), event.getData(), event.getTimestamp());
+            
+            // Drop cached /api/data/orders pages this order belongs to
+            Map<String, Object> data = event.getData() != null ? event.getData() : Map.of();
+            pageResponseCache.onDocumentChanged("orders", event.getDocumentId(),
+                    Objects.toString(data.get("userId"), null), Objects.toString(data.get("status"), null));
+            
+            // Join with the latest known user and publish to the enriched orders topic; acknowledged once published
+            orderEnrichmentService.onOrder(event, completion);
+            
+            // Count towards the per-user windowed aggregates; acknowledged once a checkpoint holds it
+            orderAggregationService.onOrder(event, completion);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.poc.kafka.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.kafka.cache.PageResponseCache;
+import com.poc.kafka.cache.UserEmailFilter;
+import com.poc.kafka.cache.UserExistenceCache;
+import com.poc.kafka.consumer.RecordCompletion;
+import com.poc.kafka.model.ProcessedChangeEvent;
+import com.poc.kafka.service.OrderEnrichmentService;
+import com.poc.kafka.state.UserStateStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Handle user-specific events
+ */
+@Component
+public class UserChangeHandler implements CollectionChangeHandler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeHandler.class);
+    
+    private final ObjectMapper objectMapper;
+    private final UserExistenceCache userExistenceCache;
+    private final UserEmailFilter userEmailFilter;
+    private final UserStateStore userStateStore;
+    private final OrderEnrichmentService orderEnrichmentService;
+    private final PageResponseCache pageResponseCache;
+    
+    public UserChangeHandler(ObjectMapper objectMapper,
+                             UserExistenceCache userExistenceCache,
+                             UserEmailFilter userEmailFilter,
+                             UserStateStore userStateStore,
+                             OrderEnrichmentService orderEnrichmentService,
+                             PageResponseCache pageResponseCache) {
+        this.objectMapper = objectMapper;
+        this.userExistenceCache = userExistenceCache;
+        this.userEmailFilter = userEmailFilter;
+        this.userStateStore = userStateStore;
+        this.orderEnrichmentService = orderEnrichmentService;
+        this.pageResponseCache = pageResponseCache;
+    }
+    
+    @Override
+    public String collection() {
+        return "users";
+    }
+    
+    @Override
+    public void handle(ProcessedChangeEvent event, RecordCompletion completion) {
+        logger.info("👤 Processing user event: ID={}, Type={}", 
+                   event.getDocumentId(), event.getEventType());
+        
+        // Example business logic for user events:
+        // - Send welcome email for new users
+        // - Update user analytics
+        // - Sync with external CRM systems
+        // - etc.
+        
+        if ("INSERT".equals(event.getEventType())) {
+            // Keep the order write path's user id cache current
+            userExistenceCache.recordUser(event.getDocumentId());
+            pageResponseCache.onDocumentChanged("users", event.getDocumentId(), null, null);
+            
+            // Log user details
+            if (event.getData() != null) {
+                String name = (String) event.getData().get("name");
+                String email = (String) event.getData().get("email");
+                Object age = event.getData().get("age");
+                userEmailFilter.recordEmail(email);
+                userStateStore.put(event.getDocumentId(), event.getData(), event.getTimestamp());
+                orderEnrichmentService.onUser(event.getDocumentId());
+                
+                logger.info("🆕 New user created: ID={}, Name='{}', Email='{}', Age={}", 
+                           event.getDocumentId(), name, email, age);
+                logger.info("📋 Full user data: {}", formatUserData(event.getData()));
+            } else {
+                logger.info("🆕 New user created: {}", event.getDocumentId());
+            }
+            // Add your new user logic here
+        }
+    }
+    
+    /**
+     * Format user data for logging (hide sensitive info if needed)
+     */
+    private String formatUserData(Map<String, Object> userData) {
+        if (userData == null) {
+            return "null";
+        }
+        
+        // Create a copy to avoid modifying original data
+        Map<String, Object> logData = new HashMap<>(userData);
+        
+        // Remove or mask sensitive fields if needed
+        // logData.put("password", "***");
+        // logData.remove("ssn");
+        
+        try {
+            return objectMapper.writeValueAsString(logData);
+        } catch (Exception e) {
+            return userData.toString();
+        }
+    }
+}
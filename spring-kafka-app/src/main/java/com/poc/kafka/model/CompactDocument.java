@@ -0,0 +1,105 @@
+package com.poc.kafka.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable document map holding only a flat array of values
+ * The keys, their order and the lookup table live in a DocumentLayout shared with every other document
+ * of the collection that has the same fields; see DocumentKeyDictionary. Mutators throw
+ * UnsupportedOperationException.
+ */
+@JsonSerialize(using = CompactDocumentSerializer.class)
+public final class CompactDocument extends AbstractMap<String, Object> {
+    
+    private final DocumentLayout layout;
+    private final Object[] values;
+    
+    CompactDocument(DocumentLayout layout, Object[] values) {
+        this.layout = layout;
+        this.values = values;
+    }
+    
+    @Override
+    public int size() {
+        return values.length;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+    
+    @Override
+    public Object get(Object key) {
+        int index = layout.indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+    
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        int index = layout.indexOf(key);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return layout.indexOf(key) >= 0;
+    }
+    
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        for (int i = 0; i < values.length; i++) {
+            action.accept(layout.key(i), values[i]);
+        }
+    }
+    
+    /**
+     * Key at a position, in the order the fields arrived
+     */
+    public String keyAt(int index) {
+        return layout.key(index);
+    }
+    
+    public Object valueAt(int index) {
+        return values[index];
+    }
+    
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return values.length;
+            }
+            
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+                    
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+                    
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (next >= values.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        return new SimpleImmutableEntry<>(layout.key(index), values[index]);
+                    }
+                };
+            }
+        };
+    }
+}
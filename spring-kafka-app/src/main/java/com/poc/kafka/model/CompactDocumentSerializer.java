@@ -0,0 +1,34 @@
+package com.poc.kafka.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a CompactDocument as a JSON object straight from its layout and values, without entry objects
+ */
+public class CompactDocumentSerializer extends StdSerializer<CompactDocument> {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public CompactDocumentSerializer() {
+        super(CompactDocument.class);
+    }
+    
+    @Override
+    public boolean isEmpty(SerializerProvider provider, CompactDocument document) {
+        return document.isEmpty();
+    }
+    
+    @Override
+    public void serialize(CompactDocument document, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(document, document.size());
+        for (int i = 0; i < document.size(); i++) {
+            generator.writeFieldName(document.keyAt(i));
+            provider.defaultSerializeValue(document.valueAt(i), generator);
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,104 @@
+package com.poc.kafka.model;
+
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Key dictionary of one collection, learned from its documents
+ * Holds one canonical String per field name and the layouts (ordered key sets) seen so far; documents
+ * converted to CompactDocument then keep only their values. Nested objects share the dictionary. Past
+ * maxLayouts new shapes are no longer learned and such documents are kept as they are.
+ */
+public class DocumentKeyDictionary {
+    
+    private final int maxLayouts;
+    private final DocumentLayout root = DocumentLayout.root();
+    private final ConcurrentMap<String, String> keys = new ConcurrentHashMap<>();
+    private final AtomicInteger layouts = new AtomicInteger();
+    private final LongAdder compacted = new LongAdder();
+    private final LongAdder uncompacted = new LongAdder();
+    
+    public DocumentKeyDictionary(int maxLayouts) {
+        this.maxLayouts = maxLayouts;
+    }
+    
+    /**
+     * Compact form of a document and of the objects nested in it
+     * Lists are updated in place, so the document must not be shared yet.
+     *
+     * @return a CompactDocument, or the document itself if its layout could not be learned
+     */
+    public Map<String, Object> compact(Map<String, Object> document) {
+        if (document == null || document instanceof CompactDocument) {
+            return document;
+        }
+        DocumentLayout layout = root;
+        Object[] values = new Object[document.size()];
+        int index = 0;
+        for (Map.Entry<String, Object> field : document.entrySet()) {
+            layout = next(layout, field.getKey());
+            if (layout == null) {
+                uncompacted.increment();
+                return document;
+            }
+            values[index++] = compactValue(field.getValue());
+        }
+        compacted.increment();
+        return new CompactDocument(layout, values);
+    }
+    
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "keys", keys.size(),
+                "layouts", layouts.get(),
+                "compacted", compacted.sum(),
+                "uncompacted", uncompacted.sum()
+        );
+    }
+    
+    private DocumentLayout next(DocumentLayout layout, String key) {
+        DocumentLayout next = layout.next(key);
+        if (next != null || key == null) {
+            return next;
+        }
+        // Reserve the new layout before learning it, so concurrent learners cannot all pass the cap
+        if (layouts.incrementAndGet() > maxLayouts) {
+            layouts.decrementAndGet();
+            // Another thread may have learned it in the meantime
+            return layout.next(key);
+        }
+        AtomicBoolean created = new AtomicBoolean();
+        DocumentLayout learned = layout.learn(key, k -> {
+            created.set(true);
+            return keys.computeIfAbsent(k, name -> name);
+        });
+        if (!created.get()) {
+            // Learned concurrently by another thread, which counted it
+            layouts.decrementAndGet();
+        }
+        return learned;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Object compactValue(Object value) {
+        if (value instanceof Map<?, ?> nested) {
+            return compact((Map<String, Object>) nested);
+        }
+        if (value instanceof List<?> list) {
+            ListIterator<Object> elements = ((List<Object>) list).listIterator();
+            while (elements.hasNext()) {
+                Object element = elements.next();
+                if (element instanceof Map || element instanceof List) {
+                    elements.set(compactValue(element));
+                }
+            }
+        }
+        return value;
+    }
+}
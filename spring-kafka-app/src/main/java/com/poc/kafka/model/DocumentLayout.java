@@ -0,0 +1,103 @@
+package com.poc.kafka.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * An ordered set of document keys shared by every CompactDocument with those keys
+ * Layouts form a tree learned from documents: each layout links to the layouts that extend it by one key,
+ * so finding a document's layout is a walk of lookups without allocation once the shape has been seen.
+ */
+final class DocumentLayout {
+    
+    /** Up to this many keys a linear scan beats hashing */
+    private static final int LINEAR_SCAN_MAX_KEYS = 8;
+    
+    private final String[] keys;
+    /** Open-addressing table of key index + 1, null for small layouts */
+    private final int[] slots;
+    private final ConcurrentMap<String, DocumentLayout> transitions = new ConcurrentHashMap<>();
+    
+    static DocumentLayout root() {
+        return new DocumentLayout(new String[0]);
+    }
+    
+    private DocumentLayout(String[] keys) {
+        this.keys = keys;
+        this.slots = keys.length > LINEAR_SCAN_MAX_KEYS ? buildSlots(keys) : null;
+    }
+    
+    int size() {
+        return keys.length;
+    }
+    
+    String key(int index) {
+        return keys[index];
+    }
+    
+    /**
+     * Position of a key in this layout, -1 if absent
+     */
+    int indexOf(Object key) {
+        if (!(key instanceof String name)) {
+            return -1;
+        }
+        if (slots == null) {
+            // Keys are canonical instances, so the identity check usually hits first
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == name) {
+                    return i;
+                }
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = slots.length - 1;
+        for (int slot = name.hashCode() & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            String candidate = keys[slots[slot] - 1];
+            if (candidate == name || candidate.equals(name)) {
+                return slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * The layout with one more key, null if it has not been learned yet
+     */
+    DocumentLayout next(String key) {
+        return transitions.get(key);
+    }
+    
+    /**
+     * The layout with one more key, learning it if needed
+     *
+     * @param canonicalKey canonical instance of the key, applied only when the layout is created
+     */
+    DocumentLayout learn(String key, Function<String, String> canonicalKey) {
+        return transitions.computeIfAbsent(key, k -> {
+            String[] extended = Arrays.copyOf(keys, keys.length + 1);
+            extended[keys.length] = canonicalKey.apply(k);
+            return new DocumentLayout(extended);
+        });
+    }
+    
+    private static int[] buildSlots(String[] keys) {
+        int[] slots = new int[Integer.highestOneBit(keys.length * 2 - 1) << 1];
+        int mask = slots.length - 1;
+        for (int i = 0; i < keys.length; i++) {
+            int slot = keys[i].hashCode() & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+        return slots;
+    }
+}
@@ -1,5 +1,6 @@
 package com.poc.kafka.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.Instant;
@@ -31,6 +32,10 @@ public class ProcessedChangeEvent {
     @JsonProperty("processingTimestamp")
     private Instant processingTimestamp;
     
+    @JsonProperty("enrichment")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Object> enrichment;
+    
     // Constructors
     public ProcessedChangeEvent() {
         this.processingTimestamp = Instant.now();
@@ -47,6 +52,18 @@ public class ProcessedChangeEvent {
         this.processingTimestamp = Instant.now();
     }
     
+    public ProcessedChangeEvent(String eventType, String collection, String documentId, 
+                              Instant timestamp, Map<String, Object> data, String source,
+                              Instant processingTimestamp) {
+        this.eventType = eventType;
+        this.collection = collection;
+        this.documentId = documentId;
+        this.timestamp = timestamp;
+        this.data = data;
+        this.source = source;
+        this.processingTimestamp = processingTimestamp;
+    }
+    
     // Getters and Setters
     public String getEventType() {
         return eventType;
@@ -104,6 +121,14 @@ public class ProcessedChangeEvent {
         this.processingTimestamp = processingTimestamp;
     }
     
+    public Map<String, Object> getEnrichment() {
+        return enrichment;
+    }
+    
+    public void setEnrichment(Map<String, Object> enrichment) {
+        this.enrichment = enrichment;
+    }
+    
     @Override
     public String toString() {
         return "ProcessedChangeEvent{" +
@@ -0,0 +1,124 @@
+package com.poc.kafka.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.kafka.decoder.ChangeEventDecoderRegistry;
+import com.poc.kafka.model.ProcessedChangeEvent;
+import com.poc.kafka.service.ChangeEventProcessor;
+import com.poc.kafka.service.ChangeEventProducer;
+import com.poc.kafka.service.DocumentDictionaryRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures heap allocation per event on the processing hot path
+ * Runs a synthetic Debezium insert through decoding, processing, key building and serialization
+ * (everything up to the Kafka send) on a dedicated platform thread and reads that thread's allocated
+ * bytes from the HotSpot ThreadMXBean. Run once with low-allocation mode off and once with it on to compare.
+ * The processor runs on registries of its own, so the sample topic is not detected for the live
+ * consumer and the sample documents do not add layouts to the live dictionaries.
+ */
+@Service
+public class AllocationBenchmark {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AllocationBenchmark.class);
+    
+    private static final String SAMPLE_TOPIC = "poc.poc.users";
+    private static final String SAMPLE_MESSAGE = "{\"before\":null,"
+            + "\"after\":\"{\\\"_id\\\": {\\\"$oid\\\": \\\"656a1f0e8b3c2a4d5e6f7a8b\\\"}, \\\"name\\\": \\\"John Doe\\\", "
+            + "\\\"email\\\": \\\"john.doe@example.com\\\", \\\"age\\\": 30, "
+            + "\\\"createdAt\\\": {\\\"$date\\\": 1701432000000}}\","
+            + "\"source\":{\"version\":\"2.4.0.Final\",\"connector\":\"mongodb\",\"name\":\"poc\",\"ts_ms\":1701432000000,"
+            + "\"snapshot\":\"false\",\"db\":\"poc\",\"rs\":\"rs0\",\"collection\":\"users\",\"ord\":1},"
+            + "\"op\":\"c\",\"ts_ms\":1701432000123,\"transaction\":null}";
+    
+    private final ObjectMapper objectMapper;
+    private final ChangeEventDecoderRegistry decoderRegistry;
+    private final DocumentDictionaryRegistry documentDictionaries;
+    private final ChangeEventProducer changeEventProducer;
+    private final CoarseClock clock;
+    
+    @Value("${app.processing.low-allocation.enabled:false}")
+    private boolean lowAllocation;
+    
+    public AllocationBenchmark(ObjectMapper objectMapper, ChangeEventDecoderRegistry decoderRegistry,
+                               DocumentDictionaryRegistry documentDictionaries, ChangeEventProducer changeEventProducer,
+                               CoarseClock clock) {
+        this.objectMapper = objectMapper;
+        this.decoderRegistry = decoderRegistry;
+        this.documentDictionaries = documentDictionaries;
+        this.changeEventProducer = changeEventProducer;
+        this.clock = clock;
+    }
+    
+    /**
+     * Process warmupEvents sample inserts, then measure events more
+     */
+    public Map<String, Object> run(int warmupEvents, int events) throws InterruptedException {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean)
+                || !threadBean.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("Per-thread allocation accounting is not supported by this JVM");
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        ChangeEventProcessor processor = new ChangeEventProcessor(objectMapper, decoderRegistry.detachedCopy(), clock,
+                                                                  documentDictionaries.detachedCopy());
+        AtomicReference<Map<String, Object>> result = new AtomicReference<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        // A platform thread, since allocation accounting reports nothing for virtual threads
+        Thread worker = new Thread(() -> {
+            try {
+                runEvents(processor, warmupEvents, SAMPLE_TOPIC, SAMPLE_MESSAGE);
+                long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                long bytesOut = runEvents(processor, events, SAMPLE_TOPIC, SAMPLE_MESSAGE);
+                long elapsedNanos = System.nanoTime() - start;
+                long allocated = threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("lowAllocationMode", lowAllocation);
+                stats.put("coarseClock", clock.isCoarse());
+                stats.put("perEventInfoLogging", LoggerFactory.getLogger(ChangeEventProcessor.class).isInfoEnabled());
+                stats.put("warmupEvents", warmupEvents);
+                stats.put("events", events);
+                stats.put("allocatedBytes", allocated);
+                stats.put("bytesPerEvent", events > 0 ? allocated / events : 0);
+                stats.put("outputBytesPerEvent", events > 0 ? bytesOut / events : 0);
+                stats.put("elapsedMs", elapsedNanos / 1_000_000);
+                stats.put("eventsPerSecond", elapsedNanos > 0 ? Math.round(events * 1e9 / elapsedNanos) : 0);
+                result.set(stats);
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        }, "allocation-benchmark");
+        worker.start();
+        worker.join();
+        
+        if (failure.get() != null) {
+            throw new IllegalStateException("Benchmark failed: " + failure.get().getMessage(), failure.get());
+        }
+        logger.info("🧪 Allocation benchmark: {}", result.get());
+        return result.get();
+    }
+    
+    /**
+     * @return total length of the serialized output, so the work can't be optimized away
+     */
+    private long runEvents(ChangeEventProcessor processor, int count, String topic, String message) throws Exception {
+        long outputLength = 0;
+        for (int i = 0; i < count; i++) {
+            ProcessedChangeEvent event = processor.processChangeEvent(message, topic);
+            if (event == null) {
+                throw new IllegalArgumentException("Sample message was not processed (not an insert or unreadable)");
+            }
+            outputLength += changeEventProducer.messageKey(event).length();
+            outputLength += changeEventProducer.serialize(event).length();
+        }
+        return outputLength;
+    }
+}
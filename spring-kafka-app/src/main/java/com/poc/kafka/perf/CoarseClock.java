@@ -0,0 +1,54 @@
+package com.poc.kafka.perf;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall clock for per-event timestamps
+ * In low-allocation mode a background thread publishes one shared Instant every clock-resolution-ms,
+ * so stamping an event costs a volatile read instead of an Instant.now() allocation.
+ * Otherwise it is a plain Instant.now().
+ */
+@Component
+public class CoarseClock {
+    
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coarse-clock");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Instant now = Instant.now();
+    
+    @Value("${app.processing.low-allocation.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${app.processing.low-allocation.clock-resolution-ms:10}")
+    private long resolutionMs;
+    
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            ticker.scheduleAtFixedRate(() -> now = Instant.now(), resolutionMs, resolutionMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+    
+    public Instant instant() {
+        return enabled ? now : Instant.now();
+    }
+    
+    public boolean isCoarse() {
+        return enabled;
+    }
+}
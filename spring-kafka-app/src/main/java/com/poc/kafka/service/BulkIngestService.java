@@ -0,0 +1,330 @@
+package com.poc.kafka.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.kafka.cache.UserEmailFilter;
+import com.poc.kafka.cache.UserExistenceCache;
+import com.poc.kafka.dto.CreateOrderRequest;
+import com.poc.kafka.dto.CreateUserRequest;
+import com.poc.kafka.model.Order;
+import com.poc.kafka.model.User;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Service for streaming NDJSON bulk ingestion of users and orders
+ * The request body is read line by line and written to MongoDB in unordered bulk inserts,
+ * so only one chunk of documents is held in memory at a time
+ */
+@Service
+public class BulkIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkIngestService.class);
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final UserExistenceCache userExistenceCache;
+    private final UserEmailFilter userEmailFilter;
+
+    @Value("${app.data.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.data.bulk.max-errors-per-chunk:20}")
+    private int maxErrorsPerChunk;
+
+    public BulkIngestService(MongoTemplate mongoTemplate, ObjectMapper objectMapper, Validator validator,
+                             UserExistenceCache userExistenceCache, UserEmailFilter userEmailFilter) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.userExistenceCache = userExistenceCache;
+        this.userEmailFilter = userEmailFilter;
+    }
+
+    /**
+     * Ingest an NDJSON stream of CreateUserRequest documents
+     *
+     * @param body the request body, one JSON document per line
+     * @return summary with per-chunk results
+     */
+    public Map<String, Object> ingestUsers(InputStream body) throws IOException {
+        return ingest(body, CreateUserRequest.class, this::writeUserChunk);
+    }
+
+    /**
+     * Ingest an NDJSON stream of CreateOrderRequest documents
+     *
+     * @param body the request body, one JSON document per line
+     * @return summary with per-chunk results
+     */
+    public Map<String, Object> ingestOrders(InputStream body) throws IOException {
+        return ingest(body, CreateOrderRequest.class, this::writeOrderChunk);
+    }
+
+    /**
+     * Read the body line by line, validate each line and flush a chunk once it is full
+     */
+    private <T> Map<String, Object> ingest(InputStream body, Class<T> requestType, ChunkWriter<T> writer) throws IOException {
+        List<Map<String, Object>> chunkResults = new ArrayList<>();
+        ChunkResult chunk = new ChunkResult(1, maxErrorsPerChunk);
+        List<Line<T>> pending = new ArrayList<>(chunkSize);
+        long totalLines = 0;
+        long totalInserted = 0;
+        long totalRejected = 0;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String text;
+        long lineNumber = 0;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+            totalLines++;
+            chunk.received(lineNumber);
+
+            try {
+                T request = objectMapper.readValue(text, requestType);
+                // A "null" line binds to no request at all rather than failing to parse
+                if (request == null) {
+                    chunk.reject(lineNumber, "Expected a JSON object, got null");
+                } else {
+                    Set<ConstraintViolation<T>> violations = validator.validate(request);
+                    if (violations.isEmpty()) {
+                        pending.add(new Line<>(lineNumber, request));
+                    } else {
+                        chunk.reject(lineNumber, violations.stream()
+                                .map(ConstraintViolation::getMessage)
+                                .collect(Collectors.joining("; ")));
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                chunk.reject(lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+            }
+
+            if (chunk.received >= chunkSize) {
+                writer.write(pending, chunk);
+                totalInserted += chunk.inserted;
+                totalRejected += chunk.rejected;
+                chunkResults.add(chunk.toMap());
+
+                pending.clear();
+                chunk = new ChunkResult(chunk.index + 1, maxErrorsPerChunk);
+            }
+        }
+
+        if (chunk.received > 0) {
+            writer.write(pending, chunk);
+            totalInserted += chunk.inserted;
+            totalRejected += chunk.rejected;
+            chunkResults.add(chunk.toMap());
+        }
+
+        logger.info("📦 Bulk ingest of {} finished: lines={}, inserted={}, rejected={}, chunks={}",
+                   requestType.getSimpleName(), totalLines, totalInserted, totalRejected, chunkResults.size());
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("status", totalRejected == 0 ? "success" : "partial");
+        summary.put("lines", totalLines);
+        summary.put("inserted", totalInserted);
+        summary.put("rejected", totalRejected);
+        summary.put("chunkSize", chunkSize);
+        summary.put("chunks", chunkResults);
+        return summary;
+    }
+
+    /**
+     * Insert a chunk of users, relying on the unique email index for duplicates
+     * Only emails the CDC-fed filter may have seen are looked up, in a single query per chunk
+     */
+    private void writeUserChunk(List<Line<CreateUserRequest>> lines, ChunkResult chunk) {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        Set<String> candidates = lines.stream()
+                .map(line -> line.request().getEmail())
+                .filter(userEmailFilter::mightExist)
+                .collect(Collectors.toSet());
+        Set<String> taken = new HashSet<>();
+        if (!candidates.isEmpty()) {
+            Query existingQuery = new Query(Criteria.where("email").in(candidates));
+            existingQuery.fields().include("email");
+            mongoTemplate.find(existingQuery, User.class).forEach(user -> taken.add(user.getEmail()));
+        }
+
+        List<Line<CreateUserRequest>> accepted = new ArrayList<>(lines.size());
+        for (Line<CreateUserRequest> line : lines) {
+            String email = line.request().getEmail();
+            if (!taken.add(email)) {
+                chunk.reject(line.number(), duplicateEmailMessage(email));
+            } else {
+                accepted.add(line);
+            }
+        }
+
+        List<User> users = accepted.stream()
+                .map(line -> new User(line.request().getName(), line.request().getEmail(), line.request().getAge()))
+                .toList();
+        bulkInsert(users, User.class, accepted, chunk,
+                index -> duplicateEmailMessage(accepted.get(index).request().getEmail()));
+        accepted.forEach(line -> userEmailFilter.recordEmail(line.request().getEmail()));
+    }
+
+    private static String duplicateEmailMessage(String email) {
+        return "User with email " + email + " already exists";
+    }
+
+    /**
+     * Insert a chunk of orders, verifying all referenced users with a single lookup per chunk
+     */
+    private void writeOrderChunk(List<Line<CreateOrderRequest>> lines, ChunkResult chunk) {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        // Only users missing from the CDC-fed id cache need a lookup
+        Set<String> unknownIds = lines.stream()
+                .map(line -> line.request().getUserId())
+                .filter(userId -> !userExistenceCache.isKnown(userId))
+                .collect(Collectors.toSet());
+        Set<String> foundUsers = new HashSet<>();
+        if (!unknownIds.isEmpty()) {
+            Query existingQuery = new Query(Criteria.where("_id").in(unknownIds));
+            existingQuery.fields().include("_id");
+            for (User user : mongoTemplate.find(existingQuery, User.class)) {
+                foundUsers.add(user.getId());
+                userExistenceCache.recordUser(user.getId());
+            }
+        }
+
+        List<Line<CreateOrderRequest>> accepted = new ArrayList<>(lines.size());
+        for (Line<CreateOrderRequest> line : lines) {
+            String userId = line.request().getUserId();
+            if (unknownIds.contains(userId) && !foundUsers.contains(userId)) {
+                chunk.reject(line.number(), "User with ID " + userId + " not found");
+            } else {
+                accepted.add(line);
+            }
+        }
+
+        List<Order> orders = accepted.stream()
+                .map(line -> new Order(line.request().getUserId(), line.request().getItems(), line.request().getTotalAmount()))
+                .toList();
+        bulkInsert(orders, Order.class, accepted, chunk, null);
+    }
+
+    /**
+     * Run an unordered bulk insert and map per-document write errors back to their NDJSON lines
+     *
+     * @param duplicateKeyMessage optional message for duplicate key errors, by document index
+     */
+    private void bulkInsert(List<?> documents, Class<?> entityType, List<? extends Line<?>> lines, ChunkResult chunk,
+                            IntFunction<String> duplicateKeyMessage) {
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        try {
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityType);
+            bulkOps.insert(documents);
+            chunk.inserted += bulkOps.execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            chunk.inserted += e.getResult().getInsertedCount();
+            for (BulkWriteError error : e.getErrors()) {
+                String message = error.getCode() == DUPLICATE_KEY_ERROR && duplicateKeyMessage != null
+                        ? duplicateKeyMessage.apply(error.getIndex())
+                        : error.getMessage();
+                chunk.reject(lines.get(error.getIndex()).number(), message);
+            }
+            logger.warn("Bulk insert chunk {} had {} write errors", chunk.index, e.getErrors().size());
+        }
+    }
+
+    /**
+     * Writes one chunk of validated requests, recording results on the chunk
+     */
+    @FunctionalInterface
+    private interface ChunkWriter<T> {
+        void write(List<Line<T>> lines, ChunkResult chunk);
+    }
+
+    /**
+     * A validated request together with its line number in the body
+     */
+    private record Line<T>(long number, T request) {}
+
+    /**
+     * Mutable per-chunk counters, converted to a response map once the chunk is written
+     */
+    private static class ChunkResult {
+
+        private final int index;
+        private final int maxErrors;
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private long firstLine = -1;
+        private long lastLine = -1;
+        private int received;
+        private int inserted;
+        private int rejected;
+
+        ChunkResult(int index, int maxErrors) {
+            this.index = index;
+            this.maxErrors = maxErrors;
+        }
+
+        void received(long lineNumber) {
+            if (firstLine < 0) {
+                firstLine = lineNumber;
+            }
+            lastLine = lineNumber;
+            received++;
+        }
+
+        void reject(long lineNumber, String message) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(Map.of("line", lineNumber, "message", String.valueOf(message)));
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("chunk", index);
+            result.put("firstLine", firstLine);
+            result.put("lastLine", lastLine);
+            result.put("received", received);
+            result.put("inserted", inserted);
+            result.put("rejected", rejected);
+            result.put("errors", errors);
+            return result;
+        }
+    }
+}
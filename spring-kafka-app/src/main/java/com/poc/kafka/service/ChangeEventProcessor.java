@@ -2,13 +2,18 @@ package com.poc.kafka.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.kafka.decoder.ChangeEventDecoderRegistry;
+import com.poc.kafka.decoder.DecodedChange;
 import com.poc.kafka.model.ChangeEvent;
 import com.poc.kafka.model.ProcessedChangeEvent;
+import com.poc.kafka.perf.CoarseClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service for processing MongoDB change events
@@ -19,72 +24,75 @@ public class ChangeEventProcessor {
     private static final Logger logger = LoggerFactory.getLogger(ChangeEventProcessor.class);
     
     private final ObjectMapper objectMapper;
+    private final ChangeEventDecoderRegistry decoderRegistry;
+    private final CoarseClock clock;
+    private final DocumentDictionaryRegistry documentDictionaries;
+    private final Map<String, String> collectionByTopic = new ConcurrentHashMap<>();
     
-    public ChangeEventProcessor(ObjectMapper objectMapper) {
+    public ChangeEventProcessor(ObjectMapper objectMapper, ChangeEventDecoderRegistry decoderRegistry, CoarseClock clock,
+                                DocumentDictionaryRegistry documentDictionaries) {
         this.objectMapper = objectMapper;
+        this.decoderRegistry = decoderRegistry;
+        this.clock = clock;
+        this.documentDictionaries = documentDictionaries;
     }
     
     /**
      * Process a raw change event message and convert it to a ProcessedChangeEvent
+     * Records that cannot be decoded throw, so the listener can send them on to the retry topics.
      *
      * @param rawMessage the raw JSON message from Kafka
      * @param topic the topic name
-     * @return ProcessedChangeEvent or null if processing fails
+     * @return ProcessedChangeEvent, or null for empty messages and operations other than inserts
+     * @throws IOException if the message is not valid JSON or no decoder recognizes it
      */
-    public ProcessedChangeEvent processChangeEvent(String rawMessage, String topic) {
-        try {
-            logger.debug("Processing raw message from topic: {}", topic);
-            
-            if (rawMessage == null || rawMessage.trim().isEmpty()) {
-                logger.warn("Received null or empty message from topic: {}", topic);
-                return null;
-            }
-            
-            // Parse the JSON message directly as Debezium change event format
-            ChangeEvent.Payload payload = objectMapper.readValue(rawMessage, ChangeEvent.Payload.class);
-            
-            if (payload == null) {
-                logger.warn("Failed to parse payload from topic: {}", topic);
-                return null;
-            }
-            
-            // Only process INSERT operations (as configured in Debezium)
-            if (!"c".equals(payload.getOperation())) {
-                logger.debug("Skipping non-insert operation: {} from topic: {}", payload.getOperation(), topic);
-                return null;
-            }
-            
-            // Extract collection name from topic
-            String collection = extractCollectionFromTopic(topic);
-            
-            // Parse the 'after' field which contains the actual document data as a JSON string
-            Map<String, Object> documentData = parseAfterData(payload.getAfter());
-            
-            // Extract document ID from the after data
-            String documentId = extractDocumentId(documentData);
-            
-            // Create processed event
-            ProcessedChangeEvent processedEvent = new ProcessedChangeEvent(
-                    "INSERT",
-                    collection,
-                    documentId,
-                    payload.getTimestamp(),
-                    documentData,
-                    "mongodb-debezium"
-            );
-            
-            logger.info("🆕 Processed INSERT event: Collection={}, DocumentId={}, Timestamp={}", 
-                       collection, documentId, payload.getTimestamp());
-            
-            return processedEvent;
-            
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to parse JSON message from topic {}: {}", topic, e.getMessage());
+    public ProcessedChangeEvent processChangeEvent(String rawMessage, String topic) throws IOException {
+        logger.debug("Processing raw message from topic: {}", topic);
+        
+        if (rawMessage == null || rawMessage.trim().isEmpty()) {
+            logger.warn("Received null or empty message from topic: {}", topic);
             return null;
-        } catch (Exception e) {
-            logger.error("Error processing change event from topic {}: {}", topic, e.getMessage(), e);
+        }
+        
+        // Decode with the topic's decoder (full envelope or flattened document, detected per topic)
+        DecodedChange change = decoderRegistry.decode(topic, rawMessage);
+        
+        if (change == null) {
+            throw new IOException("No decoder recognizes the message from topic " + topic);
+        }
+        
+        // Only process INSERT operations (as configured in Debezium)
+        if (!"c".equals(change.operation())) {
+            logger.debug("Skipping non-insert operation: {} from topic: {}", change.operation(), topic);
             return null;
         }
+        
+        // Extract collection name from topic (once per topic)
+        String collection = collectionByTopic.computeIfAbsent(topic, this::extractCollectionFromTopic);
+        
+        // Keys and layouts are shared per collection; the event keeps only the values
+        Map<String, Object> documentData = documentDictionaries.compact(collection, change.document());
+        
+        // Extract document ID from the after data
+        String documentId = extractDocumentId(documentData);
+        
+        // Create processed event
+        ProcessedChangeEvent processedEvent = new ProcessedChangeEvent(
+                "INSERT",
+                collection,
+                documentId,
+                change.timestamp(),
+                documentData,
+                "mongodb-debezium",
+                clock.instant()
+        );
+        
+        if (logger.isInfoEnabled()) {
+            logger.info("🆕 Processed INSERT event: Collection={}, DocumentId={}, Timestamp={}", 
+                       collection, documentId, change.timestamp());
+        }
+        
+        return processedEvent;
     }
     
     /**
@@ -98,34 +106,6 @@ public class ChangeEventProcessor {
         return topic;
     }
     
-    /**
-     * Parse the 'after' field which is a JSON string in MongoDB Debezium format
-     */
-    private Map<String, Object> parseAfterData(Object afterField) {
-        if (afterField == null) {
-            return null;
-        }
-        
-        try {
-            // The 'after' field in MongoDB Debezium format is a JSON string
-            if (afterField instanceof String) {
-                String afterJson = (String) afterField;
-                return objectMapper.readValue(afterJson, Map.class);
-            }
-            // If it's already a Map (shouldn't happen with current Debezium config)
-            else if (afterField instanceof Map) {
-                return (Map<String, Object>) afterField;
-            }
-            else {
-                logger.warn("Unexpected type for 'after' field: {}", afterField.getClass());
-                return null;
-            }
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to parse 'after' field as JSON: {}", e.getMessage());
-            return null;
-        }
-    }
-    
     /**
      * Extract document ID from the document data
      * MongoDB documents typically have an "_id" field
@@ -174,7 +154,8 @@ public class ChangeEventProcessor {
      * Log detailed information about the change event
      */
     public void logChangeEventDetails(ProcessedChangeEvent event) {
-        if (event == null) {
+        // Skip formatting the document when INFO is off
+        if (event == null || !logger.isInfoEnabled()) {
             return;
         }
         
@@ -1,16 +1,22 @@
 package com.poc.kafka.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.poc.kafka.archive.EventArchiveService;
+import com.poc.kafka.config.ThreadingConfig;
 import com.poc.kafka.model.ProcessedChangeEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Service for producing processed change events to Kafka
@@ -22,13 +28,27 @@ public class ChangeEventProducer {
     
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final ObjectMapper objectMapper;
+    private final Executor callbackExecutor;
+    private final EventArchiveService eventArchiveService;
+    private final ProducerFlowControl flowControl;
+    private final ObjectWriter eventWriter;
+    private final ThreadLocal<StringWriter> outputBuffers = ThreadLocal.withInitial(() -> new StringWriter(1024));
     
     @Value("${app.kafka.topics.output:processed-changes}")
     private String outputTopic;
     
-    public ChangeEventProducer(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+    @Value("${app.processing.low-allocation.enabled:false}")
+    private boolean lowAllocation;
+    
+    public ChangeEventProducer(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper,
+                               @Qualifier(ThreadingConfig.PRODUCER_CALLBACK_EXECUTOR) Executor callbackExecutor,
+                               EventArchiveService eventArchiveService, ProducerFlowControl flowControl) {
         this.kafkaTemplate = kafkaTemplate;
         this.objectMapper = objectMapper;
+        this.callbackExecutor = callbackExecutor;
+        this.eventArchiveService = eventArchiveService;
+        this.flowControl = flowControl;
+        this.eventWriter = objectMapper.writerFor(ProcessedChangeEvent.class);
     }
     
     /**
@@ -39,28 +59,29 @@ public class ChangeEventProducer {
     public void publishChangeEvent(ProcessedChangeEvent processedEvent) {
         try {
             // Convert the processed event to JSON
-            String messageValue = objectMapper.writeValueAsString(processedEvent);
+            String messageValue = serialize(processedEvent);
             
             // Use document ID as the key for partitioning
-            String messageKey = processedEvent.getCollection() + ":" + processedEvent.getDocumentId();
+            String messageKey = messageKey(processedEvent);
             
             // Send the message
-            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(outputTopic, messageKey, messageValue);
+            CompletableFuture<SendResult<String, String>> future = send(outputTopic, messageKey, messageValue);
             
-            // Handle the result asynchronously
-            future.whenComplete((result, ex) -> {
+            // Handle the result asynchronously (on a virtual thread in virtual thread mode)
+            future.whenCompleteAsync((result, ex) -> {
                 if (ex == null) {
                     logger.info("📤 Successfully published change event: Topic={}, Partition={}, Offset={}, Key={}", 
                                result.getRecordMetadata().topic(),
                                result.getRecordMetadata().partition(),
                                result.getRecordMetadata().offset(),
                                messageKey);
+                    eventArchiveService.append(result.getRecordMetadata(), messageKey, messageValue);
                 } else {
                     logger.error("❌ Failed to publish change event: Key={}, Error={}", messageKey, ex.getMessage(), ex);
                 }
-            });
+            }, callbackExecutor);
             
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error("Failed to serialize processed change event: {}", e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Unexpected error publishing change event: {}", e.getMessage(), e);
@@ -72,31 +93,84 @@ public class ChangeEventProducer {
      *
      * @param processedEvent the processed change event to publish
      * @param targetTopic the target topic name
+     * @return the send result, failed as well if the event could not be serialized or sent
      */
-    public void publishChangeEvent(ProcessedChangeEvent processedEvent, String targetTopic) {
+    public CompletableFuture<SendResult<String, String>> publishChangeEvent(ProcessedChangeEvent processedEvent, String targetTopic) {
         try {
-            String messageValue = objectMapper.writeValueAsString(processedEvent);
-            String messageKey = processedEvent.getCollection() + ":" + processedEvent.getDocumentId();
+            String messageValue = serialize(processedEvent);
+            String messageKey = messageKey(processedEvent);
             
-            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(targetTopic, messageKey, messageValue);
+            CompletableFuture<SendResult<String, String>> future = send(targetTopic, messageKey, messageValue);
             
-            future.whenComplete((result, ex) -> {
+            future.whenCompleteAsync((result, ex) -> {
                 if (ex == null) {
                     logger.info("📤 Successfully published change event to custom topic: Topic={}, Partition={}, Offset={}, Key={}", 
                                result.getRecordMetadata().topic(),
                                result.getRecordMetadata().partition(),
                                result.getRecordMetadata().offset(),
                                messageKey);
+                    eventArchiveService.append(result.getRecordMetadata(), messageKey, messageValue);
                 } else {
                     logger.error("❌ Failed to publish change event to custom topic: Topic={}, Key={}, Error={}", 
                                 targetTopic, messageKey, ex.getMessage(), ex);
                 }
-            });
+            }, callbackExecutor);
+            return future;
             
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error("Failed to serialize processed change event for custom topic {}: {}", targetTopic, e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
         } catch (Exception e) {
             logger.error("Unexpected error publishing change event to custom topic {}: {}", targetTopic, e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Re-send an already serialized event, e.g. from the archive, without archiving it again
+     *
+     * @return the send result, so callers can wait for a batch to be acknowledged
+     */
+    public CompletableFuture<SendResult<String, String>> republish(String targetTopic, String messageKey, String messageValue) {
+        return send(targetTopic, messageKey, messageValue);
+    }
+    
+    /**
+     * Serialize an event to the JSON message value
+     * In low-allocation mode the JSON is written into this thread's reusable buffer with a prebuilt
+     * writer, so only the final String is allocated.
+     */
+    public String serialize(ProcessedChangeEvent event) throws IOException {
+        if (!lowAllocation) {
+            return objectMapper.writeValueAsString(event);
+        }
+        StringWriter buffer = outputBuffers.get();
+        buffer.getBuffer().setLength(0);
+        eventWriter.writeValue(buffer, event);
+        return buffer.toString();
+    }
+    
+    /**
+     * Message key of an event; the document id keeps a document's events on one partition
+     */
+    public String messageKey(ProcessedChangeEvent event) {
+        return event.getCollection() + ":" + event.getDocumentId();
+    }
+    
+    /**
+     * Send through the template, counting the record as in flight until the broker answers
+     */
+    private CompletableFuture<SendResult<String, String>> send(String topic, String messageKey, String messageValue) {
+        // Approximate size; exact enough for water marks well below buffer.memory
+        long bytes = messageValue.length() + (messageKey != null ? messageKey.length() : 0);
+        flowControl.onSend(bytes);
+        try {
+            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(topic, messageKey, messageValue);
+            future.whenComplete((result, ex) -> flowControl.onComplete(bytes));
+            return future;
+        } catch (RuntimeException e) {
+            flowControl.onComplete(bytes);
+            throw e;
         }
     }
     
@@ -0,0 +1,140 @@
+package com.poc.kafka.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of compiled Debezium envelope schemas, keyed by a fingerprint of the schema's JSON text
+ * With value.converter.schemas.enable=true every message repeats the full schema. The most recently
+ * seen schemas are matched against the message text in place, so a known schema is passed over with a
+ * character comparison and the payload is parsed from just behind it; only an unknown schema is
+ * tokenized, fingerprinted and parsed once, to name the new schema version in the log and the stats.
+ */
+@Component
+public class ChangeEventSchemaCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChangeEventSchemaCache.class);
+    
+    /** Schemas tried in place; one per topic is typical, and each miss costs a comparison */
+    private static final int MAX_RECENT = 8;
+    
+    private final ObjectMapper objectMapper;
+    private final Map<Long, CompiledSchema> schemas = new ConcurrentHashMap<>();
+    private final ReentrantLock recentLock = new ReentrantLock();
+    /** Most recently resolved first; replaced, never modified, so readers need no lock */
+    private volatile CompiledSchema[] recent = new CompiledSchema[0];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesSkipped = new LongAdder();
+    
+    @Value("${app.processor.schema-cache.max-entries:256}")
+    private int maxEntries;
+    
+    public ChangeEventSchemaCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * A recently seen schema whose JSON text is repeated in the message from start on
+     * The cached text is a complete JSON object, so a match also ends where the message's schema ends.
+     *
+     * @return the schema, null if none of the recent ones matches and the schema has to be tokenized
+     */
+    public CompiledSchema match(String message, int start) {
+        for (CompiledSchema schema : recent) {
+            if (message.regionMatches(start, schema.text(), 0, schema.length())) {
+                hits.increment();
+                bytesSkipped.add(schema.length());
+                return schema;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+    
+    /**
+     * Compiled schema for the tokenized schema JSON at [start, end) of the message, parsed only on a
+     * fingerprint miss; either way it becomes the first schema match tries
+     */
+    public CompiledSchema resolve(String message, int start, int end) throws IOException {
+        long fingerprint = fingerprint(message, start, end);
+        CompiledSchema schema = schemas.get(fingerprint);
+        if (schema == null || !message.regionMatches(start, schema.text(), 0, end - start)) {
+            String text = message.substring(start, end);
+            JsonNode parsed = objectMapper.readTree(text);
+            schema = new CompiledSchema(fingerprint, text, parsed.path("name").asText(null));
+            if (schemas.size() < maxEntries) {
+                schemas.put(fingerprint, schema);
+                logger.info("🧬 Cached envelope schema {} (fingerprint {}, {} chars)",
+                           schema.name(), Long.toHexString(fingerprint), schema.length());
+            }
+        }
+        remember(schema);
+        return schema;
+    }
+    
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "schemas", schemas.size(),
+                "hits", hits.sum(),
+                "misses", misses.sum(),
+                "schemaCharsSkipped", bytesSkipped.sum()
+        );
+    }
+    
+    private void remember(CompiledSchema schema) {
+        recentLock.lock();
+        try {
+            CompiledSchema[] current = recent;
+            CompiledSchema[] updated = new CompiledSchema[Math.min(current.length + 1, MAX_RECENT)];
+            updated[0] = schema;
+            int next = 1;
+            for (CompiledSchema other : current) {
+                if (next == updated.length) {
+                    break;
+                }
+                if (other != schema) {
+                    updated[next++] = other;
+                }
+            }
+            recent = next == updated.length ? updated : Arrays.copyOf(updated, next);
+        } finally {
+            recentLock.unlock();
+        }
+    }
+    
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars of the region
+     */
+    private static long fingerprint(String message, int start, int end) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            h ^= message.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+    
+    /**
+     * A schema version seen in an envelope
+     *
+     * @param text the schema JSON, compared against messages in place of parsing their schema
+     */
+    public record CompiledSchema(long fingerprint, String text, String name) {
+        
+        public int length() {
+            return text.length();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.poc.kafka.service;
+
+import com.poc.kafka.model.DocumentKeyDictionary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-collection key dictionaries used to store ProcessedChangeEvent.data as CompactDocument
+ * Events are buffered by the sinks, bulkheads and enrichment and order documents are retained by the
+ * state index; sharing keys and layouts leaves each of them a single array of values.
+ */
+@Component
+public class DocumentDictionaryRegistry {
+    
+    private final Map<String, DocumentKeyDictionary> dictionaries = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final int maxLayouts;
+    
+    public DocumentDictionaryRegistry(@Value("${app.processor.document-dictionary.enabled:true}") boolean enabled,
+                                      @Value("${app.processor.document-dictionary.max-layouts:4096}") int maxLayouts) {
+        this.enabled = enabled;
+        this.maxLayouts = maxLayouts;
+    }
+    
+    /**
+     * An empty registry with the same settings, for work that must not share this one's layouts or stats
+     */
+    public DocumentDictionaryRegistry detachedCopy() {
+        return new DocumentDictionaryRegistry(enabled, maxLayouts);
+    }
+    
+    /**
+     * Compact form of a freshly decoded document, or the document itself when disabled
+     */
+    public Map<String, Object> compact(String collection, Map<String, Object> document) {
+        if (!enabled || document == null || collection == null) {
+            return document;
+        }
+        return dictionaries.computeIfAbsent(collection, c -> new DocumentKeyDictionary(maxLayouts)).compact(document);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        dictionaries.forEach((collection, dictionary) -> stats.put(collection, dictionary.getStats()));
+        return Map.of(
+                "enabled", enabled,
+                "collections", stats
+        );
+    }
+}
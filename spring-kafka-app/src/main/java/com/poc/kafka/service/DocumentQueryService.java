@@ -0,0 +1,144 @@
+package com.poc.kafka.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.poc.kafka.dto.CursorPage;
+import com.poc.kafka.model.Order;
+import com.poc.kafka.model.User;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Service for bounded-memory reads of users and orders
+ * Pages are keyed on _id (no skip/count), and streams write documents as the MongoDB cursor yields them
+ */
+@Service
+public class DocumentQueryService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DocumentQueryService.class);
+    
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${app.data.page.default-size:100}")
+    private int defaultPageSize;
+    
+    @Value("${app.data.page.max-size:1000}")
+    private int maxPageSize;
+    
+    @Value("${app.data.stream.cursor-batch-size:500}")
+    private int cursorBatchSize;
+    
+    @Value("${app.data.stream.flush-every:500}")
+    private int flushEvery;
+    
+    public DocumentQueryService(MongoTemplate mongoTemplate, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Fetch one page of users ordered by _id
+     *
+     * @param after the last _id of the previous page, or null for the first page
+     * @param limit requested page size, clamped to the configured maximum
+     */
+    public CursorPage<User> pageUsers(String after, Integer limit) {
+        return page(User.class, new Query(), after, limit, User::getId);
+    }
+    
+    /**
+     * Fetch one page of orders ordered by _id, optionally filtered by userId and/or status
+     */
+    public CursorPage<Order> pageOrders(String userId, String status, String after, Integer limit) {
+        return page(Order.class, orderQuery(userId, status), after, limit, Order::getId);
+    }
+    
+    /**
+     * Write all users as NDJSON in _id order
+     */
+    public long streamUsers(OutputStream out) throws IOException {
+        return stream(User.class, new Query(), out);
+    }
+    
+    /**
+     * Write all orders as NDJSON in _id order, optionally filtered by userId and/or status
+     */
+    public long streamOrders(String userId, String status, OutputStream out) throws IOException {
+        return stream(Order.class, orderQuery(userId, status), out);
+    }
+    
+    /**
+     * Validate a cursor value
+     */
+    public boolean isValidCursor(String after) {
+        return after == null || after.isEmpty() || ObjectId.isValid(after);
+    }
+    
+    private Query orderQuery(String userId, String status) {
+        Query query = new Query();
+        if (userId != null && !userId.isEmpty()) {
+            query.addCriteria(Criteria.where("userId").is(userId));
+        }
+        if (status != null && !status.isEmpty()) {
+            query.addCriteria(Criteria.where("status").is(status));
+        }
+        return query;
+    }
+    
+    private <T> CursorPage<T> page(Class<T> type, Query query, String after, Integer limit, Function<T, String> idOf) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(pageSize);
+        if (after != null && !after.isEmpty()) {
+            query.addCriteria(Criteria.where("_id").gt(new ObjectId(after)));
+        }
+        
+        List<T> items = mongoTemplate.find(query, type);
+        String nextCursor = items.size() == pageSize ? idOf.apply(items.get(items.size() - 1)) : null;
+        return new CursorPage<>(items, nextCursor, pageSize);
+    }
+    
+    private <T> long stream(Class<T> type, Query query, OutputStream out) throws IOException {
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(cursorBatchSize);
+        ObjectWriter writer = objectMapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        
+        long count = 0;
+        try (Stream<T> documents = mongoTemplate.stream(query, type);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            
+            Iterator<T> iterator = documents.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                if (++count % flushEvery == 0) {
+                    generator.flush();
+                }
+            }
+            if (count > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        
+        logger.info("📤 Streamed {} {} documents", count, type.getSimpleName());
+        return count;
+    }
+}
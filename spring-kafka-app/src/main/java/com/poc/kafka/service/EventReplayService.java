@@ -0,0 +1,356 @@
+package com.poc.kafka.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.kafka.archive.ArchivedEvent;
+import com.poc.kafka.archive.EventArchive;
+import com.poc.kafka.archive.EventArchiveService;
+import com.poc.kafka.dto.ReplayRequest;
+import com.poc.kafka.model.ProcessedChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Service re-publishing events from the local archive or an NDJSON replay file
+ * Replays run in the background, send in batches through ChangeEventProducer at a paced rate
+ * and report progress. The consumer group and its offsets are not involved.
+ */
+@Service
+public class EventReplayService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EventReplayService.class);
+    
+    private static final String SOURCE_FILE = "FILE";
+    
+    private final EventArchiveService eventArchiveService;
+    private final ChangeEventProducer changeEventProducer;
+    private final ObjectMapper objectMapper;
+    private final SimpleAsyncTaskExecutor replayExecutor;
+    private final Map<String, ReplayJob> jobs = new ConcurrentHashMap<>();
+    
+    @Value("${app.kafka.topics.output:processed-changes}")
+    private String outputTopic;
+    
+    @Value("${app.replay.file-dir:./data/replay}")
+    private String fileDir;
+    
+    @Value("${app.replay.max-active-jobs:1}")
+    private int maxActiveJobs;
+    
+    @Value("${app.replay.retained-jobs:20}")
+    private int retainedJobs;
+    
+    public EventReplayService(EventArchiveService eventArchiveService, ChangeEventProducer changeEventProducer,
+                              ObjectMapper objectMapper,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.eventArchiveService = eventArchiveService;
+        this.changeEventProducer = changeEventProducer;
+        this.objectMapper = objectMapper;
+        this.replayExecutor = new SimpleAsyncTaskExecutor("replay-");
+        this.replayExecutor.setVirtualThreads(virtualThreads);
+    }
+    
+    /**
+     * Start a replay in the background
+     *
+     * @return the job, or empty if the maximum number of active replays is already running
+     * @throws IllegalArgumentException if the source or start position cannot be used
+     */
+    public Optional<Map<String, Object>> startReplay(ReplayRequest request) {
+        validate(request);
+        long active = jobs.values().stream().filter(ReplayJob::isRunning).count();
+        if (active >= maxActiveJobs) {
+            return Optional.empty();
+        }
+        
+        ReplayJob job = new ReplayJob(UUID.randomUUID().toString().substring(0, 8), request);
+        jobs.put(job.id, job);
+        evictFinishedJobs();
+        
+        logger.info("⏪ Starting replay {}: {}", job.id, request);
+        replayExecutor.execute(() -> run(job));
+        return Optional.of(job.toMap());
+    }
+    
+    public Optional<Map<String, Object>> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ReplayJob::toMap);
+    }
+    
+    public List<Map<String, Object>> getJobs() {
+        return jobs.values().stream().map(ReplayJob::toMap).toList();
+    }
+    
+    /**
+     * Ask a running replay to stop after its current batch
+     */
+    public Optional<Map<String, Object>> stopJob(String jobId) {
+        ReplayJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.stopRequested.set(true);
+        return Optional.of(job.toMap());
+    }
+    
+    private void validate(ReplayRequest request) {
+        if (SOURCE_FILE.equals(request.getSource())) {
+            resolveFile(request.getFile());
+            return;
+        }
+        if (!eventArchiveService.isEnabled()) {
+            throw new IllegalArgumentException("The event archive is disabled (app.archive.enabled)");
+        }
+        if (request.getFromOffset() != null && (request.getTopic() == null || request.getPartition() == null)) {
+            throw new IllegalArgumentException("fromOffset requires topic and partition");
+        }
+    }
+    
+    /**
+     * Resolve a replay file name, refusing anything outside the replay directory
+     */
+    private Path resolveFile(String file) {
+        if (file == null || file.isBlank()) {
+            throw new IllegalArgumentException("A file is required for FILE replays");
+        }
+        Path directory = Path.of(fileDir).toAbsolutePath().normalize();
+        Path path = directory.resolve(file).normalize();
+        if (!path.startsWith(directory)) {
+            throw new IllegalArgumentException("Replay files must be inside " + directory);
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Replay file not found: " + file);
+        }
+        return path;
+    }
+    
+    private void run(ReplayJob job) {
+        try {
+            if (SOURCE_FILE.equals(job.request.getSource())) {
+                replayFile(job);
+            } else {
+                replayArchive(job);
+            }
+            job.flush();
+        } catch (Exception e) {
+            job.lastError = e.getMessage();
+            logger.error("❌ Replay {} failed: {}", job.id, e.getMessage(), e);
+        } finally {
+            job.finish();
+            logger.info("🏁 Replay {} finished: {}", job.id, job.toMap());
+        }
+    }
+    
+    private void replayArchive(ReplayJob job) {
+        ReplayRequest request = job.request;
+        EventArchive archive = eventArchiveService.getArchive();
+        EventArchive.EventVisitor visitor = event -> {
+            if (request.getToTimestamp() != null && event.timestampMs() > request.getToTimestamp().toEpochMilli()) {
+                return false;
+            }
+            String topic = request.getTargetTopic() != null ? request.getTargetTopic() : event.topic();
+            return job.add(new PendingEvent(topic, event.key(), event.value(), event.sequence(), event.timestampMs()));
+        };
+        
+        if (request.getFromOffset() != null) {
+            archive.readFromOffset(request.getTopic(), request.getPartition(), request.getFromOffset(), visitor);
+        } else if (request.getFromSequence() != null) {
+            archive.readFromSequence(request.getFromSequence(), visitor);
+        } else {
+            // No start given: replay from the beginning of the archive
+            long from = request.getFromTimestamp() != null ? request.getFromTimestamp().toEpochMilli() : 0;
+            archive.readFromTimestamp(from, visitor);
+        }
+    }
+    
+    private void replayFile(ReplayJob job) throws IOException {
+        ReplayRequest request = job.request;
+        String topic = request.getTargetTopic() != null ? request.getTargetTopic() : outputTopic;
+        long fromLine = request.getFromLine() != null ? request.getFromLine() : 1;
+        
+        try (BufferedReader reader = Files.newBufferedReader(resolveFile(request.getFile()), StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber < fromLine || line.isBlank()) {
+                    continue;
+                }
+                ProcessedChangeEvent event;
+                try {
+                    event = objectMapper.readValue(line, ProcessedChangeEvent.class);
+                } catch (IOException e) {
+                    job.skipped.increment();
+                    continue;
+                }
+                Instant timestamp = event.getTimestamp();
+                if (timestamp != null && request.getFromTimestamp() != null && timestamp.isBefore(request.getFromTimestamp())) {
+                    job.skipped.increment();
+                    continue;
+                }
+                if (timestamp != null && request.getToTimestamp() != null && timestamp.isAfter(request.getToTimestamp())) {
+                    break;
+                }
+                String key = event.getCollection() + ":" + event.getDocumentId();
+                long timestampMs = timestamp != null ? timestamp.toEpochMilli() : -1;
+                if (!job.add(new PendingEvent(topic, key, line, lineNumber, timestampMs))) {
+                    break;
+                }
+            }
+        }
+    }
+    
+    private void evictFinishedJobs() {
+        if (jobs.size() <= retainedJobs) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> !job.isRunning())
+                .sorted((a, b) -> a.startedAt.compareTo(b.startedAt))
+                .limit(jobs.size() - retainedJobs)
+                .forEach(job -> jobs.remove(job.id));
+    }
+    
+    /**
+     * An event waiting in the current batch, with its position in the source
+     */
+    private record PendingEvent(String topic, String key, String value, long position, long timestampMs) {}
+    
+    /**
+     * Batching, pacing and progress of one replay
+     */
+    private class ReplayJob {
+        
+        private final String id;
+        private final ReplayRequest request;
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final long nanosPerEvent;
+        private final AtomicBoolean stopRequested = new AtomicBoolean();
+        private final List<PendingEvent> batch = new ArrayList<>();
+        private final LongAdder published = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private long nextBatchAt = System.nanoTime();
+        private long queued;
+        private volatile long lastPosition = -1;
+        private volatile long lastTimestampMs = -1;
+        private volatile String lastError;
+        private volatile Instant finishedAt;
+        private volatile long finishedNanos;
+        
+        ReplayJob(String id, ReplayRequest request) {
+            this.id = id;
+            this.request = request;
+            this.nanosPerEvent = TimeUnit.SECONDS.toNanos(1) / request.getEventsPerSecond();
+        }
+        
+        /**
+         * Queue an event, sending the batch once it is full
+         *
+         * @return false once the replay should stop
+         */
+        boolean add(PendingEvent event) {
+            if (stopRequested.get() || (request.getMaxEvents() != null && queued >= request.getMaxEvents())) {
+                return false;
+            }
+            batch.add(event);
+            queued++;
+            if (batch.size() >= request.getBatchSize()) {
+                flush();
+            }
+            return true;
+        }
+        
+        /**
+         * Send the batch, wait for every acknowledgement, then pace to the requested rate
+         */
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(batch.size());
+            for (PendingEvent event : batch) {
+                sends.add(changeEventProducer.republish(event.topic(), event.key(), event.value()));
+            }
+            for (CompletableFuture<SendResult<String, String>> send : sends) {
+                try {
+                    send.join();
+                    published.increment();
+                } catch (Exception e) {
+                    failed.increment();
+                    lastError = e.getMessage();
+                }
+            }
+            PendingEvent last = batch.get(batch.size() - 1);
+            lastPosition = last.position();
+            lastTimestampMs = last.timestampMs();
+            batches.increment();
+            
+            // Pace to the target rate; don't burst to catch up after a stall
+            nextBatchAt += batch.size() * nanosPerEvent;
+            batch.clear();
+            long now = System.nanoTime();
+            if (nextBatchAt > now) {
+                LockSupport.parkNanos(nextBatchAt - now);
+            } else if (now - nextBatchAt > TimeUnit.SECONDS.toNanos(1)) {
+                nextBatchAt = now;
+            }
+        }
+        
+        boolean isRunning() {
+            return finishedAt == null;
+        }
+        
+        void finish() {
+            finishedNanos = System.nanoTime();
+            finishedAt = Instant.now();
+        }
+        
+        Map<String, Object> toMap() {
+            long endNanos = isRunning() ? System.nanoTime() : finishedNanos;
+            double elapsedSeconds = Math.max(1e-3, (endNanos - startNanos) / 1e9);
+            
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("jobId", id);
+            result.put("status", isRunning() ? "RUNNING" : (stopRequested.get() ? "STOPPED" : (lastError != null && published.sum() == 0 ? "FAILED" : "COMPLETED")));
+            result.put("source", request.getSource());
+            result.put("eventsPerSecond", request.getEventsPerSecond());
+            result.put("batchSize", request.getBatchSize());
+            result.put("published", published.sum());
+            result.put("failed", failed.sum());
+            result.put("skipped", skipped.sum());
+            result.put("batches", batches.sum());
+            result.put(SOURCE_FILE.equals(request.getSource()) ? "lastLine" : "lastSequence", lastPosition);
+            result.put("lastEventTimestamp", lastTimestampMs >= 0 ? Instant.ofEpochMilli(lastTimestampMs).toString() : null);
+            result.put("elapsedSeconds", Math.round(elapsedSeconds * 10) / 10.0);
+            result.put("achievedEventsPerSecond", Math.round(published.sum() / elapsedSeconds * 10) / 10.0);
+            result.put("startedAt", startedAt.toString());
+            result.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+            result.put("lastError", lastError);
+            return result;
+        }
+    }
+}
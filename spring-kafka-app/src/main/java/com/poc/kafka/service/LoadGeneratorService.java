@@ -0,0 +1,253 @@
+package com.poc.kafka.service;
+
+import com.poc.kafka.dto.LoadTestRequest;
+import com.poc.kafka.model.Order;
+import com.poc.kafka.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Service generating paced, batched user and order writes for CDC stress testing
+ * Each job runs a number of workers for a fixed duration, sharing a target write rate,
+ * and reports the achieved write throughput
+ */
+@Service
+public class LoadGeneratorService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LoadGeneratorService.class);
+    
+    private static final List<List<String>> ITEMS = List.of(
+            List.of("Laptop", "Mouse"),
+            List.of("Book", "Notebook"),
+            List.of("Coffee", "Pastry"),
+            List.of("Monitor"),
+            List.of("Headphones", "Webcam", "Keyboard")
+    );
+    
+    /** Workers aim for roughly this many batches per second so low rates are not bursty */
+    private static final int TARGET_BATCHES_PER_SECOND = 10;
+    
+    private final MongoTemplate mongoTemplate;
+    private final SimpleAsyncTaskExecutor workerExecutor;
+    private final Map<String, LoadJob> jobs = new ConcurrentHashMap<>();
+    
+    @Value("${app.data.load.max-active-jobs:2}")
+    private int maxActiveJobs;
+    
+    @Value("${app.data.load.retained-jobs:20}")
+    private int retainedJobs;
+    
+    public LoadGeneratorService(MongoTemplate mongoTemplate,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.mongoTemplate = mongoTemplate;
+        this.workerExecutor = new SimpleAsyncTaskExecutor("load-gen-");
+        this.workerExecutor.setVirtualThreads(virtualThreads);
+    }
+    
+    /**
+     * Start a load generation job in the background
+     *
+     * @return the job, or empty if the maximum number of active jobs is already running
+     */
+    public Optional<Map<String, Object>> startJob(LoadTestRequest request) {
+        long active = jobs.values().stream().filter(LoadJob::isRunning).count();
+        if (active >= maxActiveJobs) {
+            return Optional.empty();
+        }
+        
+        LoadJob job = new LoadJob(UUID.randomUUID().toString().substring(0, 8), request);
+        jobs.put(job.id, job);
+        evictFinishedJobs();
+        
+        logger.info("🚀 Starting load job {}: {}", job.id, request);
+        for (int worker = 0; worker < request.getConcurrency(); worker++) {
+            int workerId = worker;
+            workerExecutor.execute(() -> runWorker(job, workerId));
+        }
+        return Optional.of(job.toMap());
+    }
+    
+    /**
+     * Get the current status and throughput of a job
+     */
+    public Optional<Map<String, Object>> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(LoadJob::toMap);
+    }
+    
+    /**
+     * List all retained jobs
+     */
+    public List<Map<String, Object>> getJobs() {
+        return jobs.values().stream().map(LoadJob::toMap).toList();
+    }
+    
+    /**
+     * Ask a running job to stop after its current batches
+     */
+    public Optional<Map<String, Object>> stopJob(String jobId) {
+        LoadJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.stopRequested.set(true);
+        return Optional.of(job.toMap());
+    }
+    
+    private void runWorker(LoadJob job, int workerId) {
+        LoadTestRequest request = job.request;
+        int docsPerUser = 1 + request.getOrdersPerUser();
+        double workerRate = (double) request.getTargetWritesPerSecond() / request.getConcurrency();
+        long nanosPerDoc = (long) (TimeUnit.SECONDS.toNanos(1) / workerRate);
+        int usersPerBatch = (int) Math.max(1, Math.min(request.getBatchSize(),
+                workerRate / TARGET_BATCHES_PER_SECOND / docsPerUser));
+        
+        long deadline = job.startNanos + TimeUnit.SECONDS.toNanos(request.getDurationSeconds());
+        long nextBatchAt = System.nanoTime();
+        long sequence = 0;
+        
+        try {
+            while (!job.stopRequested.get() && System.nanoTime() < deadline) {
+                List<User> users = new ArrayList<>(usersPerBatch);
+                for (int i = 0; i < usersPerBatch; i++, sequence++) {
+                    users.add(new User("Load User " + job.id + "-" + workerId + "-" + sequence,
+                            "load-" + job.id + "-" + workerId + "-" + sequence + "@example.com",
+                            ThreadLocalRandom.current().nextInt(18, 80)));
+                }
+                
+                int written = 0;
+                try {
+                    Collection<User> savedUsers = mongoTemplate.insert(users, User.class);
+                    job.users.add(savedUsers.size());
+                    written += savedUsers.size();
+                    
+                    if (request.getOrdersPerUser() > 0) {
+                        List<Order> orders = new ArrayList<>(savedUsers.size() * request.getOrdersPerUser());
+                        for (User user : savedUsers) {
+                            for (int i = 0; i < request.getOrdersPerUser(); i++) {
+                                orders.add(randomOrder(user.getId()));
+                            }
+                        }
+                        job.orders.add(mongoTemplate.insert(orders, Order.class).size());
+                        written += orders.size();
+                    }
+                    job.batches.increment();
+                } catch (Exception e) {
+                    job.errors.increment();
+                    job.lastError = e.getMessage();
+                    logger.warn("Load job {} worker {} batch failed: {}", job.id, workerId, e.getMessage());
+                }
+                
+                // Pace to the worker's share of the target rate; don't burst to catch up after a stall
+                nextBatchAt += Math.max(written, usersPerBatch) * nanosPerDoc;
+                long now = System.nanoTime();
+                if (nextBatchAt > now) {
+                    LockSupport.parkNanos(Math.min(nextBatchAt - now, deadline - now));
+                } else if (now - nextBatchAt > TimeUnit.SECONDS.toNanos(1)) {
+                    nextBatchAt = now;
+                }
+            }
+        } finally {
+            if (job.runningWorkers.decrementAndGet() == 0) {
+                job.finish();
+                logger.info("🏁 Load job {} finished: {}", job.id, job.toMap());
+            }
+        }
+    }
+    
+    private Order randomOrder(String userId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BigDecimal amount = BigDecimal.valueOf(random.nextDouble(5, 2000)).setScale(2, RoundingMode.HALF_UP);
+        return new Order(userId, ITEMS.get(random.nextInt(ITEMS.size())), amount);
+    }
+    
+    private void evictFinishedJobs() {
+        if (jobs.size() <= retainedJobs) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> !job.isRunning())
+                .sorted((a, b) -> a.startedAt.compareTo(b.startedAt))
+                .limit(jobs.size() - retainedJobs)
+                .forEach(job -> jobs.remove(job.id));
+    }
+    
+    /**
+     * State and counters of one load generation job
+     */
+    private static class LoadJob {
+        
+        private final String id;
+        private final LoadTestRequest request;
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean stopRequested = new AtomicBoolean();
+        private final AtomicInteger runningWorkers;
+        private final LongAdder users = new LongAdder();
+        private final LongAdder orders = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private volatile String lastError;
+        private volatile Instant finishedAt;
+        private volatile long finishedNanos;
+        
+        LoadJob(String id, LoadTestRequest request) {
+            this.id = id;
+            this.request = request;
+            this.runningWorkers = new AtomicInteger(request.getConcurrency());
+        }
+        
+        boolean isRunning() {
+            return finishedAt == null;
+        }
+        
+        void finish() {
+            finishedNanos = System.nanoTime();
+            finishedAt = Instant.now();
+        }
+        
+        Map<String, Object> toMap() {
+            long endNanos = isRunning() ? System.nanoTime() : finishedNanos;
+            double elapsedSeconds = Math.max(1e-3, (endNanos - startNanos) / 1e9);
+            long written = users.sum() + orders.sum();
+            
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("jobId", id);
+            result.put("status", isRunning() ? "RUNNING" : (stopRequested.get() ? "STOPPED" : "COMPLETED"));
+            result.put("targetWritesPerSecond", request.getTargetWritesPerSecond());
+            result.put("concurrency", request.getConcurrency());
+            result.put("durationSeconds", request.getDurationSeconds());
+            result.put("usersWritten", users.sum());
+            result.put("ordersWritten", orders.sum());
+            result.put("batches", batches.sum());
+            result.put("errors", errors.sum());
+            result.put("elapsedSeconds", Math.round(elapsedSeconds * 10) / 10.0);
+            result.put("achievedWritesPerSecond", Math.round(written / elapsedSeconds * 10) / 10.0);
+            result.put("startedAt", startedAt.toString());
+            result.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+            result.put("lastError", lastError);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.poc.kafka.service;
+
+import com.poc.kafka.consumer.RecordCompletion;
+import com.poc.kafka.model.ProcessedChangeEvent;
+import com.poc.kafka.state.UserStateStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stream-side join of order events with the latest known user document
+ * Users come from the CDC-fed UserStateStore. Orders whose user has not arrived yet are buffered
+ * for a bounded time and published as soon as the user event is seen, or unenriched on timeout.
+ * Enriched events go to their own topic so downstream services can skip the user lookup.
+ * The buffer is in memory only, so an order's record stays unacknowledged until its enriched or
+ * timed-out event has been published; after a crash the buffered orders are consumed again. While an
+ * order waits, later offsets of its partition are not committed either, for at most max-wait-ms.
+ */
+@Service
+public class OrderEnrichmentService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderEnrichmentService.class);
+    
+    private static final String STATUS_ENRICHED = "ENRICHED";
+    private static final String STATUS_USER_NOT_FOUND = "USER_NOT_FOUND";
+    
+    private final UserStateStore userStateStore;
+    private final ChangeEventProducer changeEventProducer;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, List<PendingOrder>> pendingByUser = new HashMap<>();
+    private final ArrayDeque<PendingOrder> pendingByArrival = new ArrayDeque<>();
+    /** Orders still waiting; released ones stay in pendingByArrival until they reach its head */
+    private int pendingCount;
+    
+    private final LongAdder enriched = new LongAdder();
+    private final LongAdder buffered = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    
+    @Value("${app.enrichment.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.kafka.topics.enriched-orders:enriched-orders}")
+    private String enrichedTopic;
+    
+    @Value("${app.enrichment.max-wait-ms:20000}")
+    private long maxWaitMs;
+    
+    @Value("${app.enrichment.max-pending:10000}")
+    private int maxPending;
+    
+    @Value("${app.enrichment.user-fields:name,email,age}")
+    private String[] userFields;
+    
+    public OrderEnrichmentService(UserStateStore userStateStore, ChangeEventProducer changeEventProducer) {
+        this.userStateStore = userStateStore;
+        this.changeEventProducer = changeEventProducer;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Enrich and publish an order event, or buffer it until its user arrives
+     * The record stays outstanding on the completion until the enriched event has been published.
+     */
+    public void onOrder(ProcessedChangeEvent order, RecordCompletion completion) {
+        if (!enabled || order.getData() == null) {
+            return;
+        }
+        
+        Object userId = order.getData().get("userId");
+        Optional<Map<String, Object>> user = userId != null ? userStateStore.get(userId.toString()) : Optional.empty();
+        if (user.isPresent()) {
+            completion.await(publish(order, user.get()));
+            return;
+        }
+        if (userId == null) {
+            completion.await(publish(order, null));
+            return;
+        }
+        
+        PendingOrder pending = new PendingOrder(userId.toString(), order, System.nanoTime());
+        completion.await(pending.published);
+        boolean overflow;
+        lock.lock();
+        try {
+            overflow = pendingCount >= maxPending;
+            if (!overflow) {
+                pendingByUser.computeIfAbsent(pending.userId, key -> new ArrayList<>()).add(pending);
+                pendingByArrival.addLast(pending);
+                pendingCount++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        if (overflow) {
+            overflowed.increment();
+            publish(pending, null);
+            return;
+        }
+        buffered.increment();
+        
+        // The user may have arrived between the lookup and parking the order, in which case onUser found
+        // nothing to release; look again so the order is not left waiting for the timeout
+        user = userStateStore.get(pending.userId);
+        if (user.isPresent() && claim(pending)) {
+            publish(pending, user.get());
+        } else {
+            logger.debug("⏳ Buffered order {} until user {} arrives", order.getDocumentId(), userId);
+        }
+    }
+    
+    /**
+     * Release orders that were waiting for this user
+     */
+    public void onUser(String userId) {
+        if (!enabled) {
+            return;
+        }
+        
+        List<PendingOrder> released;
+        lock.lock();
+        try {
+            released = pendingByUser.remove(userId);
+            if (released != null) {
+                released.forEach(pending -> pending.released = true);
+                pendingCount -= released.size();
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        if (released != null) {
+            Map<String, Object> user = userStateStore.get(userId).orElse(null);
+            released.forEach(pending -> publish(pending, user));
+            logger.info("🔗 Released {} buffered orders for user {}", released.size(), userId);
+        }
+    }
+    
+    /**
+     * Publish orders whose user did not arrive within the maximum wait, unenriched
+     */
+    @Scheduled(fixedDelayString = "${app.enrichment.sweep-interval-ms:1000}")
+    public void expirePending() {
+        if (!enabled) {
+            return;
+        }
+        
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        List<PendingOrder> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            while (!pendingByArrival.isEmpty() && pendingByArrival.peekFirst().bufferedAtNanos <= cutoff) {
+                PendingOrder pending = pendingByArrival.pollFirst();
+                if (pending.released) {
+                    continue;
+                }
+                pending.released = true;
+                unpark(pending);
+                expired.add(pending);
+            }
+            // Released orders leave the arrival queue lazily; drop them from the head
+            while (!pendingByArrival.isEmpty() && pendingByArrival.peekFirst().released) {
+                pendingByArrival.pollFirst();
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        for (PendingOrder pending : expired) {
+            timedOut.increment();
+            publish(pending, null);
+        }
+        if (!expired.isEmpty()) {
+            logger.warn("⌛ Published {} orders without user data after waiting {} ms", expired.size(), maxWaitMs);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        int pending;
+        lock.lock();
+        try {
+            pending = pendingCount;
+        } finally {
+            lock.unlock();
+        }
+        return Map.of(
+                "enabled", enabled,
+                "enriched", enriched.sum(),
+                "buffered", buffered.sum(),
+                "timedOut", timedOut.sum(),
+                "overflowed", overflowed.sum(),
+                "pending", pending
+        );
+    }
+    
+    /**
+     * Take a parked order back for publishing, unless onUser or the expiry sweep already has
+     */
+    private boolean claim(PendingOrder pending) {
+        lock.lock();
+        try {
+            if (pending.released) {
+                return false;
+            }
+            pending.released = true;
+            unpark(pending);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Remove an order from its user's waiting list; caller holds the lock
+     */
+    private void unpark(PendingOrder pending) {
+        List<PendingOrder> forUser = pendingByUser.get(pending.userId);
+        if (forUser != null) {
+            forUser.remove(pending);
+            if (forUser.isEmpty()) {
+                pendingByUser.remove(pending.userId);
+            }
+        }
+        pendingCount--;
+    }
+    
+    /**
+     * Publish a buffered order and let its record complete once the broker has answered
+     */
+    private void publish(PendingOrder pending, Map<String, Object> user) {
+        publish(pending.order, user).whenComplete((result, failure) -> pending.published.complete(null));
+    }
+    
+    private CompletableFuture<?> publish(ProcessedChangeEvent order, Map<String, Object> user) {
+        ProcessedChangeEvent enrichedEvent = new ProcessedChangeEvent(
+                order.getEventType(),
+                order.getCollection(),
+                order.getDocumentId(),
+                order.getTimestamp(),
+                order.getData(),
+                order.getSource()
+        );
+        enrichedEvent.setProcessingTimestamp(order.getProcessingTimestamp());
+        
+        Map<String, Object> enrichment = new LinkedHashMap<>();
+        if (user != null) {
+            Map<String, Object> userView = new LinkedHashMap<>();
+            for (String field : userFields) {
+                userView.put(field, user.get(field));
+            }
+            enrichment.put("status", STATUS_ENRICHED);
+            enrichment.put("user", userView);
+            enriched.increment();
+        } else {
+            enrichment.put("status", STATUS_USER_NOT_FOUND);
+        }
+        enrichedEvent.setEnrichment(enrichment);
+        
+        return changeEventProducer.publishChangeEvent(enrichedEvent, enrichedTopic);
+    }
+    
+    /**
+     * An order waiting for its user
+     */
+    private static class PendingOrder {
+        
+        private final String userId;
+        private final ProcessedChangeEvent order;
+        private final long bufferedAtNanos;
+        /** Completes once the order has been published, enriched or not */
+        private final CompletableFuture<Void> published = new CompletableFuture<>();
+        private boolean released;
+        
+        PendingOrder(String userId, ProcessedChangeEvent order, long bufferedAtNanos) {
+            this.userId = userId;
+            this.order = order;
+            this.bufferedAtNanos = bufferedAtNanos;
+        }
+    }
+}
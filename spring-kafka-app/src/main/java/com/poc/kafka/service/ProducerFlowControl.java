@@ -0,0 +1,136 @@
+package com.poc.kafka.service;
+
+import com.poc.kafka.consumer.MongoDbChangeEventConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Backpressure from the producer to the CDC listener
+ * Tracks the records and (approximate) bytes sent but not yet acknowledged by the broker. Above the
+ * high-water mark the listener container is paused, so its consumers keep polling and heartbeating
+ * without fetching records, instead of blocking in send once buffer.memory is exhausted. The container
+ * resumes once in-flight sends fall below the low-water mark.
+ */
+@Component
+public class ProducerFlowControl {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ProducerFlowControl.class);
+    
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final AtomicLong inFlightRecords = new AtomicLong();
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean paused;
+    
+    // Guarded by lock
+    private long pauseCount;
+    private long pausedSinceMs;
+    private long totalPausedMs;
+    
+    @Value("${app.kafka.producer.flow-control.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.kafka.producer.flow-control.high-water-records:5000}")
+    private long highWaterRecords;
+    
+    @Value("${app.kafka.producer.flow-control.low-water-records:1000}")
+    private long lowWaterRecords;
+    
+    @Value("${app.kafka.producer.flow-control.high-water-bytes:16777216}")
+    private long highWaterBytes;
+    
+    @Value("${app.kafka.producer.flow-control.low-water-bytes:4194304}")
+    private long lowWaterBytes;
+    
+    public ProducerFlowControl(KafkaListenerEndpointRegistry listenerRegistry) {
+        this.listenerRegistry = listenerRegistry;
+    }
+    
+    /**
+     * Record a send handed to the producer
+     */
+    public void onSend(long bytes) {
+        long records = inFlightRecords.incrementAndGet();
+        long totalBytes = inFlightBytes.addAndGet(bytes);
+        if (enabled && !paused && (records >= highWaterRecords || totalBytes >= highWaterBytes)) {
+            updateContainer();
+        }
+    }
+    
+    /**
+     * Record a send acknowledged or failed by the broker
+     */
+    public void onComplete(long bytes) {
+        long records = inFlightRecords.decrementAndGet();
+        long totalBytes = inFlightBytes.addAndGet(-bytes);
+        if (paused && records <= lowWaterRecords && totalBytes <= lowWaterBytes) {
+            updateContainer();
+        }
+    }
+    
+    /**
+     * Whether the listener is paused because too many sends are in flight
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+    
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            long currentPauseMs = paused ? System.currentTimeMillis() - pausedSinceMs : 0;
+            return Map.of(
+                    "enabled", enabled,
+                    "inFlightRecords", inFlightRecords.get(),
+                    "inFlightBytes", inFlightBytes.get(),
+                    "paused", paused,
+                    "pauseCount", pauseCount,
+                    "totalPausedMs", totalPausedMs + currentPauseMs
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Pause or resume the container from the current counts; the lock orders concurrent transitions
+     * The low-water mark is checked again after pausing: sends that completed while the container was
+     * being paused saw it still running and did not ask for a resume, and if they were the last ones in
+     * flight nothing else would.
+     */
+    private void updateContainer() {
+        lock.lock();
+        try {
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(MongoDbChangeEventConsumer.LISTENER_ID);
+            if (container == null) {
+                return;
+            }
+            if (!paused && (inFlightRecords.get() >= highWaterRecords || inFlightBytes.get() >= highWaterBytes)) {
+                paused = true;
+                container.pause();
+                pauseCount++;
+                pausedSinceMs = System.currentTimeMillis();
+                logger.warn("⏸️ Pausing listener: {} sends ({} bytes) in flight to Kafka",
+                           inFlightRecords.get(), inFlightBytes.get());
+            }
+            long records = inFlightRecords.get();
+            if (paused && records <= lowWaterRecords && inFlightBytes.get() <= lowWaterBytes) {
+                container.resume();
+                paused = false;
+                long pausedMs = System.currentTimeMillis() - pausedSinceMs;
+                totalPausedMs += pausedMs;
+                logger.info("▶️ Resuming listener after {} ms: {} sends in flight", pausedMs, records);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
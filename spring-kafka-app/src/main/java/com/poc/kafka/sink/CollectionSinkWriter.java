@@ -0,0 +1,350 @@
+package com.poc.kafka.sink;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.poc.kafka.config.SinkProperties;
+import com.poc.kafka.consumer.RecordCompletion;
+import com.poc.kafka.consumer.RecordCompletionTracker;
+import com.poc.kafka.model.ProcessedChangeEvent;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue and writer thread upserting one source collection's events into its target collection
+ * Transient failures are retried in place while the queue backs the listener off. Events MongoDB
+ * refuses for good fail their written future and leave the batch, so the sink service can route
+ * their records to the retry topics.
+ */
+class CollectionSinkWriter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CollectionSinkWriter.class);
+    
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+    
+    /**
+     * Server error codes that clear up on their own: network and shutdown errors, primary step-downs and
+     * elections, write conflicts, write concern and time limit failures
+     */
+    private static final Set<Integer> TRANSIENT_ERROR_CODES = Set.of(
+            6, 7, 50, 64, 89, 91, 112, 189, 262, 9001, 10107, 11600, 11602, 13435, 13436);
+    
+    private final String collection;
+    private final SinkProperties.CollectionSink settings;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final SinkOffsetStore offsetStore;
+    private final RecordCompletionTracker completionTracker;
+    private final BlockingQueue<SinkRecord> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+    
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile long lastBatchMillis;
+    
+    CollectionSinkWriter(String collection, SinkProperties.CollectionSink settings,
+                         MongoTemplate mongoTemplate, ObjectMapper objectMapper, SinkOffsetStore offsetStore,
+                         RecordCompletionTracker completionTracker) {
+        this.collection = collection;
+        this.settings = settings;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.offsetStore = offsetStore;
+        this.completionTracker = completionTracker;
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        this.thread = new Thread(this::run, "mongo-sink-" + collection);
+        this.thread.setDaemon(true);
+    }
+    
+    void start() {
+        thread.start();
+    }
+    
+    /**
+     * Stop accepting events, flush what is queued and wait for the writer thread
+     */
+    void stop() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("⚠️ MongoDB sink for {} stopped with {} unwritten events, their records will be consumed again",
+                       collection, queue.size());
+        }
+    }
+    
+    /**
+     * Queue a record without blocking; a full queue refuses it and the caller backs off
+     *
+     * @return false if the queue is full or the writer is stopping
+     */
+    boolean offer(SinkRecord record) {
+        if (running && queue.offer(record)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+    
+    /**
+     * Whether a partition backed off for this sink can resume: the queue is at most half full
+     */
+    boolean canResume() {
+        return queue.size() <= settings.getQueueCapacity() / 2;
+    }
+    
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("target", settings.getTarget());
+        stats.put("queued", queue.size());
+        stats.put("queueCapacity", settings.getQueueCapacity());
+        stats.put("written", written.sum());
+        stats.put("batches", batches.sum());
+        stats.put("retries", retries.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("failed", failed.sum());
+        stats.put("lastBatchMs", lastBatchMillis);
+        return stats;
+    }
+    
+    private void run() {
+        List<SinkRecord> batch = new ArrayList<>(settings.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.getFlushIntervalMs());
+                while (batch.size() < settings.getBatchSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    SinkRecord record = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (record == null) {
+                        break;
+                    }
+                    batch.add(record);
+                    queue.drainTo(batch, settings.getBatchSize() - batch.size());
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Convert and write a batch; an event that cannot be converted to a document is refused for good
+     */
+    private void writeBatch(List<SinkRecord> batch) throws InterruptedException {
+        List<SinkRecord> records = new ArrayList<>(batch.size());
+        List<Document> documents = new ArrayList<>(batch.size());
+        for (SinkRecord record : batch) {
+            try {
+                documents.add(toDocument(record.event()));
+                records.add(record);
+            } catch (JsonProcessingException | RuntimeException e) {
+                fail(record, e);
+            }
+        }
+        writeWithRetry(records, documents);
+    }
+    
+    /**
+     * Write until every event is either in MongoDB or refused for good
+     * A bulk write error only sends the events it names back for another attempt, and only if their
+     * error is transient; with the offset store the whole write rolled back, so the others go too. A
+     * batch failing for good as a whole is written event by event to single out the refused ones. The
+     * queue fills while a batch is retried and backs the listener off. Events still unwritten when the
+     * writer stops are left incomplete, so their records are consumed again.
+     */
+    private void writeWithRetry(List<SinkRecord> records, List<Document> documents) throws InterruptedException {
+        long backoffMs = 100;
+        while (!records.isEmpty()) {
+            try {
+                long start = System.nanoTime();
+                write(records, documents);
+                lastBatchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                complete(records);
+                return;
+            } catch (BulkOperationException e) {
+                Map<Integer, BulkWriteError> errors = new HashMap<>();
+                e.getErrors().forEach(error -> errors.put(error.getIndex(), error));
+                List<SinkRecord> retryRecords = new ArrayList<>();
+                List<Document> retryDocuments = new ArrayList<>();
+                List<SinkRecord> done = new ArrayList<>();
+                for (int i = 0; i < records.size(); i++) {
+                    BulkWriteError error = errors.get(i);
+                    if (error != null && !isTransient(error)) {
+                        fail(records.get(i), e);
+                    } else if (error != null || errors.isEmpty() || offsetStore.isEnabled()) {
+                        // Failed transiently, only the write concern failed, or rolled back with the rest
+                        retryRecords.add(records.get(i));
+                        retryDocuments.add(documents.get(i));
+                    } else {
+                        done.add(records.get(i));
+                    }
+                }
+                complete(done);
+                records = retryRecords;
+                documents = retryDocuments;
+                if (!records.isEmpty() && !backOff(records.size(), backoffMs, e)) {
+                    return;
+                }
+            } catch (Exception e) {
+                if (!isTransient(e)) {
+                    if (records.size() == 1) {
+                        fail(records.get(0), e);
+                        return;
+                    }
+                    logger.warn("MongoDB sink batch for {} refused, writing its {} events one by one: {}",
+                               collection, records.size(), e.getMessage());
+                    for (int i = 0; i < records.size(); i++) {
+                        writeWithRetry(List.of(records.get(i)), List.of(documents.get(i)));
+                    }
+                    return;
+                }
+                if (!backOff(records.size(), backoffMs, e)) {
+                    return;
+                }
+            }
+            backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+        }
+    }
+    
+    /**
+     * Wait before the next attempt
+     *
+     * @return false if the events were given up because the writer is stopping
+     */
+    private boolean backOff(int events, long backoffMs, Exception failure) throws InterruptedException {
+        if (!running) {
+            logger.error("❌ MongoDB sink for {} failed while stopping, {} events not written: {}",
+                        collection, events, failure.getMessage());
+            return false;
+        }
+        retries.increment();
+        logger.warn("MongoDB sink write of {} events for {} failed, retrying in {} ms: {}",
+                   events, collection, backoffMs, failure.getMessage());
+        Thread.sleep(backoffMs);
+        return true;
+    }
+    
+    private void complete(List<SinkRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        written.add(records.size());
+        batches.increment();
+        records.forEach(record -> record.written().complete(null));
+    }
+    
+    private void fail(SinkRecord record, Exception failure) {
+        failed.increment();
+        logger.error("❌ MongoDB sink refused event {} for {}: {}",
+                    record.event().getDocumentId(), collection, failure.getMessage());
+        record.written().completeExceptionally(failure);
+    }
+    
+    private static boolean isTransient(BulkWriteError error) {
+        return error.getCategory() == ErrorCategory.EXECUTION_TIMEOUT || TRANSIENT_ERROR_CODES.contains(error.getCode());
+    }
+    
+    /**
+     * Whether a failure of the whole write is worth retrying in place
+     * Connection failures are transient even though Spring files them as non-transient, and so is anything
+     * the driver labels retryable; errors Spring could not classify are retried rather than dropped.
+     */
+    private static boolean isTransient(Exception failure) {
+        if (failure instanceof DataAccessResourceFailureException) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException) {
+                if (mongoException.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+                        || mongoException.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)
+                        || TRANSIENT_ERROR_CODES.contains(mongoException.getCode())) {
+                    return true;
+                }
+            }
+        }
+        return !(failure instanceof NonTransientDataAccessException);
+    }
+    
+    /**
+     * Upsert the records keyed by documentId - replaying an event rewrites the same document
+     * With the offset store enabled, the write commits together with the offset each of its partitions
+     * can resume from. That offset only covers records that are finished or persisted by this write, so
+     * records refused by the sink or still in flight are never skipped after a restart.
+     */
+    private void write(List<SinkRecord> records, List<Document> documents) {
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, settings.getTarget());
+        for (int i = 0; i < records.size(); i++) {
+            bulkOps.replaceOne(Query.query(Criteria.where("_id").is(records.get(i).event().getDocumentId())),
+                               documents.get(i), FindAndReplaceOptions.options().upsert());
+        }
+        
+        if (offsetStore.isEnabled()) {
+            List<RecordCompletion> completions = new ArrayList<>(records.size());
+            records.forEach(record -> completions.add(record.completion()));
+            offsetStore.writeWithOffsets(bulkOps::execute, completionTracker.resumeOffsets(completions));
+        } else {
+            bulkOps.execute();
+        }
+    }
+    
+    private Document toDocument(ProcessedChangeEvent event) throws JsonProcessingException {
+        Document document = new Document("_id", event.getDocumentId())
+                .append("eventType", event.getEventType())
+                .append("collection", event.getCollection())
+                .append("timestamp", event.getTimestamp() != null ? Date.from(event.getTimestamp()) : null)
+                .append("processingTimestamp", event.getProcessingTimestamp() != null ? Date.from(event.getProcessingTimestamp()) : null)
+                .append("source", event.getSource());
+        if (event.getData() != null) {
+            // The data map is Debezium extended JSON; parsing it back restores ObjectIds, dates and decimals
+            document.append("data", Document.parse(objectMapper.writeValueAsString(event.getData())));
+        }
+        if (event.getEnrichment() != null) {
+            document.append("enrichment", new Document(event.getEnrichment()));
+        }
+        return document;
+    }
+    
+    /**
+     * A processed event with the tracked Kafka record it came from
+     *
+     * @param written completed once the event is in MongoDB, failed if MongoDB refused it for good; never
+     *                completed for events left unwritten when the writer stops
+     */
+    record SinkRecord(ProcessedChangeEvent event, RecordCompletion completion, CompletableFuture<Void> written) {}
+}
@@ -0,0 +1,125 @@
+package com.poc.kafka.sink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.kafka.config.SinkProperties;
+import com.poc.kafka.consumer.RecordCompletion;
+import com.poc.kafka.consumer.RecordCompletionTracker;
+import com.poc.kafka.consumer.RetryTopicRouter;
+import com.poc.kafka.model.ProcessedChangeEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sink stage writing processed change events to MongoDB collections
+ * Each configured source collection gets its own bounded queue and writer thread, which upserts
+ * events keyed by documentId in unordered bulk writes flushed by batch size or time. A full queue
+ * refuses the event and the listener backs the partition off, so a slow MongoDB slows consumption
+ * instead of growing the heap. Events are never dropped: a record is acknowledged only once its
+ * event is written, or, if MongoDB refuses it for good, once it is on the retry topics.
+ */
+@Service
+public class MongoSinkService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MongoSinkService.class);
+    
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final SinkProperties sinkProperties;
+    private final SinkOffsetStore offsetStore;
+    private final RecordCompletionTracker completionTracker;
+    private final RetryTopicRouter retryTopicRouter;
+    private final Map<String, CollectionSinkWriter> writers = new LinkedHashMap<>();
+    
+    public MongoSinkService(MongoTemplate mongoTemplate, ObjectMapper objectMapper, SinkProperties sinkProperties,
+                            SinkOffsetStore offsetStore, RecordCompletionTracker completionTracker,
+                            RetryTopicRouter retryTopicRouter) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.sinkProperties = sinkProperties;
+        this.offsetStore = offsetStore;
+        this.completionTracker = completionTracker;
+        this.retryTopicRouter = retryTopicRouter;
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!sinkProperties.isEnabled()) {
+            return;
+        }
+        sinkProperties.getCollections().forEach((collection, settings) -> {
+            if (settings.getTarget() == null || settings.getTarget().isBlank()) {
+                logger.warn("⚠️ No sink target configured for collection {}, skipping", collection);
+                return;
+            }
+            CollectionSinkWriter writer = new CollectionSinkWriter(collection, settings, mongoTemplate, objectMapper, offsetStore,
+                                                                     completionTracker);
+            writer.start();
+            writers.put(collection, writer);
+            logger.info("🚰 MongoDB sink started: {} -> {} (batch={}, flushInterval={} ms)",
+                       collection, settings.getTarget(), settings.getBatchSize(), settings.getFlushIntervalMs());
+        });
+    }
+    
+    @PreDestroy
+    public void stop() {
+        writers.values().forEach(CollectionSinkWriter::stop);
+    }
+    
+    /**
+     * Hand an event to the sink of its collection without blocking
+     * The record's completion waits for the write, so the record is acknowledged only once the event is
+     * in MongoDB. An event MongoDB refuses for good sends the record to its next retry topic instead.
+     *
+     * @return false if the collection has no sink or its queue is full
+     */
+    public boolean write(ConsumerRecord<?, ?> record, ProcessedChangeEvent event, RecordCompletion completion) {
+        CollectionSinkWriter writer = writers.get(event.getCollection());
+        if (writer == null) {
+            return false;
+        }
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        // Awaited before the writer can see the record, so no stored offset passes the listener's own work
+        completion.await(written.exceptionally(failure -> {
+            // Cancelled when the queue refused the record, which the listener rewinds to
+            if (!(failure instanceof CancellationException)) {
+                retryTopicRouter.routeSinkFailure(record, failure);
+            }
+            return null;
+        }));
+        if (writer.offer(new CollectionSinkWriter.SinkRecord(event, completion, written))) {
+            return true;
+        }
+        written.cancel(false);
+        return false;
+    }
+    
+    /**
+     * Whether a partition backed off for the collection's sink can resume; true if it has no sink
+     */
+    public boolean canAccept(String collection) {
+        CollectionSinkWriter writer = writers.get(collection);
+        return writer == null || writer.canResume();
+    }
+    
+    public boolean hasSink(String collection) {
+        return writers.containsKey(collection);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", sinkProperties.isEnabled());
+        stats.put("offsetStore", offsetStore.isEnabled());
+        writers.forEach((collection, writer) -> stats.put(collection, writer.getStats()));
+        return stats;
+    }
+}
@@ -0,0 +1,98 @@
+package com.poc.kafka.sink;
+
+import com.poc.kafka.config.SinkProperties;
+import org.apache.kafka.common.TopicPartition;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kafka consumer offsets stored in MongoDB next to the sink data
+ * Sink batches and the resume offset of every partition they contain are committed in one
+ * MongoDB transaction. The resume offset is the first record not yet finished, so after a
+ * restart or rebalance the listener seeks back to it and no record is skipped; records after
+ * it that were already sunk are upserted again with the same result.
+ * The stored offset is overwritten, not raised, so an operator can rewind a partition by
+ * editing or deleting its document. A concurrent batch may store a slightly older resume
+ * offset than another one; that only replays records that are upserted again.
+ * Requires MongoDB to run as a replica set, which Debezium already needs.
+ */
+@Component
+public class SinkOffsetStore {
+    
+    private final MongoTemplate mongoTemplate;
+    private final SinkProperties.OffsetStore settings;
+    private final boolean enabled;
+    private final TransactionTemplate transactionTemplate;
+    
+    public SinkOffsetStore(MongoTemplate mongoTemplate, MongoDatabaseFactory mongoDatabaseFactory,
+                           SinkProperties sinkProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.settings = sinkProperties.getOffsetStore();
+        this.enabled = sinkProperties.isEnabled() && settings.isEnabled();
+        this.transactionTemplate = new TransactionTemplate(new MongoTransactionManager(mongoDatabaseFactory));
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Run the sink write and store the next offsets in a single transaction
+     *
+     * @param nextOffsets per partition, the offset of the first record not finished once this write commits
+     */
+    public void writeWithOffsets(Runnable sinkWrite, Map<TopicPartition, Long> nextOffsets) {
+        transactionTemplate.executeWithoutResult(status -> {
+            sinkWrite.run();
+            
+            BulkOperations offsetOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, settings.getCollection());
+            Date now = new Date();
+            nextOffsets.forEach((partition, offset) -> offsetOps.upsert(
+                    Query.query(Criteria.where("_id").is(key(partition))),
+                    new Update()
+                            .set("topic", partition.topic())
+                            .set("partition", partition.partition())
+                            .set("offset", offset)
+                            .set("updatedAt", now)));
+            offsetOps.execute();
+        });
+    }
+    
+    /**
+     * Stored next offsets for the given partitions; partitions never sunk are absent
+     */
+    public Map<TopicPartition, Long> findOffsets(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        if (!enabled || partitions.isEmpty()) {
+            return offsets;
+        }
+        
+        List<String> keys = partitions.stream().map(SinkOffsetStore::key).toList();
+        Query query = Query.query(Criteria.where("_id").in(keys));
+        for (Document stored : mongoTemplate.find(query, Document.class, settings.getCollection())) {
+            Number offset = stored.get("offset", Number.class);
+            if (offset != null) {
+                offsets.put(new TopicPartition(stored.getString("topic"), stored.getInteger("partition")), offset.longValue());
+            }
+        }
+        return offsets;
+    }
+    
+    private static String key(TopicPartition partition) {
+        return partition.topic() + "-" + partition.partition();
+    }
+}
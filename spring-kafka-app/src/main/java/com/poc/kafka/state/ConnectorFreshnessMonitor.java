@@ -0,0 +1,142 @@
+package com.poc.kafka.state;
+
+import com.poc.kafka.consumer.MongoDbChangeEventConsumer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * End-to-end freshness per Debezium connector, from its heartbeats and the CDC listener's progress
+ * The connector emits a heartbeat every heartbeat.interval.ms even when MongoDB is quiet, so a recent
+ * heartbeat with no consumer lag means every change up to the heartbeat's source time has been seen
+ * (IDLE when no data is flowing), while missing heartbeats or a backlog that isn't shrinking is STALLED.
+ */
+@Component
+public class ConnectorFreshnessMonitor {
+    
+    public enum Status { UNKNOWN, ACTIVE, IDLE, CATCHING_UP, STALLED }
+    
+    private static final String LAG_METRIC = "records-lag-max";
+    private static final String FETCH_METRICS_GROUP = "consumer-fetch-manager-metrics";
+    
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final Map<String, ConnectorState> connectors = new ConcurrentHashMap<>();
+    
+    @Value("${app.heartbeat.interval-ms:10000}")
+    private long heartbeatIntervalMs;
+    
+    @Value("${app.heartbeat.stalled-after-ms:30000}")
+    private long stalledAfterMs;
+    
+    public ConnectorFreshnessMonitor(KafkaListenerEndpointRegistry listenerRegistry) {
+        this.listenerRegistry = listenerRegistry;
+    }
+    
+    /**
+     * Record a heartbeat of a connector
+     *
+     * @param sourceTimestampMs the connector's clock when it emitted the heartbeat
+     */
+    public void recordHeartbeat(String connector, long sourceTimestampMs, int partition, long offset) {
+        ConnectorState state = connectors.computeIfAbsent(connector, c -> new ConnectorState());
+        state.lastHeartbeatSourceMs = Math.max(state.lastHeartbeatSourceMs, sourceTimestampMs);
+        state.lastHeartbeatReceivedMs = System.currentTimeMillis();
+        state.heartbeatPosition = partition + ":" + offset;
+    }
+    
+    /**
+     * Record a data change event consumed from a connector's topic (prefix "connector.db.collection")
+     */
+    public void recordDataEvent(String topic, Instant sourceTimestamp) {
+        int dot = topic.indexOf('.');
+        String connector = dot > 0 ? topic.substring(0, dot) : topic;
+        connectors.computeIfAbsent(connector, c -> new ConnectorState()).data.recordApplied(sourceTimestamp);
+    }
+    
+    public Map<String, Object> getFreshness() {
+        long now = System.currentTimeMillis();
+        long lag = listenerLag();
+        Map<String, Object> result = new TreeMap<>();
+        connectors.forEach((connector, state) -> result.put(connector, state.toMap(now, lag)));
+        return result;
+    }
+    
+    /**
+     * Largest per-partition lag of the CDC listener's consumers, -1 if not known yet
+     * records-lag-max is taken over the consumer's metrics sample window
+     */
+    private long listenerLag() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(MongoDbChangeEventConsumer.LISTENER_ID);
+        if (container == null) {
+            return -1;
+        }
+        double lag = -1;
+        for (Map<MetricName, ? extends Metric> metrics : container.metrics().values()) {
+            for (Map.Entry<MetricName, ? extends Metric> metric : metrics.entrySet()) {
+                MetricName name = metric.getKey();
+                if (LAG_METRIC.equals(name.name()) && FETCH_METRICS_GROUP.equals(name.group())
+                        && !name.tags().containsKey("topic")
+                        && metric.getValue().metricValue() instanceof Double value && !value.isNaN()) {
+                    lag = Math.max(lag, value);
+                }
+            }
+        }
+        return (long) lag;
+    }
+    
+    private class ConnectorState {
+        
+        private final StateFreshness data = new StateFreshness();
+        private volatile long lastHeartbeatSourceMs = -1;
+        private volatile long lastHeartbeatReceivedMs = -1;
+        private volatile String heartbeatPosition;
+        
+        Map<String, Object> toMap(long now, long lag) {
+            Map<String, Object> dataFreshness = data.toMap();
+            Long sinceLastEventMs = (Long) dataFreshness.get("sinceLastEventMs");
+            long heartbeatAgeMs = lastHeartbeatReceivedMs >= 0 ? now - lastHeartbeatReceivedMs : -1;
+            
+            Status status;
+            if (lastHeartbeatReceivedMs < 0) {
+                status = Status.UNKNOWN;
+            } else if (heartbeatAgeMs > stalledAfterMs) {
+                // The connector, Kafka or the heartbeat consumer stopped delivering
+                status = Status.STALLED;
+            } else if (lag > 0) {
+                status = sinceLastEventMs == null || sinceLastEventMs > stalledAfterMs ? Status.STALLED : Status.CATCHING_UP;
+            } else if (sinceLastEventMs == null || sinceLastEventMs > heartbeatIntervalMs) {
+                status = Status.IDLE;
+            } else {
+                status = Status.ACTIVE;
+            }
+            
+            // Without a backlog everything up to the last heartbeat has been seen
+            Long freshAsOfMs = null;
+            if (lag == 0 && lastHeartbeatSourceMs >= 0) {
+                freshAsOfMs = lastHeartbeatSourceMs;
+            } else if (dataFreshness.get("lastSourceTimestamp") instanceof String lastSource) {
+                freshAsOfMs = Instant.parse(lastSource).toEpochMilli();
+            }
+            
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("status", status.name());
+            map.put("freshAsOf", freshAsOfMs != null ? Instant.ofEpochMilli(freshAsOfMs).toString() : null);
+            map.put("endToEndLagMs", freshAsOfMs != null ? Math.max(0, now - freshAsOfMs) : null);
+            map.put("consumerLag", lag >= 0 ? lag : null);
+            map.put("lastHeartbeatSourceTimestamp", lastHeartbeatSourceMs >= 0 ? Instant.ofEpochMilli(lastHeartbeatSourceMs).toString() : null);
+            map.put("heartbeatAgeMs", heartbeatAgeMs >= 0 ? heartbeatAgeMs : null);
+            map.put("heartbeatPosition", heartbeatPosition);
+            map.put("data", dataFreshness);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.poc.kafka.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Persistent key-value store made of memory-mapped, append-only segments with an in-memory index
+ * Writes append to the active segment and point the index at the new record; reads are one index
+ * lookup plus one read from the mapped segment. On open the index is rebuilt from the local segments.
+ * Compaction copies the live records of a sealed segment to the head of the log and deletes it.
+ */
+public class LogStructuredStore implements Closeable {
+    
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.log");
+    
+    private static final byte TYPE_DELETE = 0;
+    private static final byte TYPE_PUT = 1;
+    
+    private final Path directory;
+    private final int segmentSize;
+    private final TreeMap<Long, MappedSegment> segments = new TreeMap<>();
+    private final Map<Long, Long> deadBytes = new HashMap<>();
+    private final Map<String, Long> index = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private MappedSegment active;
+    private long compactions;
+    
+    private LogStructuredStore(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+    
+    /**
+     * Open the store in a directory, recovering the index from existing segments
+     */
+    public static LogStructuredStore open(Path directory, int segmentSize) throws IOException {
+        Files.createDirectories(directory);
+        LogStructuredStore store = new LogStructuredStore(directory, segmentSize);
+        store.recover();
+        return store;
+    }
+    
+    public void put(String key, byte[] value) throws IOException {
+        append(key, encode(TYPE_PUT, key, value));
+    }
+    
+    public void delete(String key) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (!index.containsKey(key)) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        append(key, encode(TYPE_DELETE, key, null));
+    }
+    
+    /**
+     * Point lookup
+     *
+     * @return the latest value, or null if the key is absent
+     */
+    public byte[] get(String key) {
+        lock.readLock().lock();
+        try {
+            Long location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            byte[] payload = segments.get(segmentOf(location)).read(positionOf(location));
+            return decodeValue(payload);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public boolean containsKey(String key) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Compact every sealed segment whose share of dead bytes is at least the threshold
+     *
+     * @return number of segments compacted
+     */
+    public int compact(double deadRatioThreshold) throws IOException {
+        List<MappedSegment> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (MappedSegment segment : segments.values()) {
+                if (segment == active || segment.getWritePosition() == 0) {
+                    continue;
+                }
+                double deadRatio = (double) deadBytes.getOrDefault(segment.getId(), 0L) / segment.getWritePosition();
+                if (deadRatio >= deadRatioThreshold) {
+                    candidates.add(segment);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        for (MappedSegment segment : candidates) {
+            compactSegment(segment);
+        }
+        return candidates.size();
+    }
+    
+    /**
+     * Flush the active segment to disk
+     */
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            active.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            long liveBytes = 0;
+            long totalDead = 0;
+            for (MappedSegment segment : segments.values()) {
+                liveBytes += segment.getWritePosition();
+                totalDead += deadBytes.getOrDefault(segment.getId(), 0L);
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("keys", index.size());
+            stats.put("segments", segments.size());
+            stats.put("bytes", liveBytes);
+            stats.put("deadBytes", totalDead);
+            stats.put("compactions", compactions);
+            stats.put("directory", directory.toString());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (MappedSegment segment : segments.values()) {
+                segment.close();
+            }
+            segments.clear();
+            index.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void append(String key, byte[] payload) throws IOException {
+        if (payload.length + MappedSegment.FRAME_HEADER_SIZE + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes exceeds segment size " + segmentSize);
+        }
+        lock.writeLock().lock();
+        try {
+            int position = active.append(payload);
+            if (position < 0) {
+                roll();
+                position = active.append(payload);
+            }
+            long location = location(active.getId(), position);
+            
+            Long previous = payload[0] == TYPE_PUT ? index.put(key, location) : index.remove(key);
+            if (previous != null) {
+                markDead(previous);
+            }
+            if (payload[0] == TYPE_DELETE) {
+                // A tombstone is itself garbage once the older records it shadows are compacted away
+                deadBytes.merge(active.getId(), (long) active.frameSize(position), Long::sum);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void compactSegment(MappedSegment segment) throws IOException {
+        List<Integer> positions = new ArrayList<>();
+        List<byte[]> payloads = new ArrayList<>();
+        segment.scan((position, payload) -> {
+            positions.add(position);
+            payloads.add(payload);
+        });
+        
+        for (int i = 0; i < payloads.size(); i++) {
+            byte[] payload = payloads.get(i);
+            String key = decodeKey(payload);
+            
+            lock.writeLock().lock();
+            try {
+                boolean oldest = segments.firstKey() == segment.getId();
+                if (payload[0] == TYPE_PUT) {
+                    Long current = index.get(key);
+                    if (current != null && current == location(segment.getId(), positions.get(i))) {
+                        int position = appendRaw(payload);
+                        index.put(key, location(active.getId(), position));
+                    }
+                } else if (!oldest && !index.containsKey(key)) {
+                    // Older segments may still hold the key, so the tombstone moves forward
+                    int position = appendRaw(payload);
+                    deadBytes.merge(active.getId(), (long) active.frameSize(position), Long::sum);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        lock.writeLock().lock();
+        try {
+            segments.remove(segment.getId());
+            deadBytes.remove(segment.getId());
+            segment.delete();
+            compactions++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private int appendRaw(byte[] payload) throws IOException {
+        int position = active.append(payload);
+        if (position < 0) {
+            roll();
+            position = active.append(payload);
+        }
+        return position;
+    }
+    
+    private void roll() throws IOException {
+        active.force();
+        long nextId = segments.lastKey() + 1;
+        active = MappedSegment.open(segmentPath(nextId), nextId, segmentSize);
+        segments.put(nextId, active);
+    }
+    
+    private void markDead(long location) {
+        MappedSegment segment = segments.get(segmentOf(location));
+        if (segment != null) {
+            deadBytes.merge(segment.getId(), (long) segment.frameSize(positionOf(location)), Long::sum);
+        }
+    }
+    
+    private void recover() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        ids.sort(Long::compare);
+        
+        for (long id : ids) {
+            MappedSegment segment = MappedSegment.open(segmentPath(id), id, segmentSize);
+            segments.put(id, segment);
+            segment.scan((position, payload) -> {
+                String key = decodeKey(payload);
+                Long previous = payload[0] == TYPE_PUT
+                        ? index.put(key, location(id, position))
+                        : index.remove(key);
+                if (previous != null) {
+                    markDead(previous);
+                }
+                if (payload[0] == TYPE_DELETE) {
+                    deadBytes.merge(id, (long) segment.frameSize(position), Long::sum);
+                }
+            });
+        }
+        
+        if (segments.isEmpty()) {
+            active = MappedSegment.open(segmentPath(1), 1, segmentSize);
+            segments.put(1L, active);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+    
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("segment-%010d.log", id));
+    }
+    
+    private static long location(long segmentId, int position) {
+        return (segmentId << 32) | (position & 0xffffffffL);
+    }
+    
+    private static long segmentOf(long location) {
+        return location >>> 32;
+    }
+    
+    private static int positionOf(long location) {
+        return (int) location;
+    }
+    
+    /**
+     * Payload layout: [byte type][int keyLength][key bytes][value bytes]
+     */
+    private static byte[] encode(byte type, String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = value != null ? value.length : 0;
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Integer.BYTES + keyBytes.length + valueLength);
+        buffer.put(type).putInt(keyBytes.length).put(keyBytes);
+        if (value != null) {
+            buffer.put(value);
+        }
+        return buffer.array();
+    }
+    
+    private static String decodeKey(byte[] payload) {
+        int keyLength = ByteBuffer.wrap(payload, 1, Integer.BYTES).getInt();
+        return new String(payload, 1 + Integer.BYTES, keyLength, StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] decodeValue(byte[] payload) {
+        int keyLength = ByteBuffer.wrap(payload, 1, Integer.BYTES).getInt();
+        int offset = 1 + Integer.BYTES + keyLength;
+        byte[] value = new byte[payload.length - offset];
+        System.arraycopy(payload, offset, value, 0, value.length);
+        return value;
+    }
+}
@@ -0,0 +1,179 @@
+package com.poc.kafka.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size, memory-mapped, append-only segment file of framed records
+ * Each record is written as [int length][int crc32][payload]. A zero length marks the end of the
+ * written region, so on open the segment is scanned up to the first empty or corrupt frame and
+ * appending resumes there (a torn write at the tail is discarded).
+ * Appends must be serialized by the caller; reads of already-appended records are thread-safe.
+ */
+public class MappedSegment implements Closeable {
+    
+    public static final int FRAME_HEADER_SIZE = 8;
+    
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private volatile int writePosition;
+    
+    private MappedSegment(long id, Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+    
+    /**
+     * Open (or create) a segment file and recover its write position
+     */
+    public static MappedSegment open(Path path, long id, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int size = (int) Math.max(capacity, Math.min(Integer.MAX_VALUE, channel.size()));
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        
+        MappedSegment segment = new MappedSegment(id, path, channel, buffer, size);
+        segment.writePosition = segment.recoverEnd();
+        return segment;
+    }
+    
+    /**
+     * Append a record
+     *
+     * @return the record position, or -1 if it does not fit in the remaining space
+     */
+    public int append(byte[] payload) {
+        int position = writePosition;
+        int frameSize = FRAME_HEADER_SIZE + payload.length;
+        // Keep room for a zero length terminator after the record
+        if ((long) position + frameSize + Integer.BYTES > capacity) {
+            return -1;
+        }
+        
+        buffer.putInt(position + frameSize, 0);
+        buffer.put(position + FRAME_HEADER_SIZE, payload);
+        buffer.putInt(position + Integer.BYTES, crc(payload, 0, payload.length));
+        // Length last, so a partially written frame is never seen as complete
+        buffer.putInt(position, payload.length);
+        writePosition = position + frameSize;
+        return position;
+    }
+    
+    /**
+     * Read the payload of the record at a position returned by append or scan
+     */
+    public byte[] read(int position) {
+        int length = buffer.getInt(position);
+        byte[] payload = new byte[length];
+        buffer.get(position + FRAME_HEADER_SIZE, payload);
+        return payload;
+    }
+    
+    /**
+     * Visit every complete record in append order
+     */
+    public void scan(RecordVisitor visitor) {
+        int position = 0;
+        int end = writePosition;
+        while (position < end) {
+            byte[] payload = read(position);
+            visitor.visit(position, payload);
+            position += FRAME_HEADER_SIZE + payload.length;
+        }
+    }
+    
+    /**
+     * Size in bytes of the framed record at a position
+     */
+    public int frameSize(int position) {
+        return FRAME_HEADER_SIZE + buffer.getInt(position);
+    }
+    
+    public long getId() {
+        return id;
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public int getWritePosition() {
+        return writePosition;
+    }
+    
+    public long lastModifiedMillis() throws IOException {
+        return Files.getLastModifiedTime(path).toMillis();
+    }
+    
+    /**
+     * Flush written pages to disk
+     */
+    public void force() {
+        buffer.force();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+    
+    /**
+     * Close and remove the segment file
+     */
+    public void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+    
+    private int recoverEnd() {
+        int position = 0;
+        while (position + FRAME_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || (long) position + FRAME_HEADER_SIZE + length > capacity) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + FRAME_HEADER_SIZE, payload);
+            if (crc(payload, 0, length) != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            position += FRAME_HEADER_SIZE + length;
+        }
+        // Clear a torn tail so later appends never run into stale bytes
+        if (position + Integer.BYTES <= capacity) {
+            buffer.putInt(position, 0);
+        }
+        return position;
+    }
+    
+    private static int crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * Callback for scanning records
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(int position, byte[] payload);
+    }
+}
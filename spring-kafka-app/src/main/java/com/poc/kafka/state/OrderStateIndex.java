@@ -0,0 +1,179 @@
+package com.poc.kafka.state;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process view of orders materialized from poc.poc.orders change events
+ * Orders are indexed by id with secondary indexes by userId and status, so interactive
+ * queries are answered without a MongoDB round trip. The view is bounded - once full,
+ * the oldest applied orders are evicted and are no longer found here; callers look them up
+ * through /api/data instead. It is insert-only: the connector skips updates, deletes and
+ * truncates (skipped.operations: u,d,t), so an order shows the document it was created with.
+ * OrderStateLoader rebuilds the view from MongoDB at startup.
+ */
+@Component
+public class OrderStateIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderStateIndex.class);
+    
+    private final int maxOrders;
+    private final LinkedHashMap<String, IndexedOrder> ordersById = new LinkedHashMap<>();
+    /** Secondary indexes map each key to its orders by apply sequence, so the newest are read first */
+    private final Map<String, TreeMap<Long, String>> ordersByUser = new HashMap<>();
+    private final Map<String, TreeMap<Long, String>> ordersByStatus = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StateFreshness freshness = new StateFreshness();
+    private long evicted;
+    private long sequence;
+    
+    public OrderStateIndex(@Value("${app.state.orders.max-entries:1000000}") int maxOrders) {
+        this.maxOrders = maxOrders;
+    }
+    
+    /**
+     * Apply the latest document of an order, replacing any previous version in its place
+     * A redelivered or reloaded order keeps the sequence it was first applied at, so it neither
+     * jumps to the newest position nor escapes eviction.
+     */
+    public void put(String orderId, Map<String, Object> document, Instant sourceTimestamp) {
+        if (orderId == null || document == null) {
+            return;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            IndexedOrder previous = ordersById.get(orderId);
+            if (previous != null) {
+                unindex(previous);
+            }
+            IndexedOrder order = new IndexedOrder(previous != null ? previous.sequence() : sequence++, document);
+            ordersById.put(orderId, order);
+            index(ordersByUser, stringValue(document.get("userId")), order.sequence(), orderId);
+            index(ordersByStatus, stringValue(document.get("status")), order.sequence(), orderId);
+            
+            if (ordersById.size() > maxOrders) {
+                Iterator<IndexedOrder> eldest = ordersById.values().iterator();
+                IndexedOrder evictedOrder = eldest.next();
+                eldest.remove();
+                unindex(evictedOrder);
+                if (evicted++ == 0) {
+                    logger.warn("Order state index is full at {} orders, evicting the oldest", maxOrders);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        freshness.recordApplied(sourceTimestamp);
+    }
+    
+    public Map<String, Object> get(String orderId) {
+        lock.readLock().lock();
+        try {
+            IndexedOrder order = ordersById.get(orderId);
+            return order != null ? order.document() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Latest orders of a user, newest first
+     */
+    public List<Map<String, Object>> findByUser(String userId, int limit) {
+        return latest(ordersByUser, userId, limit);
+    }
+    
+    /**
+     * Latest orders in a status, newest first
+     */
+    public List<Map<String, Object>> findByStatus(String status, int limit) {
+        return latest(ordersByStatus, status, limit);
+    }
+    
+    public StateFreshness getFreshness() {
+        return freshness;
+    }
+    
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("orders", ordersById.size());
+            stats.put("maxOrders", maxOrders);
+            stats.put("users", ordersByUser.size());
+            stats.put("statuses", ordersByStatus.size());
+            stats.put("evicted", evicted);
+            stats.put("freshness", freshness.toMap());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Walks the key's orders from the newest and stops at the limit, so the read lock is held for
+     * limit lookups however many orders the key has
+     */
+    private List<Map<String, Object>> latest(Map<String, TreeMap<Long, String>> index, String key, int limit) {
+        lock.readLock().lock();
+        try {
+            TreeMap<Long, String> orderIds = index.get(key);
+            if (orderIds == null) {
+                return List.of();
+            }
+            List<Map<String, Object>> orders = new ArrayList<>(Math.min(limit, orderIds.size()));
+            for (String orderId : orderIds.descendingMap().values()) {
+                if (orders.size() >= limit) {
+                    break;
+                }
+                orders.add(ordersById.get(orderId).document());
+            }
+            return orders;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void unindex(IndexedOrder order) {
+        remove(ordersByUser, stringValue(order.document().get("userId")), order.sequence());
+        remove(ordersByStatus, stringValue(order.document().get("status")), order.sequence());
+    }
+    
+    private static void index(Map<String, TreeMap<Long, String>> index, String key, long sequence, String orderId) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new TreeMap<>()).put(sequence, orderId);
+        }
+    }
+    
+    private static void remove(Map<String, TreeMap<Long, String>> index, String key, long sequence) {
+        if (key == null) {
+            return;
+        }
+        TreeMap<Long, String> orderIds = index.get(key);
+        if (orderIds != null && orderIds.remove(sequence) != null && orderIds.isEmpty()) {
+            index.remove(key);
+        }
+    }
+    
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : null;
+    }
+    
+    /**
+     * An order's document and the sequence it was applied at
+     */
+    private record IndexedOrder(long sequence, Map<String, Object> document) {}
+}
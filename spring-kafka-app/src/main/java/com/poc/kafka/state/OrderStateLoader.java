@@ -0,0 +1,99 @@
+package com.poc.kafka.state;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.poc.kafka.model.Order;
+import com.poc.kafka.service.DocumentDictionaryRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Rebuilds the order state index from MongoDB at startup
+ * The index lives on the heap and is fed by insert events only - the connector skips updates, deletes
+ * and truncates - so after a restart it would know none of the orders whose events were committed
+ * before. Runs once all singletons exist but before the listener containers start, and loads the
+ * newest max-entries orders in _id order, converted to the extended JSON the connector emits; events
+ * consumed afterwards are applied on top. A failure is logged and the index fills from new events.
+ */
+@Component
+public class OrderStateLoader implements SmartInitializingSingleton {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderStateLoader.class);
+    
+    private final MongoTemplate mongoTemplate;
+    private final OrderStateIndex orderStateIndex;
+    private final DocumentDictionaryRegistry documentDictionaries;
+    private final ObjectReader documentReader;
+    private final boolean enabled;
+    private final int maxOrders;
+    
+    public OrderStateLoader(MongoTemplate mongoTemplate, OrderStateIndex orderStateIndex,
+                            DocumentDictionaryRegistry documentDictionaries, ObjectMapper objectMapper,
+                            @Value("${app.state.orders.rebuild-on-start:true}") boolean enabled,
+                            @Value("${app.state.orders.max-entries:1000000}") int maxOrders) {
+        this.mongoTemplate = mongoTemplate;
+        this.orderStateIndex = orderStateIndex;
+        this.documentDictionaries = documentDictionaries;
+        this.documentReader = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {});
+        this.enabled = enabled;
+        this.maxOrders = maxOrders;
+    }
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        long startedAtMs = System.currentTimeMillis();
+        String collection = mongoTemplate.getCollectionName(Order.class);
+        LongAdder loaded = new LongAdder();
+        try {
+            long total = mongoTemplate.count(new Query(), collection);
+            Query newest = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).skip(Math.max(0, total - maxOrders));
+            try (Stream<Document> orders = mongoTemplate.stream(newest, Document.class, collection)) {
+                orders.forEach(order -> {
+                    orderStateIndex.put(orderId(order.get("_id")), toEventData(order), null);
+                    loaded.increment();
+                });
+            }
+            // Everything committed in MongoDB when the load started is in the index
+            orderStateIndex.getFreshness().recordApplied(Instant.ofEpochMilli(startedAtMs));
+            logger.info("📦 Rebuilt order state from MongoDB: {} of {} orders in {} ms",
+                       loaded.sum(), total, System.currentTimeMillis() - startedAtMs);
+        } catch (RuntimeException e) {
+            logger.warn("⚠️ Could not rebuild order state from MongoDB after {} orders, it fills from new events: {}",
+                       loaded.sum(), e.getMessage());
+        }
+    }
+    
+    /**
+     * The order as the connector's after field carries it: relaxed extended JSON, compacted like event data
+     */
+    private Map<String, Object> toEventData(Document order) {
+        try {
+            return documentDictionaries.compact("orders", documentReader.readValue(order.toJson()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static String orderId(Object id) {
+        return id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id);
+    }
+}
@@ -0,0 +1,44 @@
+package com.poc.kafka.state;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How current a piece of CDC-fed state is
+ * Tracks the source timestamp of the newest applied change event and when it was applied,
+ * so query responses can tell callers how far behind MongoDB the state may be.
+ */
+public class StateFreshness {
+    
+    private volatile long lastSourceTimestampMs = -1;
+    private volatile long lastAppliedAtMs = -1;
+    private volatile long lastLagMs = -1;
+    
+    /**
+     * Record that a change event has been applied
+     *
+     * @param sourceTimestamp commit time of the change in MongoDB, may be null
+     */
+    public void recordApplied(Instant sourceTimestamp) {
+        long now = System.currentTimeMillis();
+        if (sourceTimestamp != null) {
+            long source = sourceTimestamp.toEpochMilli();
+            if (source > lastSourceTimestampMs) {
+                lastSourceTimestampMs = source;
+            }
+            lastLagMs = Math.max(0, now - source);
+        }
+        lastAppliedAtMs = now;
+    }
+    
+    public Map<String, Object> toMap() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> freshness = new LinkedHashMap<>();
+        freshness.put("lastSourceTimestamp", lastSourceTimestampMs >= 0 ? Instant.ofEpochMilli(lastSourceTimestampMs).toString() : null);
+        freshness.put("lastAppliedAt", lastAppliedAtMs >= 0 ? Instant.ofEpochMilli(lastAppliedAtMs).toString() : null);
+        freshness.put("replicationLagMs", lastLagMs >= 0 ? lastLagMs : null);
+        freshness.put("sinceLastEventMs", lastAppliedAtMs >= 0 ? now - lastAppliedAtMs : null);
+        return freshness;
+    }
+}
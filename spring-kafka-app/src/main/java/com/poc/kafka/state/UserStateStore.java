@@ -0,0 +1,159 @@
+package com.poc.kafka.state;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local, persistent state store of users keyed by _id, materialized from poc.poc.users change events
+ * Backed by a LogStructuredStore on local disk, so lookups never touch MongoDB and a restart
+ * reopens the segments instead of replaying the topic. Compaction and flushing run in the background.
+ */
+@Component
+public class UserStateStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UserStateStore.class);
+    
+    private static final TypeReference<Map<String, Object>> DOCUMENT_TYPE = new TypeReference<>() {};
+    
+    private static final long MAINTENANCE_SHUTDOWN_TIMEOUT_SECONDS = 30;
+    
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-state-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final StateFreshness freshness = new StateFreshness();
+    private LogStructuredStore store;
+    
+    @Value("${app.state.dir:./data/state}")
+    private String stateDir;
+    
+    @Value("${app.state.users.segment-size-bytes:67108864}")
+    private int segmentSize;
+    
+    @Value("${app.state.users.compaction-dead-ratio:0.5}")
+    private double compactionDeadRatio;
+    
+    @Value("${app.state.users.compaction-interval-ms:60000}")
+    private long compactionIntervalMs;
+    
+    @Value("${app.state.users.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+    
+    public UserStateStore(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    @PostConstruct
+    public void open() throws IOException {
+        long start = System.nanoTime();
+        store = LogStructuredStore.open(Path.of(stateDir, "users"), segmentSize);
+        logger.info("🗄️ Opened user state store with {} users in {} ms",
+                   store.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        
+        maintenance.scheduleWithFixedDelay(this::compact, compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(store::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Let a running compaction or flush finish before the segments are closed under it
+     * The maintenance thread is not interrupted, since an interrupt closes the file channels it is writing.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        maintenance.shutdown();
+        try {
+            if (!maintenance.awaitTermination(MAINTENANCE_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("⚠️ User state maintenance still running after {} s, closing the store anyway",
+                           MAINTENANCE_SHUTDOWN_TIMEOUT_SECONDS);
+                maintenance.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        store.close();
+    }
+    
+    /**
+     * Store the latest document of a user
+     *
+     * @param sourceTimestamp commit time of the change in MongoDB, used for staleness reporting
+     */
+    public void put(String userId, Map<String, Object> document, Instant sourceTimestamp) {
+        if (userId == null || document == null) {
+            return;
+        }
+        try {
+            store.put(userId, objectMapper.writeValueAsBytes(document));
+            freshness.recordApplied(sourceTimestamp);
+        } catch (Exception e) {
+            logger.error("Failed to store user {} in state store: {}", userId, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Remove a user
+     */
+    public void remove(String userId) {
+        try {
+            store.delete(userId);
+        } catch (Exception e) {
+            logger.error("Failed to remove user {} from state store: {}", userId, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Point lookup of the latest known user document
+     */
+    public Optional<Map<String, Object>> get(String userId) {
+        byte[] value = store.get(userId);
+        if (value == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(value, DOCUMENT_TYPE));
+        } catch (IOException e) {
+            logger.error("Failed to read user {} from state store: {}", userId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    public boolean contains(String userId) {
+        return store.containsKey(userId);
+    }
+    
+    public StateFreshness getFreshness() {
+        return freshness;
+    }
+    
+    public Map<String, Object> getStats() {
+        return store.getStats();
+    }
+    
+    private void compact() {
+        try {
+            int compacted = store.compact(compactionDeadRatio);
+            if (compacted > 0) {
+                logger.info("🧹 Compacted {} user state segments: {}", compacted, store.getStats());
+            }
+        } catch (Exception e) {
+            logger.error("User state store compaction failed: {}", e.getMessage(), e);
+        }
+    }
+}
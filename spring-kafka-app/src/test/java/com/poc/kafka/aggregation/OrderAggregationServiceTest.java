@@ -0,0 +1,99 @@
+package com.poc.kafka.aggregation;
+
+import com.poc.kafka.consumer.RecordCompletion;
+import com.poc.kafka.consumer.RecordCompletionTracker;
+import com.poc.kafka.model.ProcessedChangeEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderAggregationServiceTest {
+    
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long IDLE_CLOSE_MS = 10_000;
+    private static final long ALLOWED_LATENESS_MS = 5_000;
+    
+    @TempDir
+    Path stateDir;
+    
+    @Test
+    void watermarkFollowsEventTimeWhileOrdersArrive() {
+        // A consumer an hour behind: its orders are far older than the wall clock
+        long eventTime = NOW - 3_600_000;
+        long watermark = OrderAggregationService.watermark(eventTime, NOW - 100, NOW, IDLE_CLOSE_MS, ALLOWED_LATENESS_MS);
+        
+        assertThat(watermark).isEqualTo(eventTime - ALLOWED_LATENESS_MS);
+    }
+    
+    @Test
+    void watermarkAdvancesByWallClockOnceTheStreamIsIdle() {
+        long eventTime = NOW - 3_600_000;
+        long watermark = OrderAggregationService.watermark(eventTime, NOW - IDLE_CLOSE_MS, NOW, IDLE_CLOSE_MS,
+                                                           ALLOWED_LATENESS_MS);
+        
+        assertThat(watermark).isEqualTo(NOW - IDLE_CLOSE_MS - ALLOWED_LATENESS_MS);
+    }
+    
+    @Test
+    void ordersAreAcknowledgedOnceACheckpointHoldsThem() {
+        OrderAggregationService service = openService();
+        RecordCompletionTracker tracker = new RecordCompletionTracker();
+        List<Long> acknowledged = new ArrayList<>();
+        
+        for (long offset = 0; offset < 3; offset++) {
+            long acknowledgedOffset = offset;
+            RecordCompletion completion = tracker.begin(new ConsumerRecord<>("poc.poc.orders", 0, offset, "k", "v"),
+                                                        () -> acknowledged.add(acknowledgedOffset));
+            service.onOrder(order("u1", "12.50"), completion);
+            completion.release();
+        }
+        assertThat(acknowledged).isEmpty();
+        
+        service.checkpoint();
+        
+        assertThat(acknowledged).containsExactly(2L);
+    }
+    
+    @Test
+    void restartRestoresTheCheckpointedWindows() {
+        OrderAggregationService service = openService();
+        RecordCompletionTracker tracker = new RecordCompletionTracker();
+        RecordCompletion completion = tracker.begin(new ConsumerRecord<>("poc.poc.orders", 0, 0, "k", "v"), () -> { });
+        service.onOrder(order("u1", "12.50"), completion);
+        service.checkpoint();
+        
+        OrderAggregationService restarted = openService();
+        
+        @SuppressWarnings("unchecked")
+        Map<String, Object> tumbling = (Map<String, Object>) restarted.getStats().get("tumbling");
+        assertThat(tumbling).containsEntry("openPanes", 1);
+        assertThat(tumbling).containsEntry("paneKeys", 1);
+    }
+    
+    private OrderAggregationService openService() {
+        OrderAggregationService service = new OrderAggregationService(null);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "tumblingSizeMs", 60_000L);
+        ReflectionTestUtils.setField(service, "slidingSizeMs", 300_000L);
+        ReflectionTestUtils.setField(service, "slidingAdvanceMs", 60_000L);
+        ReflectionTestUtils.setField(service, "maxUsersPerPane", 1000);
+        ReflectionTestUtils.setField(service, "maxPanes", 64);
+        ReflectionTestUtils.setField(service, "stateDir", stateDir.toString());
+        service.open();
+        return service;
+    }
+    
+    private static ProcessedChangeEvent order(String userId, String totalAmount) {
+        return new ProcessedChangeEvent("INSERT", "orders", "o-" + System.nanoTime(), Instant.ofEpochMilli(NOW),
+                                        Map.of("userId", userId, "totalAmount", totalAmount), "mongodb-debezium");
+    }
+}
@@ -0,0 +1,108 @@
+package com.poc.kafka.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WindowedOrderAggregatorTest {
+    
+    @Test
+    void tumblingWindowClosesOnceTheWatermarkReachesItsEnd() {
+        WindowedOrderAggregator aggregator = new WindowedOrderAggregator("tumbling", 1000, 1000, 100, 16);
+        aggregator.add("u1", 100, 500);
+        aggregator.add("u1", 900, 250);
+        aggregator.add("u2", 1500, 100);
+        
+        assertThat(aggregator.advanceTo(999)).isEmpty();
+        
+        List<WindowedOrderAggregator.WindowResult> closed = aggregator.advanceTo(1000);
+        assertThat(closed).hasSize(1);
+        assertThat(closed.get(0).windowStart()).isEqualTo(0L);
+        assertThat(closed.get(0).windowEnd()).isEqualTo(1000L);
+        assertThat(users(closed.get(0))).isEqualTo(Map.of("u1", "2/750"));
+        
+        closed = aggregator.advanceTo(2000);
+        assertThat(closed).hasSize(1);
+        assertThat(users(closed.get(0))).isEqualTo(Map.of("u2", "1/100"));
+    }
+    
+    @Test
+    void ordersForAClosedWindowAreCountedLateAndLeftOut() {
+        WindowedOrderAggregator aggregator = new WindowedOrderAggregator("tumbling", 1000, 1000, 100, 16);
+        aggregator.add("u1", 100, 500);
+        aggregator.add("u2", 1200, 100);
+        aggregator.advanceTo(1000);
+        
+        aggregator.add("u1", 999, 700);
+        
+        assertThat(aggregator.getStats()).containsEntry("lateEvents", 1L);
+        List<WindowedOrderAggregator.WindowResult> closed = aggregator.advanceTo(2000);
+        assertThat(closed).hasSize(1);
+        assertThat(users(closed.get(0))).isEqualTo(Map.of("u2", "1/100"));
+    }
+    
+    @Test
+    void slidingWindowsMergeTheirPanes() {
+        WindowedOrderAggregator aggregator = new WindowedOrderAggregator("sliding", 3000, 1000, 100, 16);
+        aggregator.add("u1", 500, 100);
+        aggregator.add("u1", 1500, 200);
+        
+        List<WindowedOrderAggregator.WindowResult> closed = aggregator.advanceTo(2000);
+        assertThat(closed).hasSize(2);
+        assertThat(closed.get(0).windowEnd()).isEqualTo(1000L);
+        assertThat(users(closed.get(0))).isEqualTo(Map.of("u1", "1/100"));
+        assertThat(closed.get(1).windowStart()).isEqualTo(-1000L);
+        assertThat(closed.get(1).windowEnd()).isEqualTo(2000L);
+        assertThat(users(closed.get(1))).isEqualTo(Map.of("u1", "2/300"));
+    }
+    
+    @Test
+    void checkpointRestoresOpenWindows() throws IOException {
+        WindowedOrderAggregator aggregator = new WindowedOrderAggregator("tumbling", 1000, 1000, 100, 16);
+        aggregator.add("u1", 100, 500);
+        aggregator.add("u2", 1500, 100);
+        aggregator.advanceTo(1000);
+        aggregator.add("u2", 1700, 50);
+        
+        ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        aggregator.writeCheckpoint(new DataOutputStream(checkpoint));
+        
+        WindowedOrderAggregator restored = new WindowedOrderAggregator("tumbling", 1000, 1000, 100, 16);
+        assertThat(restored.readCheckpoint(new DataInputStream(new ByteArrayInputStream(checkpoint.toByteArray())))).isTrue();
+        assertThat(restored.getMaxEventTimestamp()).isEqualTo(1700L);
+        
+        // The closed window stays closed, the open one carries on where it was
+        restored.add("u1", 400, 900);
+        assertThat(restored.getStats()).containsEntry("lateEvents", 1L);
+        List<WindowedOrderAggregator.WindowResult> closed = restored.advanceTo(2000);
+        assertThat(closed).hasSize(1);
+        assertThat(users(closed.get(0))).isEqualTo(Map.of("u2", "2/150"));
+    }
+    
+    @Test
+    void checkpointOfADifferentWindowConfigurationIsRejected() throws IOException {
+        WindowedOrderAggregator aggregator = new WindowedOrderAggregator("tumbling", 1000, 1000, 100, 16);
+        aggregator.add("u1", 100, 500);
+        ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        aggregator.writeCheckpoint(new DataOutputStream(checkpoint));
+        
+        WindowedOrderAggregator resized = new WindowedOrderAggregator("tumbling", 2000, 2000, 100, 16);
+        assertThat(resized.readCheckpoint(new DataInputStream(new ByteArrayInputStream(checkpoint.toByteArray())))).isFalse();
+        assertThat(resized.getMaxEventTimestamp()).isEqualTo(Long.MIN_VALUE);
+    }
+    
+    private static Map<String, String> users(WindowedOrderAggregator.WindowResult window) {
+        Map<String, String> users = new TreeMap<>();
+        window.users().forEach((userId, orderCount, amountCents) -> users.put(userId, orderCount + "/" + amountCents));
+        return users;
+    }
+}
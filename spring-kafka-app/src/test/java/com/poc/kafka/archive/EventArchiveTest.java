@@ -0,0 +1,80 @@
+package com.poc.kafka.archive;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventArchiveTest {
+    
+    private static final int EVENTS = 200;
+    
+    @TempDir
+    Path directory;
+    
+    private EventArchive archive;
+    
+    @BeforeEach
+    void openArchive() throws IOException {
+        // Small segments and a dense index, so the events span several segments with many index entries each
+        archive = EventArchive.open(directory, 4096, 256);
+        for (int i = 0; i < EVENTS; i++) {
+            archive.append("processed-changes", 0, i, "users:" + i, "{\"n\":" + i + "}");
+        }
+    }
+    
+    @AfterEach
+    void closeArchive() throws IOException {
+        archive.close();
+    }
+    
+    @Test
+    void replayFromTheBeginningVisitsEveryEvent() {
+        assertThat(sequencesFromTimestamp(Long.MIN_VALUE)).hasSize(EVENTS).startsWith(0L, 1L, 2L);
+        assertThat(sequencesFromTimestamp(0)).hasSize(EVENTS).startsWith(0L, 1L, 2L);
+    }
+    
+    @Test
+    void readFromOffsetStartsAtTheOffsetInEverySegment() {
+        assertThat(offsetsFrom(archive, 0, 150)).hasSize(EVENTS - 150).startsWith(150L, 151L);
+        assertThat(offsetsFrom(archive, 0, 0)).hasSize(EVENTS).startsWith(0L, 1L);
+        assertThat(offsetsFrom(archive, 0, EVENTS)).isEmpty();
+        assertThat((int) archive.getStats().get("offsetIndexEntries")).isGreaterThan(1);
+    }
+    
+    @Test
+    void readFromOffsetMissesNoEventArchivedOutOfOrder() throws IOException {
+        // Publish callbacks can complete out of order: swap neighbouring offsets, interleave another partition
+        try (EventArchive reordered = EventArchive.open(directory.resolve("reordered"), 4096, 128)) {
+            for (int i = 0; i < EVENTS; i += 2) {
+                reordered.append("processed-changes", 1, i + 1, "orders:" + i, "{\"n\":" + i + "}");
+                reordered.append("processed-changes", 2, i, "users:" + i, "{\"n\":" + i + "}");
+                reordered.append("processed-changes", 1, i, "orders:" + i, "{\"n\":" + i + "}");
+            }
+            
+            for (long from = 0; from < EVENTS; from += 7) {
+                List<Long> offsets = offsetsFrom(reordered, 1, from);
+                assertThat(offsets).hasSize((int) (EVENTS - from));
+            }
+        }
+    }
+    
+    private static List<Long> offsetsFrom(EventArchive archive, int partition, long fromOffset) {
+        List<Long> offsets = new ArrayList<>();
+        archive.readFromOffset("processed-changes", partition, fromOffset, event -> offsets.add(event.offset()));
+        return offsets;
+    }
+    
+    private List<Long> sequencesFromTimestamp(long fromTimestampMs) {
+        List<Long> sequences = new ArrayList<>();
+        archive.readFromTimestamp(fromTimestampMs, event -> sequences.add(event.sequence()));
+        return sequences;
+    }
+}
@@ -0,0 +1,86 @@
+package com.poc.kafka.bulkhead;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+    
+    private static final long LONG_OPEN_MS = 60_000;
+    
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, LONG_OPEN_MS);
+        
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.onSuccess(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        
+        breaker.onFailure(breaker.tryAcquire());
+        
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.isOpen()).isTrue();
+        assertThat(breaker.tryAcquire()).isNull();
+        assertThat(breaker.getTimesOpened()).isEqualTo(1L);
+    }
+    
+    @Test
+    void halfOpenLetsOneTrialThroughAndItsSuccessCloses() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure(breaker.tryAcquire());
+        
+        CircuitBreaker.Permit trial = breaker.tryAcquire();
+        
+        assertThat(trial).isEqualTo(CircuitBreaker.Permit.TRIAL);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isNull();
+        
+        breaker.onSuccess(trial);
+        
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isEqualTo(CircuitBreaker.Permit.CALL);
+    }
+    
+    @Test
+    void failedTrialOpensAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure(breaker.tryAcquire());
+        
+        breaker.onFailure(breaker.tryAcquire());
+        
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.getTimesOpened()).isEqualTo(2L);
+    }
+    
+    @Test
+    void onlyReleasingTheTrialLetsAnotherTrialThrough() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        CircuitBreaker.Permit reservedBeforeOpening = breaker.tryAcquire();
+        breaker.onFailure(breaker.tryAcquire());
+        CircuitBreaker.Permit trial = breaker.tryAcquire();
+        
+        breaker.release(reservedBeforeOpening);
+        assertThat(breaker.tryAcquire()).isNull();
+        
+        breaker.release(trial);
+        assertThat(breaker.tryAcquire()).isEqualTo(CircuitBreaker.Permit.TRIAL);
+    }
+    
+    @Test
+    void callsPermittedBeforeOpeningDoNotDecideTheTrial() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        CircuitBreaker.Permit succeeding = breaker.tryAcquire();
+        CircuitBreaker.Permit failing = breaker.tryAcquire();
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.tryAcquire();
+        
+        breaker.onSuccess(succeeding);
+        breaker.onFailure(failing);
+        
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.getTimesOpened()).isEqualTo(1L);
+    }
+}
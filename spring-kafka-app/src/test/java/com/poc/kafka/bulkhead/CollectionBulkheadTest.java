@@ -0,0 +1,110 @@
+package com.poc.kafka.bulkhead;
+
+import com.poc.kafka.config.BulkheadProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CollectionBulkheadTest {
+    
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private CollectionBulkhead bulkhead;
+    
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        if (bulkhead != null) {
+            bulkhead.shutdown();
+        }
+    }
+    
+    @Test
+    void handlerPastItsDeadlineFailsAndTheEventsBehindItMoveToAFreshLane() throws Exception {
+        bulkhead = new CollectionBulkhead("orders", settings(1, 100, 5));
+        CountDownLatch secondRan = new CountDownLatch(1);
+        
+        CompletableFuture<Void> stuck = bulkhead.execute("doc-1", bulkhead.tryReserve(), this::awaitUnblock);
+        CompletableFuture<Void> behind = bulkhead.execute("doc-2", bulkhead.tryReserve(), secondRan::countDown);
+        
+        assertThatThrownBy(() -> stuck.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("exceeded its 100 ms budget");
+        assertThat(secondRan.await(5, TimeUnit.SECONDS)).isTrue();
+        behind.get(5, TimeUnit.SECONDS);
+        
+        assertThat(bulkhead.getStats()).containsEntry("timedOut", 1L);
+        assertThat(bulkhead.getStats()).containsEntry("lostLanes", 1L);
+        assertThat(bulkhead.getStats()).containsEntry("succeeded", 1L);
+    }
+    
+    @Test
+    void handlerReturningAfterItsDeadlineIsNotCountedTwice() throws Exception {
+        bulkhead = new CollectionBulkhead("orders", settings(1, 100, 5));
+        CompletableFuture<Void> stuck = bulkhead.execute("doc-1", bulkhead.tryReserve(), this::awaitUnblock);
+        assertThatThrownBy(() -> stuck.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        
+        unblock.countDown();
+        // The stuck handler gives its capacity back once it has returned and been accounted for
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (availableCapacity() < 11 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        
+        assertThat(availableCapacity()).isEqualTo(11);
+        assertThat(bulkhead.getStats()).containsEntry("succeeded", 0L);
+        assertThat(bulkhead.getStats()).containsEntry("timedOut", 1L);
+        assertThat(stuck.isCompletedExceptionally()).isTrue();
+    }
+    
+    @Test
+    void timeoutsOpenTheBreaker() throws Exception {
+        bulkhead = new CollectionBulkhead("orders", settings(2, 50, 2));
+        CompletableFuture<Void> first = bulkhead.execute("doc-1", bulkhead.tryReserve(), this::awaitUnblock);
+        CompletableFuture<Void> second = bulkhead.execute("doc-2", bulkhead.tryReserve(), this::awaitUnblock);
+        
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        
+        assertThat(bulkhead.getStats()).containsEntry("circuitBreaker", "OPEN");
+        assertThat(bulkhead.tryReserve()).isNull();
+        assertThat(bulkhead.canResume()).isFalse();
+    }
+    
+    private int availableCapacity() {
+        List<CircuitBreaker.Permit> permits = new ArrayList<>();
+        CircuitBreaker.Permit permit;
+        while ((permit = bulkhead.tryReserve()) != null) {
+            permits.add(permit);
+        }
+        permits.forEach(bulkhead::cancelReservation);
+        return permits.size();
+    }
+    
+    private void awaitUnblock() {
+        try {
+            unblock.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static BulkheadProperties.Bulkhead settings(int concurrency, long timeoutMs, int failureThreshold) {
+        BulkheadProperties.Bulkhead settings = new BulkheadProperties.Bulkhead();
+        settings.setConcurrency(concurrency);
+        settings.setQueueCapacity(10);
+        settings.setTimeoutMs(timeoutMs);
+        settings.setFailureThreshold(failureThreshold);
+        settings.setOpenDurationMs(60_000);
+        settings.setResumeQueueRatio(0.5);
+        return settings;
+    }
+}
@@ -0,0 +1,55 @@
+package com.poc.kafka.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void everyAddedValueIsReported() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("user" + i + "@example.com")).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositivesStayNearTheTargetRateAtTheExpectedSize() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@example.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i + "@example.org")) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+
+        assertThat(filter.mightContain("john.doe@example.com")).isFalse();
+        assertThat(filter.mightContain("")).isFalse();
+    }
+
+    @Test
+    void sizesBitsAndHashFunctionsFromTheTargetRate() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+        // m = -n ln(p) / ln(2)^2 ~ 9.59 bits per value, k = m/n ln(2) ~ 7, rounded up to whole words
+        assertThat(filter.bitCount()).isBetween(9_585_000L, 9_585_100L);
+        assertThat(filter.hashFunctions()).isEqualTo(7);
+    }
+}
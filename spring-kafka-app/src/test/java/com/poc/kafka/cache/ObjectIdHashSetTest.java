@@ -0,0 +1,75 @@
+package com.poc.kafka.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ObjectIdHashSetTest {
+
+    @Test
+    void addsAndFindsIdsAcrossResizes() {
+        ObjectIdHashSet ids = new ObjectIdHashSet(16, 10_000);
+        int initialCapacity = ids.capacity();
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(ids.add(objectId(i))).isTrue();
+        }
+
+        assertThat(ids.size()).isEqualTo(1000);
+        assertThat(ids.capacity()).isGreaterThan(initialCapacity);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(ids.contains(objectId(i))).isTrue();
+        }
+        assertThat(ids.contains(objectId(1000))).isFalse();
+    }
+
+    @Test
+    void duplicatesAndInvalidIdsAreNotAdded() {
+        ObjectIdHashSet ids = new ObjectIdHashSet(16, 100);
+
+        assertThat(ids.add("507f1f77bcf86cd799439011")).isTrue();
+        assertThat(ids.add("507F1F77BCF86CD799439011")).isFalse();
+        assertThat(ids.add("not-an-object-id")).isFalse();
+        assertThat(ids.add("507f1f77bcf86cd79943901g")).isFalse();
+        assertThat(ids.contains(null)).isFalse();
+        assertThat(ids.size()).isEqualTo(1);
+    }
+
+    @Test
+    void stopsAddingAtMaxEntries() {
+        ObjectIdHashSet ids = new ObjectIdHashSet(16, 3);
+
+        for (int i = 0; i < 5; i++) {
+            ids.add(objectId(i));
+        }
+
+        assertThat(ids.size()).isEqualTo(3);
+        assertThat(ids.isFull()).isTrue();
+        assertThat(ids.contains(objectId(3))).isFalse();
+    }
+
+    @Test
+    void footprintCountsEverySlotAtThirteenBytes() {
+        ObjectIdHashSet ids = new ObjectIdHashSet(65536, 1_000_000);
+
+        assertThat(ids.footprintBytes()).isEqualTo(ids.capacity() * 13L);
+        // 1M ids need 2^21 slots to stay under the 0.6 load factor
+        assertThat(ids.maxFootprintBytes()).isEqualTo((1L << 21) * 13);
+    }
+
+    @Test
+    void clearEmptiesTheSet() {
+        ObjectIdHashSet ids = new ObjectIdHashSet(16, 100);
+        ids.add(objectId(1));
+
+        ids.clear();
+
+        assertThat(ids.size()).isZero();
+        assertThat(ids.contains(objectId(1))).isFalse();
+        assertThat(ids.add(objectId(1))).isTrue();
+    }
+
+    private static String objectId(int i) {
+        return String.format("65a1b2c3%08x%08x", i * 7919, i);
+    }
+}
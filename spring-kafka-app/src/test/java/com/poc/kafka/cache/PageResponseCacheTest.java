@@ -0,0 +1,124 @@
+package com.poc.kafka.cache;
+
+import com.poc.kafka.dto.CursorPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageResponseCacheTest {
+
+    private final PageResponseCache cache = new PageResponseCache(100, 10_000, 60_000);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void servesARepeatedPageFromTheCache() {
+        PageResponseCache.CachedPage<Doc> first = firstPage();
+        PageResponseCache.CachedPage<Doc> second = firstPage();
+
+        assertThat(first.cached()).isFalse();
+        assertThat(second.cached()).isTrue();
+        assertThat(second.etag()).isEqualTo(first.etag());
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void insertIntoAFullPageRangeInvalidatesOnlyThatPage() {
+        firstPage();
+        lastPage();
+
+        // Between the first page's cursor and its last id
+        cache.onDocumentChanged("users", id(2), null, null);
+
+        assertThat(firstPage().cached()).isFalse();
+        assertThat(lastPage().cached()).isTrue();
+    }
+
+    @Test
+    void insertBehindEveryFullPageInvalidatesOnlyTheOpenLastPage() {
+        firstPage();
+        lastPage();
+
+        cache.onDocumentChanged("users", id(99), null, null);
+
+        assertThat(firstPage().cached()).isTrue();
+        assertThat(lastPage().cached()).isFalse();
+        assertThat((long) cache.getStats().get("invalidations")).isEqualTo(1);
+    }
+
+    @Test
+    void filteredPagesIgnoreDocumentsOutsideTheirFilter() {
+        load("orders", null, "alice", docs(1, 3), id(3));
+
+        cache.onDocumentChanged("orders", id(2), "bob", "PENDING");
+        assertThat(load("orders", null, "alice", docs(1, 3), id(3)).cached()).isTrue();
+
+        cache.onDocumentChanged("orders", id(2), "alice", "PENDING");
+        assertThat(load("orders", null, "alice", docs(1, 3), id(3)).cached()).isFalse();
+    }
+
+    @Test
+    void pageLoadedWhileAChangeIsAppliedIsNotCached() {
+        cache.getOrLoad("users", null, 3, null, null, () -> {
+            cache.onDocumentChanged("users", id(50), null, null);
+            return new CursorPage<>(docs(1, 3), id(3), 3);
+        }, Doc::id, Doc::hashCode);
+
+        assertThat(firstPage().cached()).isFalse();
+        assertThat(firstPage().cached()).isTrue();
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedPagesBeyondMaxEntries() {
+        PageResponseCache small = new PageResponseCache(2, 10_000, 60_000);
+        for (int page = 0; page < 3; page++) {
+            String after = page == 0 ? null : id(page * 3);
+            small.getOrLoad("users", after, 3, null, null,
+                    () -> new CursorPage<>(docs(1, 3), null, 3), Doc::id, Doc::hashCode);
+        }
+
+        assertThat((int) small.getStats().get("entries")).isEqualTo(2);
+        assertThat((long) small.getStats().get("evictions")).isEqualTo(1);
+    }
+
+    @Test
+    void matchesIfNoneMatchAgainstTheWeakEtag() {
+        String etag = firstPage().etag();
+
+        assertThat(cache.isNotModified(etag, etag)).isTrue();
+        assertThat(cache.isNotModified("\"other\", " + etag.substring(2), etag)).isTrue();
+        assertThat(cache.isNotModified("\"other\"", etag)).isFalse();
+        assertThat(cache.isNotModified(null, etag)).isFalse();
+    }
+
+    /** Documents 1-3, followed by a next page */
+    private PageResponseCache.CachedPage<Doc> firstPage() {
+        return load("users", null, null, docs(1, 3), id(3));
+    }
+
+    /** Documents 4-5, the end of the collection */
+    private PageResponseCache.CachedPage<Doc> lastPage() {
+        return load("users", id(3), null, docs(4, 5), null);
+    }
+
+    private PageResponseCache.CachedPage<Doc> load(String collection, String after, String userId,
+                                                   List<Doc> items, String nextCursor) {
+        return cache.getOrLoad(collection, after, 3, userId, null, () -> {
+            loads.incrementAndGet();
+            return new CursorPage<>(items, nextCursor, 3);
+        }, Doc::id, Doc::hashCode);
+    }
+
+    private static List<Doc> docs(int from, int to) {
+        return IntStream.rangeClosed(from, to).mapToObj(i -> new Doc(id(i))).toList();
+    }
+
+    private static String id(int i) {
+        return String.format("65a1b2c3d4e5f6a7%08x", i);
+    }
+
+    private record Doc(String id) {}
+}
@@ -0,0 +1,18 @@
+package com.poc.kafka.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserEmailFilterTest {
+
+    @Test
+    void everyEmailIsPossiblyKnownUntilTheFilterIsSeeded() {
+        UserEmailFilter emails = new UserEmailFilter(null, 1000, 0.01);
+        emails.recordEmail("jane.doe@example.com");
+
+        assertThat(emails.mightExist("john.doe@example.com")).isTrue();
+        assertThat(emails.mightExist(null)).isFalse();
+        assertThat(emails.getStats().get("seeded")).isEqualTo(false);
+    }
+}
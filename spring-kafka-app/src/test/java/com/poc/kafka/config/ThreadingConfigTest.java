@@ -0,0 +1,46 @@
+package com.poc.kafka.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThreadingConfigTest {
+    
+    /** A synchronized block or method, outside comments */
+    private static final Pattern SYNCHRONIZED = Pattern.compile("^(?!\\s*(//|\\*|/\\*)).*\\bsynchronized\\b");
+    
+    /**
+     * Keeps the virtual thread guarantee of ThreadingConfig: no carrier pinning from our own monitors
+     */
+    @Test
+    void mainSourcesUseLocksRatherThanSynchronized() throws IOException {
+        try (Stream<Path> sources = Files.walk(Path.of("src/main/java"))) {
+            List<String> offenders = sources
+                    .filter(path -> path.toString().endsWith(".java"))
+                    .flatMap(ThreadingConfigTest::synchronizedLines)
+                    .toList();
+            
+            assertThat(offenders).isEmpty();
+        }
+    }
+    
+    private static Stream<String> synchronizedLines(Path source) {
+        try {
+            List<String> lines = Files.readAllLines(source);
+            return IntStream.range(0, lines.size())
+                    .filter(i -> SYNCHRONIZED.matcher(lines.get(i)).find())
+                    .mapToObj(i -> source + ":" + (i + 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.poc.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordCompletionTrackerTest {
+    
+    private static final TopicPartition PARTITION = new TopicPartition("poc.poc.users", 0);
+    
+    private final RecordCompletionTracker tracker = new RecordCompletionTracker();
+    private final List<Long> acknowledged = new CopyOnWriteArrayList<>();
+    
+    @Test
+    void acknowledgesOnlyTheEndOfTheLeadingCompleteRun() {
+        RecordCompletion first = begin(0);
+        RecordCompletion second = begin(1);
+        RecordCompletion third = begin(2);
+        
+        second.release();
+        third.release();
+        assertThat(acknowledged).isEmpty();
+        
+        first.release();
+        assertThat(acknowledged).containsExactly(2L);
+        assertThat(tracker.getStats().get(PARTITION.toString())).isEqualTo(0);
+    }
+    
+    @Test
+    void awaitedStepsHoldTheRecordUntilTheyFinishEvenWhenTheyFail() {
+        RecordCompletion record = begin(0);
+        CompletableFuture<Void> published = new CompletableFuture<>();
+        CompletableFuture<Void> handled = new CompletableFuture<>();
+        record.await(published);
+        record.await(handled);
+        record.release();
+        
+        published.complete(null);
+        assertThat(acknowledged).isEmpty();
+        
+        handled.completeExceptionally(new IllegalStateException("handler failed"));
+        assertThat(acknowledged).containsExactly(0L);
+    }
+    
+    @Test
+    void cancelledRecordNoLongerHoldsBackLaterRecords() {
+        RecordCompletion refused = begin(0);
+        begin(1).release();
+        
+        refused.cancel();
+        
+        assertThat(acknowledged).containsExactly(1L);
+    }
+    
+    @Test
+    void resumeOffsetStopsAtTheFirstRecordNotPersistedByTheSinkWrite() {
+        RecordCompletion sunk = begin(0);
+        sunk.await(new CompletableFuture<>());
+        sunk.release();
+        RecordCompletion handling = begin(1);
+        handling.await(new CompletableFuture<>());
+        handling.await(new CompletableFuture<>());
+        handling.release();
+        begin(2).release();
+        
+        // Record 1 waits for its handler as well as the sink, so the resume offset cannot pass it
+        assertThat(tracker.resumeOffsets(List.of(sunk, handling))).isEqualTo(Map.of(PARTITION, 1L));
+        assertThat(tracker.resumeOffsets(List.of(sunk))).isEqualTo(Map.of(PARTITION, 1L));
+    }
+    
+    @Test
+    void resumeOffsetCoversAContiguousRunOfPersistedRecords() {
+        RecordCompletion first = begin(0);
+        first.await(new CompletableFuture<>());
+        first.release();
+        RecordCompletion second = begin(1);
+        second.await(new CompletableFuture<>());
+        second.release();
+        
+        assertThat(tracker.resumeOffsets(List.of(first, second))).isEqualTo(Map.of(PARTITION, 2L));
+    }
+    
+    @Test
+    void lostPartitionsAreNeitherAcknowledgedNorResumed() {
+        RecordCompletion record = begin(0);
+        record.await(new CompletableFuture<>());
+        
+        tracker.onPartitionsLost(null, List.of(PARTITION));
+        record.release();
+        
+        assertThat(acknowledged).isEmpty();
+        assertThat(tracker.resumeOffsets(List.of(record))).isEmpty();
+    }
+    
+    @Test
+    void revocationWaitsForInFlightRecordsToFinish() {
+        ReflectionTestUtils.setField(tracker, "drainTimeoutMs", 5000L);
+        RecordCompletion record = begin(0);
+        record.await(CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)));
+        record.release();
+        
+        tracker.onPartitionsRevokedBeforeCommit(null, List.of(PARTITION));
+        
+        assertThat(acknowledged).containsExactly(0L);
+    }
+    
+    private RecordCompletion begin(long offset) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "key", "value");
+        Acknowledgment acknowledgment = () -> acknowledged.add(offset);
+        return tracker.begin(record, acknowledgment);
+    }
+}
@@ -0,0 +1,93 @@
+package com.poc.kafka.decoder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.poc.kafka.service.ChangeEventSchemaCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaEnvelopeReaderTest {
+    
+    private static final String USERS_SCHEMA = "{\"type\":\"struct\",\"fields\":[{\"type\":\"string\",\"field\":\"op\"}],"
+            + "\"name\":\"poc.poc.users.Envelope\"}";
+    private static final String ORDERS_SCHEMA = "{\"type\":\"struct\",\"fields\":[{\"type\":\"string\",\"field\":\"op\"}],"
+            + "\"name\":\"poc.poc.orders.Envelope\"}";
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader payloadReader = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {});
+    private ChangeEventSchemaCache schemaCache;
+    private SchemaEnvelopeReader reader;
+    
+    @BeforeEach
+    void setUp() {
+        schemaCache = new ChangeEventSchemaCache(objectMapper);
+        ReflectionTestUtils.setField(schemaCache, "maxEntries", 256);
+        reader = new SchemaEnvelopeReader(objectMapper, schemaCache);
+    }
+    
+    @Test
+    void bindsABarePayload() throws IOException {
+        Map<String, Object> payload = reader.read("{\"op\":\"c\"}", payloadReader);
+        
+        assertThat(payload).containsEntry("op", "c");
+        assertThat(schemaCache.getStats()).containsEntry("misses", 0L);
+    }
+    
+    @Test
+    void knownSchemaIsMatchedInPlaceAndThePayloadBoundBehindIt() throws IOException {
+        Map<String, Object> first = reader.read(envelope(USERS_SCHEMA, "{\"op\":\"c\"}"), payloadReader);
+        Map<String, Object> second = reader.read(envelope(USERS_SCHEMA, "{\"op\":\"u\"}"), payloadReader);
+        
+        assertThat(first).containsEntry("op", "c");
+        assertThat(second).containsEntry("op", "u");
+        assertThat(schemaCache.getStats()).containsEntry("misses", 1L);
+        assertThat(schemaCache.getStats()).containsEntry("hits", 1L);
+        assertThat(schemaCache.getStats()).containsEntry("schemaCharsSkipped", (long) USERS_SCHEMA.length());
+    }
+    
+    @Test
+    void schemasOfSeveralTopicsAreAllMatchedInPlace() throws IOException {
+        reader.read(envelope(USERS_SCHEMA, "{\"op\":\"c\"}"), payloadReader);
+        reader.read(envelope(ORDERS_SCHEMA, "{\"op\":\"c\"}"), payloadReader);
+        
+        Map<String, Object> users = reader.read(envelope(USERS_SCHEMA, "{\"op\":\"d\"}"), payloadReader);
+        Map<String, Object> orders = reader.read(envelope(ORDERS_SCHEMA, "{\"op\":\"r\"}"), payloadReader);
+        
+        assertThat(users).containsEntry("op", "d");
+        assertThat(orders).containsEntry("op", "r");
+        assertThat(schemaCache.getStats()).containsEntry("schemas", 2);
+        assertThat(schemaCache.getStats()).containsEntry("hits", 2L);
+    }
+    
+    @Test
+    void changedSchemaIsTokenizedAgain() throws IOException {
+        reader.read(envelope(USERS_SCHEMA, "{\"op\":\"c\"}"), payloadReader);
+        String evolved = USERS_SCHEMA.replace("}],", "},{\"type\":\"int64\",\"field\":\"ts_ms\"}],");
+        
+        Map<String, Object> payload = reader.read(envelope(evolved, "{\"op\":\"c\",\"ts_ms\":1}"), payloadReader);
+        
+        assertThat(payload).containsEntry("ts_ms", 1);
+        assertThat(schemaCache.getStats()).containsEntry("misses", 2L);
+        assertThat(schemaCache.getStats()).containsEntry("schemas", 2);
+    }
+    
+    @Test
+    void nullPayloadReadsAsNull() throws IOException {
+        reader.read(envelope(USERS_SCHEMA, "{\"op\":\"c\"}"), payloadReader);
+        
+        Map<String, Object> payload = reader.read(envelope(USERS_SCHEMA, "null"), payloadReader);
+        
+        assertThat(payload).isNull();
+    }
+    
+    private static String envelope(String schema, String payload) {
+        return "{\"schema\":" + schema + ", \"payload\":" + payload + "}";
+    }
+}
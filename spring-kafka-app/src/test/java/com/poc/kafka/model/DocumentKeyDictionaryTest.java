@@ -0,0 +1,149 @@
+package com.poc.kafka.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocumentKeyDictionaryTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Test
+    void compactDocumentKeepsFieldsOrderAndNestedObjects() {
+        DocumentKeyDictionary dictionary = new DocumentKeyDictionary(100);
+        Map<String, Object> order = order("o1", "alice");
+        
+        Map<String, Object> compacted = dictionary.compact(copy(order));
+        
+        assertThat(compacted).isInstanceOf(CompactDocument.class);
+        assertThat(compacted).isEqualTo(order);
+        assertThat(new ArrayList<>(compacted.keySet())).containsExactly("_id", "userId", "shipping", "items");
+        assertThat(compacted.get("shipping")).isInstanceOf(CompactDocument.class);
+        assertThat(((List<?>) compacted.get("items")).get(0)).isInstanceOf(CompactDocument.class);
+        assertThat(dictionary.compact(compacted)).isSameAs(compacted);
+    }
+    
+    @Test
+    void documentsOfTheSameShapeShareTheCanonicalKeys() {
+        DocumentKeyDictionary dictionary = new DocumentKeyDictionary(100);
+        
+        CompactDocument first = (CompactDocument) dictionary.compact(Map.of(new String("userId"), "alice"));
+        CompactDocument second = (CompactDocument) dictionary.compact(Map.of(new String("userId"), "bob"));
+        
+        assertThat(second.keyAt(0)).isSameAs(first.keyAt(0));
+        assertThat((int) dictionary.getStats().get("layouts")).isEqualTo(1);
+    }
+    
+    @Test
+    void shapesPastTheLayoutCapAreKeptAsTheyAre() {
+        DocumentKeyDictionary dictionary = new DocumentKeyDictionary(2);
+        dictionary.compact(fields("a", "b"));
+        
+        Map<String, Object> unlearned = fields("a", "c");
+        
+        assertThat(dictionary.compact(unlearned)).isSameAs(unlearned);
+        assertThat(dictionary.compact(fields("a", "b"))).isInstanceOf(CompactDocument.class);
+        assertThat((int) dictionary.getStats().get("layouts")).isEqualTo(2);
+        assertThat((long) dictionary.getStats().get("uncompacted")).isEqualTo(1);
+    }
+    
+    @Test
+    void concurrentLearnersNeverPassTheLayoutCap() throws Exception {
+        DocumentKeyDictionary dictionary = new DocumentKeyDictionary(50);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> learners = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                learners.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        dictionary.compact(fields("field" + i));
+                    }
+                }));
+            }
+            for (Future<?> learner : learners) {
+                learner.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        assertThat((int) dictionary.getStats().get("layouts")).isEqualTo(50);
+        assertThat((int) dictionary.getStats().get("keys")).isEqualTo(50);
+    }
+    
+    @Test
+    void serializesLikeTheOriginalDocument() throws JsonProcessingException {
+        DocumentKeyDictionary dictionary = new DocumentKeyDictionary(100);
+        Map<String, Object> order = order("o1", null);
+        
+        Map<String, Object> compacted = dictionary.compact(copy(order));
+        
+        assertThat(objectMapper.writeValueAsString(compacted)).isEqualTo(objectMapper.writeValueAsString(order));
+        assertThat(objectMapper.writeValueAsString(Map.of("after", compacted)))
+                .isEqualTo(objectMapper.writeValueAsString(Map.of("after", order)));
+    }
+    
+    @Test
+    void compactDocumentsAreImmutable() {
+        Map<String, Object> compacted = new DocumentKeyDictionary(100).compact(fields("a"));
+        
+        assertThatThrownBy(() -> compacted.put("b", 1)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> compacted.remove("a")).isInstanceOf(UnsupportedOperationException.class);
+    }
+    
+    private static Map<String, Object> order(String id, String userId) {
+        Map<String, Object> shipping = new LinkedHashMap<>();
+        shipping.put("city", "Berlin");
+        shipping.put("zip", "10115");
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("sku", "LAPTOP");
+        item.put("qty", 1);
+        
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("_id", Map.of("$oid", id));
+        order.put("userId", userId);
+        order.put("shipping", shipping);
+        order.put("items", List.of(item));
+        return order;
+    }
+    
+    /**
+     * A mutable deep copy, since compaction replaces the objects in lists in place
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> copy(Map<String, Object> document) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        document.forEach((key, value) -> {
+            if (value instanceof Map<?, ?> nested) {
+                value = copy((Map<String, Object>) nested);
+            } else if (value instanceof List<?> list) {
+                List<Object> elements = new ArrayList<>();
+                for (Object element : list) {
+                    elements.add(element instanceof Map<?, ?> nested ? copy((Map<String, Object>) nested) : element);
+                }
+                value = elements;
+            }
+            copy.put(key, value);
+        });
+        return copy;
+    }
+    
+    private static Map<String, Object> fields(String... keys) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        for (String key : keys) {
+            document.put(key, key + "-value");
+        }
+        return document;
+    }
+}
@@ -0,0 +1,67 @@
+package com.poc.kafka.state;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedSegmentTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void appendedRecordsAreReadAndScannedInOrder() throws IOException {
+        try (MappedSegment segment = MappedSegment.open(directory.resolve("segment.log"), 1, 256)) {
+            int first = segment.append(bytes("first"));
+            int second = segment.append(bytes("second"));
+            
+            assertThat(first).isZero();
+            assertThat(second).isEqualTo(MappedSegment.FRAME_HEADER_SIZE + 5);
+            assertThat(new String(segment.read(second), StandardCharsets.UTF_8)).isEqualTo("second");
+            assertThat(segment.frameSize(second)).isEqualTo(MappedSegment.FRAME_HEADER_SIZE + 6);
+            assertThat(scan(segment)).containsExactly("first", "second");
+        }
+    }
+    
+    @Test
+    void appendReturnsMinusOneOnceTheRecordNoLongerFits() throws IOException {
+        try (MappedSegment segment = MappedSegment.open(directory.resolve("segment.log"), 1, 64)) {
+            // 8 header bytes + 40 payload bytes leaves 16, and a terminator must still fit behind the record
+            assertThat(segment.append(new byte[40])).isZero();
+            assertThat(segment.append(new byte[5])).isEqualTo(-1);
+            assertThat(segment.append(new byte[4])).isEqualTo(48);
+        }
+    }
+    
+    @Test
+    void reopenResumesAppendingBehindTheLastRecord() throws IOException {
+        Path path = directory.resolve("segment.log");
+        try (MappedSegment segment = MappedSegment.open(path, 1, 256)) {
+            segment.append(bytes("first"));
+            segment.append(bytes("second"));
+        }
+        
+        try (MappedSegment segment = MappedSegment.open(path, 1, 256)) {
+            assertThat(segment.getWritePosition()).isEqualTo(2 * MappedSegment.FRAME_HEADER_SIZE + 11);
+            segment.append(bytes("third"));
+            assertThat(scan(segment)).containsExactly("first", "second", "third");
+        }
+    }
+    
+    private static List<String> scan(MappedSegment segment) {
+        List<String> payloads = new ArrayList<>();
+        segment.scan((position, payload) -> payloads.add(new String(payload, StandardCharsets.UTF_8)));
+        return payloads;
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
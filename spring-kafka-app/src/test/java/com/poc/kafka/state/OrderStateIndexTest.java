@@ -0,0 +1,53 @@
+package com.poc.kafka.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStateIndexTest {
+    
+    @Test
+    void evictsTheOldestAppliedOrdersOnceFull() {
+        OrderStateIndex index = new OrderStateIndex(2);
+        
+        index.put("o1", order("u1", "PENDING"), Instant.now());
+        index.put("o2", order("u1", "PENDING"), Instant.now());
+        index.put("o3", order("u2", "SHIPPED"), Instant.now());
+        
+        assertThat(index.get("o1")).isNull();
+        assertThat(index.findByUser("u1", 10)).hasSize(1);
+        assertThat(index.findByStatus("SHIPPED", 10)).hasSize(1);
+    }
+    
+    @Test
+    void reappliedOrderKeepsItsPlaceAndIsReindexed() {
+        OrderStateIndex index = new OrderStateIndex(2);
+        index.put("o1", order("u1", "PENDING"), null);
+        index.put("o2", order("u1", "PENDING"), null);
+        
+        // A redelivered insert must not make o1 the newest and push o2 out
+        index.put("o1", order("u1", "CONFIRMED"), null);
+        index.put("o3", order("u2", "PENDING"), null);
+        
+        assertThat(index.get("o1")).isNull();
+        assertThat(index.get("o2")).isNotNull();
+        assertThat(index.findByStatus("CONFIRMED", 10)).isEmpty();
+        assertThat(index.findByStatus("PENDING", 10)).hasSize(2);
+    }
+    
+    @Test
+    void freshnessRecordsTheApplyEvenWithoutASourceTimestamp() {
+        OrderStateIndex index = new OrderStateIndex(10);
+        
+        index.put("o1", order("u1", "PENDING"), null);
+        
+        assertThat(index.getFreshness().toMap().get("lastAppliedAt")).isNotNull();
+    }
+    
+    private static Map<String, Object> order(String userId, String status) {
+        return Map.of("userId", userId, "status", status);
+    }
+}